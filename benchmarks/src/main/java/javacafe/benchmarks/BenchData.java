@@ -0,0 +1,174 @@
+package javacafe.benchmarks;
+
+import javacafe.Models.InventoryFile;
+import javacafe.Models.Money;
+import javacafe.Models.SaleRecord;
+import javacafe.backend_files.PersistenceWriter;
+import javacafe.backend_files.SalesLedger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Gerador de dados sintéticos para os benchmarks: N produtos, N cafés registrados e N vendas,
+ * nos mesmos arquivos e formatos que a aplicação lê (files/inventory.txt,
+ * backend_files/registers.txt e files/sales.dat, relativos à pasta atual).
+ *
+ * Os dados são sempre os mesmos para o mesmo N (semente fixa), então os resultados de versões
+ * diferentes podem ser comparados. Para não apagar dados de verdade, a geração só acontece em
+ * uma pasta vazia ou em uma pasta já marcada como de benchmark ({@value #MARKER}).
+ *
+ * Uso avulso: java -cp benchmarks.jar javacafe.benchmarks.BenchData produtos cafés vendas
+ */
+public final class BenchData {
+
+    static final String MARKER = ".javacafe-bench";
+    static final String INVENTORY_FILE = "files/inventory.txt";
+    static final String JOURNAL_FILE = "files/inventory.journal";
+    static final String REGISTERS_FILE = "backend_files/registers.txt";
+    static final String SALES_FILE = "files/sales.dat";
+    static final int INITIAL_STOCK = 1_000_000;
+
+    private static final long SEED = 20240626L;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final String[] BASES = {
+            "capuccino", "latte", "mate", "espresso", "cookie", "brownie", "cha verde",
+            "pao de queijo", "croissant", "bolo de cenoura", "suco de laranja", "cafe com leite"
+    };
+    private static final String[] VARIANTS = {
+            "grande", "pequeno", "gelado", "duplo", "sem acucar", "com canela", "de chocolate", "especial"
+    };
+
+    private BenchData() {
+    }
+
+    /**
+     * @return O nome do produto de número i (o mesmo em todas as execuções).
+     */
+    public static String productName(int i) {
+        return BASES[i % BASES.length] + " " + VARIANTS[(i / BASES.length) % VARIANTS.length] + " " + i;
+    }
+
+    /**
+     * @return O nome do café registrado de número i.
+     */
+    public static String userName(int i) {
+        return "cafe" + i;
+    }
+
+    /**
+     * @return A senha do café registrado de número i.
+     */
+    public static String password(int i) {
+        return "senha" + (i * 31 + 7);
+    }
+
+    /**
+     * Escreve um inventário com o número de produtos pedido e apaga o diário de alterações.
+     */
+    public static void products(int count) throws IOException {
+        prepareDirectory();
+        SplittableRandom random = new SplittableRandom(SEED);
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(INVENTORY_FILE), StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(64);
+            out.append(InventoryFile.HEADER).append('\n');
+            for (int i = 0; i < count; i++) {
+                line.setLength(0);
+                line.append(productName(i)).append(':').append(INITIAL_STOCK).append(':');
+                Money.appendTo(line, 300 + random.nextInt(2000)).append('\n');
+                out.append(line);
+            }
+        }
+        Files.deleteIfExists(Paths.get(JOURNAL_FILE));
+    }
+
+    /**
+     * Escreve um registro de cafés no formato "nome|senha".
+     */
+    public static void users(int count) throws IOException {
+        prepareDirectory();
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(REGISTERS_FILE), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                out.append(userName(i)).append('|').append(password(i)).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Escreve um livro de vendas com o número de linhas pedido, em pedidos de 1 a 4 itens
+     * espalhados pelos últimos 90 dias. Se o livro já tiver exatamente esse número de linhas,
+     * ele é mantido (a geração de milhões de vendas leva alguns segundos).
+     * Precisa ser chamado antes do primeiro SalesLedger.get() da JVM.
+     * @param productCount De quantos produtos as vendas são sorteadas.
+     */
+    public static void sales(int count, int productCount) throws IOException {
+        prepareDirectory();
+        Path path = Paths.get(SALES_FILE);
+        if (Files.exists(path) && Files.size(path) == SalesLedger.HEADER_SIZE + (long) count * SalesLedger.RECORD_SIZE) {
+            return;
+        }
+        Files.deleteIfExists(path);
+        SalesLedger ledger = SalesLedger.get();
+        SplittableRandom random = new SplittableRandom(SEED);
+        long start = System.currentTimeMillis() - 90 * DAY_MS;
+        long step = Math.max(1, 90 * DAY_MS / Math.max(1, count));
+        List<SaleRecord> batch = new ArrayList<>(1024);
+        int written = 0;
+        while (written < count) {
+            long orderId = ledger.nextOrderId();
+            long timestamp = start + written * step;
+            int items = Math.min(count - written, 1 + random.nextInt(4));
+            for (int i = 0; i < items; i++) {
+                int product = random.nextInt(productCount);
+                batch.add(new SaleRecord(timestamp, orderId, "caixa" + random.nextInt(4), productName(product),
+                        1 + random.nextInt(3), 300 + random.nextInt(2000)));
+            }
+            written += items;
+            if (batch.size() >= 1000) {
+                ledger.append(batch);
+                batch = new ArrayList<>(1024);
+            }
+        }
+        if (!batch.isEmpty()) {
+            ledger.append(batch);
+        }
+        PersistenceWriter.get().flush();
+    }
+
+    /**
+     * Cria as pastas dos dados, recusando uma pasta que já tenha dados da aplicação.
+     */
+    private static void prepareDirectory() throws IOException {
+        Path marker = Paths.get(MARKER);
+        if (!Files.exists(marker)) {
+            for (String file : new String[]{INVENTORY_FILE, REGISTERS_FILE, SALES_FILE}) {
+                if (Files.exists(Paths.get(file))) {
+                    throw new IllegalStateException("A pasta " + Paths.get("").toAbsolutePath()
+                            + " já tem dados da aplicação; rode os benchmarks a partir de uma pasta vazia.");
+                }
+            }
+            Files.createFile(marker);
+        }
+        Files.createDirectories(Paths.get("files"));
+        Files.createDirectories(Paths.get("backend_files"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Uso: BenchData <produtos> <cafés> <vendas>");
+            System.exit(2);
+        }
+        int products = Integer.parseInt(args[0]);
+        products(products);
+        users(Integer.parseInt(args[1]));
+        sales(Integer.parseInt(args[2]), products);
+        System.out.println("Dados gerados em " + Paths.get("").toAbsolutePath());
+    }
+}
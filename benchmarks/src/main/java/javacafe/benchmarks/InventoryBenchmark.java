@@ -0,0 +1,104 @@
+package javacafe.benchmarks;
+
+import javacafe.Models.Inventory;
+import javacafe.Models.InventoryFile;
+import javacafe.Models.InventoryService;
+import javacafe.Models.InventorySnapshot;
+import javacafe.Models.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga do inventário (leitura do arquivo, reaplicação do diário e índice de busca), só a
+ * leitura do arquivo pelo InventoryFile, abertura do snapshot binário com uma busca, e
+ * alteração de estoque pelo Inventory.updateStock, por tamanho do catálogo.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InventoryBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int products;
+
+    private Inventory inventory;
+    private String[] names;
+    private Path snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchData.products(products);
+        inventory = InventoryService.get();
+        names = new String[products];
+        for (int i = 0; i < products; i++) {
+            names[i] = BenchData.productName(i);
+        }
+        // Fora de files/, para a carga do inventário continuar lendo o texto
+        snapshotFile = InventorySnapshot.write(Files.createDirectories(Paths.get("bench-snapshot")), 0,
+                InventorySnapshot.build(0, inventory.getProducts()));
+    }
+
+    /**
+     * Cada thread altera produtos sorteados, alternando +1 e -1 para o estoque não acabar.
+     */
+    @State(Scope.Thread)
+    public static class Changes {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+        private int amount = 1;
+
+        int nextAmount() {
+            amount = -amount;
+            return amount;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Inventory load() throws IOException {
+        return InventoryService.reload();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, Product> readFile() throws IOException {
+        Map<String, Product> loaded = new LinkedHashMap<>();
+        InventoryFile.load(Paths.get(BenchData.INVENTORY_FILE), loaded);
+        return loaded;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int openSnapshot() throws IOException {
+        InventorySnapshot snapshot = InventorySnapshot.open(snapshotFile);
+        return snapshot.stock(snapshot.find(names[names.length / 2]));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void updateStock(Changes changes) throws IOException {
+        inventory.updateStock(names[changes.random.nextInt(names.length)], changes.nextAmount());
+    }
+}
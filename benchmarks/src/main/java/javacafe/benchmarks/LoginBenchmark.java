@@ -0,0 +1,76 @@
+package javacafe.benchmarks;
+
+import javacafe.Models.User;
+import javacafe.backend_files.CredentialStore;
+import javacafe.backend_files.LoginController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoginController.validUser contra registros de tamanhos diferentes, com um café que existe
+ * (senha certa) e com um que não existe.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoginBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private final LoginController login = new LoginController();
+    private User[] existing;
+    private User[] missing;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchData.users(users);
+        // O registro é lido aqui, fora da medição
+        CredentialStore.get();
+        int samples = Math.min(users, 4096);
+        existing = new User[samples];
+        missing = new User[samples];
+        SplittableRandom random = new SplittableRandom(users);
+        for (int i = 0; i < samples; i++) {
+            int user = random.nextInt(users);
+            existing[i] = new User(BenchData.userName(user), BenchData.password(user));
+            missing[i] = new User("desconhecido" + user, "x");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int length) {
+            next = next + 1 == length ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public boolean validUser(Cursor cursor) throws IOException {
+        return login.validUser(existing[cursor.next(existing.length)]);
+    }
+
+    @Benchmark
+    public boolean unknownUser(Cursor cursor) throws IOException {
+        return login.validUser(missing[cursor.next(missing.length)]);
+    }
+}
@@ -0,0 +1,89 @@
+package javacafe.benchmarks;
+
+import javacafe.Models.Cart;
+import javacafe.Models.Inventory;
+import javacafe.Models.InventoryService;
+import javacafe.Models.Product;
+import javacafe.backend_files.OrderEngine;
+import javacafe.backend_files.PersistenceWriter;
+import javacafe.backend_files.ReceiptRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * O recibo do pedido em andamento, como o mainPageController.saveReceiptToFile faz a cada
+ * clique: o texto montado pelo ReceiptRenderer a partir do carrinho, com e sem a entrega
+ * ao PersistenceWriter. Cada thread tem o seu carrinho e o seu renderizador, como cada tela.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReceiptBenchmark {
+
+    private static final int PRODUCTS = 100;
+
+    @Param({"5", "50"})
+    public int items;
+
+    private final ReceiptRenderer renderer = new ReceiptRenderer(ReceiptRenderer.DETAILED);
+    private final Cart cart = new Cart();
+    private Inventory inventory;
+    private String receiptFile;
+
+    /**
+     * O catálogo, gerado uma vez e compartilhado pelas threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        private Inventory inventory;
+
+        @Setup
+        public void setUp() throws IOException {
+            BenchData.products(PRODUCTS);
+            inventory = InventoryService.get();
+        }
+    }
+
+    @Setup
+    public void setUp(Catalog catalog) {
+        inventory = catalog.inventory;
+        for (int i = 0; i < items; i++) {
+            Product product = inventory.getProduct(BenchData.productName(i % PRODUCTS));
+            for (int quantity = 0; quantity <= i % 3; quantity++) {
+                cart.add(product.getName(), product.getPriceCents());
+            }
+        }
+        receiptFile = "files/counts-" + Thread.currentThread().threadId() + ".txt";
+    }
+
+    @Benchmark
+    public CharSequence render() {
+        renderer.begin(0, System.currentTimeMillis(), OrderEngine.LOCAL_REGISTER);
+        for (Map.Entry<String, Integer> item : cart.getItems().entrySet()) {
+            Product product = inventory.getProduct(item.getKey());
+            renderer.line(product.getName(), item.getValue(), product.getPriceCents());
+        }
+        return renderer.finish(cart.getDiscountCents(), cart.getTaxCents());
+    }
+
+    @Benchmark
+    public void renderAndSave() {
+        PersistenceWriter.get().replace(receiptFile, render().toString());
+    }
+}
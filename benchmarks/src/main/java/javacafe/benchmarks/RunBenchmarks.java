@@ -0,0 +1,74 @@
+package javacafe.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Ponto de entrada do benchmarks.jar. Aceita as opções normais do JMH (ex.: "Login" para rodar
+ * só o LoginBenchmark, "-p users=1000") e roda os benchmarks uma vez para cada número de
+ * threads de -Djavacafe.bench.threads (padrão "1,4"; um -t na linha de comando substitui a lista).
+ *
+ * Todos os resultados vão para um único arquivo JSON do JMH, um registro por benchmark,
+ * parâmetros e threads: results/jmh-&lt;rótulo&gt;-&lt;data&gt;.json, em que o rótulo vem de
+ * -Djavacafe.bench.label (ex.: a versão ou o commit). Com -rff o arquivo indicado é usado.
+ */
+public final class RunBenchmarks {
+
+    private RunBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions command = new CommandLineOptions(args);
+        if (command.shouldHelp() || command.shouldList() || command.shouldListWithParams()
+                || command.shouldListProfilers() || command.shouldListResultFormats()) {
+            // Listagens e ajuda ficam com o próprio JMH
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        List<Integer> threadCounts = new ArrayList<>();
+        if (command.getThreads().hasValue()) {
+            threadCounts.add(command.getThreads().get());
+        } else {
+            for (String count : System.getProperty("javacafe.bench.threads", "1,4").split(",")) {
+                threadCounts.add(Integer.parseInt(count.trim()));
+            }
+        }
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder().parent(command).threads(threads).build();
+            results.addAll(new Runner(options).run());
+        }
+
+        Path output = Paths.get(command.getResult().orElse(defaultResultFile()));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(output), true, StandardCharsets.UTF_8.name())) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+        System.out.println("Resultados em " + output.toAbsolutePath());
+    }
+
+    private static String defaultResultFile() {
+        String label = System.getProperty("javacafe.bench.label", "local").replaceAll("[^A-Za-z0-9._-]", "_");
+        String date = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return "results/jmh-" + label + "-" + date + ".json";
+    }
+}
@@ -0,0 +1,78 @@
+package javacafe.benchmarks;
+
+import javacafe.backend_files.SalesHistoryPager;
+import javacafe.backend_files.SalesLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura do histórico de vendas pelo SalesHistoryPager: abrir o histórico e mostrar a
+ * primeira página (o que a tela de vendas faz) e pular para uma página qualquer (rolagem
+ * longa), por tamanho do livro de vendas.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SalesHistoryBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int sales;
+
+    private SalesLedger ledger;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchData.sales(sales, 1000);
+        ledger = SalesLedger.get();
+    }
+
+    @State(Scope.Thread)
+    public static class Scroll {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+        private SalesHistoryPager pager;
+
+        @Setup(Level.Trial)
+        public void open(SalesHistoryBenchmark benchmark) throws IOException {
+            pager = new SalesHistoryPager(benchmark.ledger);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            pager.close();
+        }
+    }
+
+    @Benchmark
+    public void openFirstPage(Blackhole blackhole) throws IOException {
+        try (SalesHistoryPager pager = new SalesHistoryPager(ledger)) {
+            int lines = Math.min(pager.size(), SalesHistoryPager.PAGE_SIZE);
+            for (int i = 0; i < lines; i++) {
+                blackhole.consume(pager.line(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public String jumpToRandomLine(Scroll scroll) {
+        return scroll.pager.line(scroll.random.nextInt(scroll.pager.size()));
+    }
+}
@@ -2,23 +2,51 @@
 package javacafe;
 
 
+import javacafe.backend_files.EngineServer;
+import javacafe.backend_files.Metrics;
+import javacafe.backend_files.StartupTimer;
+import javacafe.controllers.FxStallMonitor;
+import javacafe.controllers.PageCache;
+import javacafe.controllers.StartupPrewarm;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 
 public class Main extends Application {
 
+    private EngineServer engineServer;
+
     public void start(Stage stage) throws IOException {
 
-        Parent root = FXMLLoader.load(getClass().getResource("pages/firstpage.fxml"));
-        Scene scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        // Com -Djavacafe.engine.port=N, outros caixas podem usar o mesmo estoque por TCP local.
+        String enginePort = System.getProperty("javacafe.engine.port");
+        if (enginePort != null) {
+            engineServer = EngineServer.start(Integer.parseInt(enginePort));
+        }
+
+        // Com -Djavacafe.metrics.port=N, as métricas ficam em http://127.0.0.1:N/metrics (e sempre no JMX).
+        String metricsPort = System.getProperty("javacafe.metrics.port");
+        if (metricsPort != null) {
+            Metrics.startEndpoint(Integer.parseInt(metricsPort));
+        }
+        FxStallMonitor.start();
+
+        long begin = StartupTimer.begin();
+        PageCache.show(stage, "firstpage.fxml");
+        StartupTimer.end("tela inicial", begin);
 
+        // Carrega o resto (imagens, páginas e dados) enquanto a tela de login está aberta
+        StartupPrewarm.start();
+
+    }
+
+    @Override
+    public void stop() {
+        if (engineServer != null) {
+            engineServer.close();
+        }
+        Metrics.stopEndpoint();
     }
 
 
@@ -0,0 +1,199 @@
+package javacafe.Models;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * O carrinho de um pedido em andamento: nome do produto e a quantidade reservada.
+ * Cada unidade no carrinho corresponde a uma reserva feita no Inventory em nome dele
+ * ({@link #getReservations}), que só sai do estoque físico quando o pedido é finalizado
+ * com Inventory.commit.
+ * Os carrinhos de cada caixa ficam no OrderEngine.
+ *
+ * Subtotal, descontos e imposto são mantidos a cada item adicionado ou removido:
+ * o subtotal muda pelo preço de uma unidade, e só as regras de Promotions ligadas ao
+ * produto (mais as do carrinho inteiro) são reavaliadas. Os valores estão em centavos.
+ */
+public class Cart {
+
+    private final Map<String, Integer> quantities = new LinkedHashMap<>();
+    // Preço unitário de cada produto no momento em que entrou no carrinho
+    private final Map<String, Long> unitPrices = new HashMap<>();
+    private final Promotions promotions;
+    private final Inventory.Reservations reservations = new Inventory.Reservations();
+    private final long[] ruleDiscounts;
+    private long subtotalCents;
+    private long discountCents;
+    // Até quando os descontos das regras com janela de horário continuam valendo
+    private long windowsValidUntil = Long.MIN_VALUE;
+
+    public Cart() {
+        this(Promotions.none());
+    }
+
+    public Cart(Promotions promotions) {
+        this.promotions = promotions;
+        this.ruleDiscounts = new long[promotions.ruleCount()];
+    }
+
+    /**
+     * @return As reservas de estoque deste carrinho (não são apagadas por {@link #clear}).
+     */
+    public Inventory.Reservations getReservations() {
+        return reservations;
+    }
+
+    public int getQuantity(String productName) {
+        return quantities.getOrDefault(productName, 0);
+    }
+
+    /**
+     * @return O preço unitário do produto no carrinho, em centavos (0 se não estiver nele).
+     */
+    public long getUnitCents(String productName) {
+        return unitPrices.getOrDefault(productName, 0L);
+    }
+
+    /**
+     * @return O valor da linha do produto (preço unitário x quantidade), em centavos.
+     */
+    public long getLineCents(String productName) {
+        return Money.multiply(getUnitCents(productName), getQuantity(productName));
+    }
+
+    /**
+     * Adiciona uma unidade do produto.
+     * @param unitCents O preço unitário do produto, em centavos.
+     */
+    public void add(String productName, long unitCents) {
+        quantities.merge(productName, 1, Integer::sum);
+        unitPrices.put(productName, unitCents);
+        subtotalCents = Money.add(subtotalCents, unitCents);
+        reevaluate(productName);
+    }
+
+    /**
+     * Remove uma unidade do produto.
+     * @return false se o produto não estava no carrinho.
+     */
+    public boolean remove(String productName) {
+        int current = getQuantity(productName);
+        if (current <= 0) {
+            return false;
+        }
+        subtotalCents = Money.subtract(subtotalCents, getUnitCents(productName));
+        if (current == 1) {
+            quantities.remove(productName);
+        } else {
+            quantities.put(productName, current - 1);
+        }
+        reevaluate(productName);
+        if (current == 1) {
+            unitPrices.remove(productName);
+        }
+        return true;
+    }
+
+    /**
+     * @return Uma visão somente leitura dos itens, na ordem em que foram adicionados.
+     */
+    public Map<String, Integer> getItems() {
+        return Collections.unmodifiableMap(quantities);
+    }
+
+    public boolean isEmpty() {
+        return quantities.isEmpty();
+    }
+
+    public void clear() {
+        quantities.clear();
+        unitPrices.clear();
+        subtotalCents = 0;
+        discountCents = 0;
+        Arrays.fill(ruleDiscounts, 0);
+    }
+
+    /**
+     * @return A soma das linhas, sem descontos nem imposto.
+     */
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * @return A soma dos descontos das promoções (nunca maior que o subtotal).
+     */
+    public long getDiscountCents() {
+        refreshWindows(System.currentTimeMillis());
+        return Math.min(discountCents, subtotalCents);
+    }
+
+    /**
+     * @return O imposto sobre o valor já com desconto.
+     */
+    public long getTaxCents() {
+        return Money.percent(subtotalCents - getDiscountCents(), promotions.getTaxBasisPoints());
+    }
+
+    /**
+     * @return O valor a pagar: subtotal - descontos + imposto.
+     */
+    public long getTotalCents() {
+        long discounted = subtotalCents - getDiscountCents();
+        return Money.add(discounted, Money.percent(discounted, promotions.getTaxBasisPoints()));
+    }
+
+    /**
+     * @return O desconto de cada promoção aplicada (só as maiores que zero), pelo nome da regra.
+     */
+    public Map<String, Long> getAppliedDiscounts() {
+        refreshWindows(System.currentTimeMillis());
+        Map<String, Long> applied = new LinkedHashMap<>();
+        for (int rule = 0; rule < ruleDiscounts.length; rule++) {
+            if (ruleDiscounts[rule] > 0) {
+                applied.merge(promotions.ruleName(rule), ruleDiscounts[rule], Long::sum);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Reavalia só as regras afetadas pela mudança do produto.
+     */
+    private void reevaluate(String productName) {
+        long now = System.currentTimeMillis();
+        if (refreshWindows(now)) {
+            return;
+        }
+        for (int rule : promotions.rulesFor(productName)) {
+            update(rule, now);
+        }
+        for (int rule : promotions.cartWideRules()) {
+            update(rule, now);
+        }
+    }
+
+    /**
+     * Quando uma janela de horário abre ou fecha, todas as regras são reavaliadas uma vez.
+     * @return true se houve a reavaliação completa.
+     */
+    private boolean refreshWindows(long now) {
+        if (now < windowsValidUntil) {
+            return false;
+        }
+        windowsValidUntil = promotions.nextWindowChange(now);
+        for (int rule = 0; rule < ruleDiscounts.length; rule++) {
+            update(rule, now);
+        }
+        return true;
+    }
+
+    private void update(int rule, long now) {
+        long discount = promotions.discount(rule, this, now);
+        discountCents += discount - ruleDiscounts[rule];
+        ruleDiscounts[rule] = discount;
+    }
+}
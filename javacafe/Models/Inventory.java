@@ -1,18 +1,44 @@
 package javacafe.Models;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import javacafe.backend_files.CafePartition;
+import javacafe.backend_files.Metrics;
+import javacafe.backend_files.PersistenceWriter;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Gerencia o inventário de produtos, lendo e escrevendo em um arquivo.
  * A classe agora é dinâmica e não depende da quantidade ou ordem dos itens.
  * Ela utiliza a classe Product para encapsular os dados de cada item.
+ *
+ * O snapshot pode estar em texto (InventoryFile) ou em binário (InventorySnapshot). O
+ * binário é mapeado em memória em vez de lido, e um Product só é criado para os produtos
+ * que forem usados, então abrir um catálogo de um milhão de produtos custa o mesmo que
+ * abrir um de sete. Com -Djavacafe.inventory.snapshot=binary as compactações gravam o
+ * snapshot binário (o padrão é "text"); a carga usa o snapshot mais novo, qualquer que seja.
+ *
+ * Todos os arquivos ficam em uma pasta: files/ ou a pasta da partição de um café (CafePartition).
  */
 public class Inventory {
 
@@ -20,14 +46,165 @@ public class Inventory {
     // LinkedHashMap mantém a ordem de inserção, garantindo que o arquivo seja escrito
     // e lido sempre na mesma ordem, o que é bom para consistência.
     private final Map<String, Product> products = new LinkedHashMap<>();
-    private final String inventoryFilePath = "files/inventory.txt";
+    private static final String INVENTORY_FILE = "inventory.txt";
+    private final Path inventoryFilePath;
+    // Pasta das gerações do snapshot binário
+    private final Path snapshotDirectory;
+    private static final boolean BINARY_SNAPSHOT =
+            "binary".equalsIgnoreCase(System.getProperty("javacafe.inventory.snapshot", "text").trim());
+
+    // Quando o inventário veio do snapshot binário: o mapeamento e os produtos dele que já
+    // viraram objetos (procurados, reservados ou alterados pelo diário). O mapa "products"
+    // acima fica vazio nesse caso.
+    private volatile InventorySnapshot snapshot;
+    private final Map<String, Product> materialized = new ConcurrentHashMap<>();
+    private List<Product> catalogView;
+    // O snapshot em disco não está no formato escolhido: a próxima compactação o converte
+    private boolean convertSnapshot;
+
+    // As alterações de estoque vão para o diário; o arquivo acima é só o snapshot compactado.
+    private static final String JOURNAL_FILE = "inventory.journal";
+    // Compacta quando o diário acumula muitas entradas, ou periodicamente se houver alguma.
+    private static final int COMPACTION_THRESHOLD = 500;
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+
+    private static final ScheduledExecutorService COMPACTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "inventory-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final InventoryJournal journal;
+    // Busca por nome e apelido, atualizada no primeiro uso depois de cada carga do catálogo
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final Object indexLock = new Object();
+    private volatile boolean indexed;
+    private long snapshotSequence;
+    private boolean compactionScheduled;
+    private final ScheduledFuture<?> periodicCompaction;
 
     /**
-     * Construtor que carrega o inventário do arquivo ao ser instanciado.
+     * Construtor que carrega o inventário da pasta files/ ao ser instanciado.
      * @throws IOException Se houver um erro de leitura do arquivo.
      */
     public Inventory() throws IOException {
-        loadInventoryFromFile();
+        this(Paths.get(CafePartition.DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * Carrega o inventário guardado na pasta dada.
+     * O snapshot é lido e em seguida o diário de alterações é reaplicado sobre ele.
+     * @throws IOException Se houver um erro de leitura do arquivo.
+     */
+    public Inventory(Path directory) throws IOException {
+        this.inventoryFilePath = directory.resolve(INVENTORY_FILE);
+        this.snapshotDirectory = directory;
+        this.journal = new InventoryJournal(directory.resolve(JOURNAL_FILE));
+        loadSnapshot();
+        journal.replay(this::getProduct, snapshotSequence);
+        periodicCompaction = COMPACTOR.scheduleWithFixedDelay(this::compactQuietly,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        if (convertSnapshot) {
+            COMPACTOR.execute(this::compactQuietly);
+        }
+    }
+
+    /**
+     * Cria o snapshot de texto de um inventário novo na pasta dada, com os produtos, o
+     * estoque e os preços de outro arquivo de inventário e o diário começando do zero.
+     * Não faz nada se a pasta já tiver um inventário ou se o modelo não existir.
+     * @param template O arquivo de inventário usado como modelo.
+     * @param directory A pasta do inventário novo.
+     * @throws IOException Se houver um erro ao ler o modelo ou gravar o snapshot.
+     */
+    public static void createFromTemplate(Path template, Path directory) throws IOException {
+        Path target = directory.resolve(INVENTORY_FILE);
+        if (Files.exists(target) || Files.exists(directory.resolve(JOURNAL_FILE))
+                || InventorySnapshot.latest(directory) != null || !Files.exists(template)) {
+            return;
+        }
+        Map<String, Product> catalog = new LinkedHashMap<>();
+        InventoryFile.load(template, catalog);
+        StringBuilder sb = new StringBuilder(32 * (catalog.size() + 2));
+        InventoryFile.appendHeader(sb, 0);
+        for (Product product : catalog.values()) {
+            InventoryFile.appendProduct(sb, product);
+        }
+        Files.createDirectories(directory);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Para a compactação periódica e grava um último snapshot com o diário pendente.
+     * Usado quando a partição do café sai da memória; o inventário não deve mais ser usado.
+     */
+    public void close() {
+        periodicCompaction.cancel(false);
+        compactQuietly();
+    }
+
+    /**
+     * Descarta os produtos em memória e lê novamente o arquivo de inventário.
+     * Usado pelo InventoryService quando uma recarga explícita é pedida.
+     * @throws IOException Se houver um erro de leitura do arquivo.
+     */
+    synchronized void reload() throws IOException {
+        PersistenceWriter.get().flush();
+        products.clear();
+        snapshot = null;
+        materialized.clear();
+        catalogView = null;
+        snapshotSequence = 0;
+        loadSnapshot();
+        journal.replay(this::getProduct, snapshotSequence);
+        indexed = false;
+        if (convertSnapshot) {
+            COMPACTOR.execute(this::compactQuietly);
+        }
+    }
+
+    /**
+     * Carrega o snapshot mais novo: o de texto ou a última geração do binário, pela
+     * sequência do diário que cada um cobre. Num empate vale o formato escolhido.
+     */
+    private void loadSnapshot() throws IOException {
+        Path text = inventoryFilePath;
+        Path binary = InventorySnapshot.latest(snapshotDirectory);
+        long textSequence = Files.exists(text) ? InventoryFile.readSequence(text) : -1;
+        long binarySequence = binary == null ? -1 : InventorySnapshot.sequenceOf(binary);
+        if (binarySequence > textSequence || binarySequence >= 0 && binarySequence == textSequence && BINARY_SNAPSHOT) {
+            try {
+                long begin = Metrics.begin();
+                snapshot = InventorySnapshot.open(binary);
+                snapshotSequence = snapshot.getSequence();
+                Metrics.end("io.map.inventory", begin);
+            } catch (IOException e) {
+                System.err.println("Erro ao abrir o snapshot binário do inventário; usando o de texto: " + e.getMessage());
+            }
+        }
+        if (snapshot == null) {
+            loadInventoryFromFile();
+        }
+        convertSnapshot = BINARY_SNAPSHOT != (snapshot != null);
+    }
+
+    /**
+     * Leva o catálogo atual ao índice de busca; só os produtos novos, removidos ou com
+     * apelidos diferentes são reindexados.
+     */
+    private void indexCatalog() {
+        InventorySnapshot mapped = snapshot;
+        Collection<String> names;
+        if (mapped != null) {
+            names = mapped.names();
+        } else {
+            synchronized (this) {
+                names = new ArrayList<>(products.keySet());
+            }
+        }
+        searchIndex.sync(names, ProductSearchIndex.loadAliases(ProductSearchIndex.ALIASES_FILE));
     }
 
     /**
@@ -36,8 +213,19 @@ public class Inventory {
      * @return A quantidade em estoque, ou -1 se o produto não for encontrado.
      */
     public int getStock(String productName) {
-        Product product = products.get(productName.toLowerCase());
-        return (product != null) ? product.getStock() : -1;
+        String name = productName.toLowerCase();
+        InventorySnapshot mapped = snapshot;
+        if (mapped == null) {
+            Product product = products.get(name);
+            return (product != null) ? product.getStock() : -1;
+        }
+        // Um produto do snapshot binário que nunca foi usado é lido direto do arquivo
+        Product product = materialized.get(name);
+        if (product != null) {
+            return product.getStock();
+        }
+        int row = mapped.find(name);
+        return row < 0 ? -1 : mapped.stock(row);
     }
 
     /**
@@ -47,73 +235,424 @@ public class Inventory {
      * @return O objeto Product correspondente, ou null se não for encontrado.
      */
     public Product getProduct(String productName) {
-        return products.get(productName.toLowerCase());
+        String name = productName.toLowerCase();
+        InventorySnapshot mapped = snapshot;
+        if (mapped == null) {
+            return products.get(name);
+        }
+        Product product = materialized.get(name);
+        if (product == null) {
+            int row = mapped.find(name);
+            if (row < 0) {
+                return null;
+            }
+            product = materialize(mapped, name, row);
+        }
+        return product;
+    }
+
+    private Product materialize(InventorySnapshot mapped, String name, int row) {
+        return materialized.computeIfAbsent(name, key -> new Product(key, mapped.stock(row), mapped.priceCents(row)));
+    }
+
+    /**
+     * Retorna o catálogo: todos os produtos, na ordem do arquivo de inventário.
+     * Pode ser percorrido enquanto o inventário é recarregado: é uma cópia ou, com o
+     * snapshot binário, uma lista só de leitura que cria cada Product quando ele é lido
+     * (a mesma lista até a próxima recarga).
+     * @return Os produtos do inventário.
+     */
+    public synchronized List<Product> getProducts() {
+        InventorySnapshot mapped = snapshot;
+        if (mapped == null) {
+            return new ArrayList<>(products.values());
+        }
+        if (catalogView == null) {
+            catalogView = new CatalogView(mapped);
+        }
+        return catalogView;
+    }
+
+    /**
+     * @return O índice de busca dos produtos deste inventário, montado no primeiro uso.
+     */
+    public ProductSearchIndex getSearchIndex() {
+        if (!indexed) {
+            synchronized (indexLock) {
+                if (!indexed) {
+                    indexCatalog();
+                    indexed = true;
+                }
+            }
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Busca produtos pelo começo do nome ou de um apelido, ou por um nome parecido
+     * (ver ProductSearchIndex). Os mais vendidos recentemente vêm primeiro.
+     * @param query O texto digitado.
+     * @param limit Quantos produtos, no máximo.
+     * @return Os produtos encontrados, do melhor para o pior.
+     */
+    public List<Product> search(String query, int limit) {
+        List<Product> found = new ArrayList<>();
+        for (String name : getSearchIndex().search(query, limit)) {
+            Product product = getProduct(name);
+            if (product != null) {
+                found.add(product);
+            }
+        }
+        return found;
     }
 
     /**
      * Atualiza o estoque de um produto.
+     * A alteração é acrescentada ao diário (custo constante), sem reescrever o inventário.
      * @param productName O nome do produto a ser atualizado.
      * @param amount A quantidade para adicionar (ex: 5) ou subtrair (ex: -1).
      * @throws IOException Se houver um erro ao escrever no arquivo.
      */
-    public void updateStock(String productName, int amount) throws IOException {
-        Product product = products.get(productName.toLowerCase());
+    public synchronized void updateStock(String productName, int amount) throws IOException {
+        Product product = getProduct(productName);
 
         if (product == null) {
             System.err.println("ERRO: Tentativa de atualizar um produto inexistente: " + productName);
             return;
         }
 
-        // Verifica se há estoque suficiente antes de subtrair
-        if (amount < 0 && product.getStock() < Math.abs(amount)) {
+        // Verifica se há estoque suficiente antes de subtrair.
+        // O estoque físico nunca pode ficar abaixo do que já está reservado em carrinhos.
+        if (!product.tryUpdateStock(amount)) {
             System.err.println("ESTOQUE INSUFICIENTE para o item: " + productName);
             return; // Interrompe a operação para não deixar o estoque negativo
         }
-        
-        product.updateStock(amount);
-        writeInventoryToFile();
+        journal.append(product.getName(), amount);
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Reserva unidades de um produto para um carrinho, sem nenhum lock global:
+     * cada produto tem seu próprio contador atômico, então caixas diferentes
+     * não disputam entre si. Nada é gravado em disco até o commit.
+     * @param reservations As reservas do carrinho, que passam a incluir estas unidades.
+     * @param productName O nome do produto.
+     * @param quantity Quantas unidades reservar.
+     * @return true se havia estoque disponível e a reserva foi feita.
+     */
+    public boolean reserve(Reservations reservations, String productName, int quantity) {
+        Product product = getProduct(productName);
+        if (product == null || quantity <= 0) {
+            return false;
+        }
+        synchronized (reservations) {
+            if (!product.reserve(quantity)) {
+                return false;
+            }
+            reservations.add(productName.toLowerCase(), quantity);
+            return true;
+        }
+    }
+
+    /**
+     * Devolve ao estoque disponível unidades que o carrinho tinha reservado.
+     * @param reservations As reservas do carrinho.
+     * @param productName O nome do produto.
+     * @param quantity Quantas unidades liberar.
+     * @return false se o carrinho não tinha tantas unidades do produto reservadas (nada é alterado).
+     */
+    public boolean release(Reservations reservations, String productName, int quantity) {
+        String name = productName.toLowerCase();
+        synchronized (reservations) {
+            if (quantity <= 0 || reservations.get(name) < quantity) {
+                return false;
+            }
+            reservations.add(name, -quantity);
+            releaseProduct(name, quantity);
+            return true;
+        }
+    }
+
+    /**
+     * Libera de uma vez todas as reservas de um carrinho.
+     */
+    public void releaseAll(Reservations reservations) {
+        synchronized (reservations) {
+            for (Map.Entry<String, Integer> item : reservations.held.entrySet()) {
+                releaseProduct(item.getKey(), item.getValue());
+            }
+            reservations.held.clear();
+        }
+    }
+
+    private void releaseProduct(String name, int quantity) {
+        Product product = getProduct(name);
+        if (product == null || !product.release(quantity)) {
+            // Só acontece se o inventário foi recarregado com o carrinho aberto: a reserva
+            // era do produto antigo, e o novo começou sem reservas
+            System.err.println("ERRO: reserva de " + quantity + " unidade(s) de " + name + " não encontrada no estoque.");
+        }
+    }
+
+    /**
+     * Confirma a venda de todas as unidades reservadas pelo carrinho: elas saem do estoque
+     * físico e todas as baixas vão para o diário em uma única gravação.
+     * O lock só cobre essa etapa curta em memória, para manter a ordem do diário
+     * igual à do snapshot; reservar e liberar continuam sem lock global.
+     * Ou tudo é confirmado, ou nada: se um produto não tiver mais a reserva (o inventário foi
+     * recarregado com o carrinho aberto), os que já tinham sido confirmados voltam a ficar
+     * reservados, e as reservas do carrinho continuam como estavam.
+     * @param reservations As reservas do carrinho; ficam vazias se o commit der certo.
+     * @return false se alguma reserva não existia mais no estoque.
+     */
+    public synchronized boolean commit(Reservations reservations) {
+        synchronized (reservations) {
+            Map<Product, Integer> committed = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> item : reservations.held.entrySet()) {
+                Product product = getProduct(item.getKey());
+                int quantity = item.getValue();
+                if (product == null || !product.commit(quantity)) {
+                    for (Map.Entry<Product, Integer> done : committed.entrySet()) {
+                        done.getKey().undoCommit(done.getValue());
+                    }
+                    return false;
+                }
+                committed.put(product, quantity);
+            }
+            if (!committed.isEmpty()) {
+                Map<String, Integer> deltas = new LinkedHashMap<>();
+                for (Map.Entry<Product, Integer> done : committed.entrySet()) {
+                    deltas.put(done.getKey().getName(), -done.getValue());
+                }
+                journal.appendAll(deltas);
+                scheduleCompactionIfNeeded();
+            }
+            reservations.held.clear();
+            return true;
+        }
+    }
+
+    /**
+     * As reservas de um carrinho: quantas unidades de cada produto ele reservou.
+     * Liberar e confirmar só mexem nas unidades que o próprio carrinho reservou, então um
+     * caixa nunca confirma nem devolve a reserva de outro. Os métodos do Inventory que
+     * recebem as reservas travam só elas (uma trava por carrinho, sem disputa entre caixas).
+     */
+    public static final class Reservations {
+        // Nome do produto (minúsculas) -> unidades reservadas, na ordem em que entraram
+        private final Map<String, Integer> held = new LinkedHashMap<>();
+
+        /**
+         * @return Quantas unidades do produto o carrinho tem reservadas.
+         */
+        public synchronized int get(String productName) {
+            return held.getOrDefault(productName.toLowerCase(), 0);
+        }
+
+        /**
+         * @return Uma cópia das reservas: nome do produto e quantidade.
+         */
+        public synchronized Map<String, Integer> getItems() {
+            return new LinkedHashMap<>(held);
+        }
+
+        public synchronized boolean isEmpty() {
+            return held.isEmpty();
+        }
+
+        private void add(String name, int quantity) {
+            int total = held.getOrDefault(name, 0) + quantity;
+            if (total == 0) {
+                held.remove(name);
+            } else {
+                held.put(name, total);
+            }
+        }
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (journal.pendingEntries() >= COMPACTION_THRESHOLD && !compactionScheduled) {
+            compactionScheduled = true;
+            COMPACTOR.execute(this::compactQuietly);
+        }
     }
 
     /**
      * Carrega os dados do inventário do arquivo para o Map.
-     * Este método é dinâmico e lê quantos produtos houver no arquivo,
-     * no formato "nome:estoque:preco".
+     * Este método é dinâmico e lê quantos produtos houver no arquivo, no formato
+     * descrito em InventoryFile (que também aceita os arquivos antigos, sem cabeçalho).
+     * A linha "#seq=N", quando presente, indica a última entrada do diário já incluída no snapshot.
      */
     private void loadInventoryFromFile() throws IOException {
-        File file = new File(inventoryFilePath);
-        if (!file.exists()) {
+        Path path = inventoryFilePath;
+        if (!Files.exists(path)) {
             System.err.println("Arquivo de inventário não encontrado. O inventário estará vazio.");
             return;
         }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) continue; // Ignora linhas em branco
+        long begin = Metrics.begin();
+        InventoryFile.Result result = InventoryFile.load(path, products);
+        snapshotSequence = result.getSequence();
+        Metrics.fileRead(path, Files.size(path), begin);
+        if (result.getWithoutPrice() > 0) {
+            System.err.println("AVISO: " + result.getWithoutPrice() + " produto(s) do inventário sem preço (formato antigo \"nome:estoque\"); o preço fica R$ 0.00.");
+        }
+    }
 
-                String[] parts = line.split(":");
-                if (parts.length == 3) { // Espera 3 partes: nome, estoque, preço
-                    String name = parts[0].trim().toLowerCase();
-                    int stock = Integer.parseInt(parts[1].trim());
-                    double price = Double.parseDouble(parts[2].trim());
-                    products.put(name, new Product(name, stock, price));
-                } else {
-                    System.err.println("AVISO: Linha mal formatada no inventário e será ignorada: " + line);
-                }
+    /**
+     * Grava um novo snapshot do inventário e descarta as entradas do diário que ele cobre.
+     * O estado é capturado sob o lock (só memória); a escrita em disco acontece na thread
+     * do PersistenceWriter, em um arquivo temporário que substitui o snapshot com um rename
+     * atômico. Assim uma queda de energia nunca deixa o arquivo de inventário vazio.
+     */
+    synchronized void compact() {
+        compactionScheduled = false;
+        if (!convertSnapshot && journal.pendingEntries() == 0 && journal.lastSequence() == snapshotSequence) {
+            return;
+        }
+        convertSnapshot = false;
+        snapshotSequence = journal.markCompacted();
+        PersistenceWriter.IoTask write = captureSnapshot(snapshotSequence);
+        // Entregue ainda com o lock: as entradas do diário só são entregues com ele, então a
+        // rotação move exatamente as entradas que o snapshot cobre, e as seguintes vão para
+        // o diário novo.
+        PersistenceWriter.get().execute(() -> {
+            journal.rotateFiles();
+            write.run();
+            journal.discardRotated();
+        });
+    }
+
+    /**
+     * Captura o estado do snapshot sob o lock e devolve a gravação dele no formato escolhido.
+     * Com o snapshot binário mapeado, só o estoque dos produtos materializados é capturado:
+     * os outros não mudaram desde que o arquivo mapeado foi gravado.
+     * Cada snapshot gravado apaga as gerações binárias que ele torna velhas, menos a que
+     * ainda está mapeada.
+     */
+    private PersistenceWriter.IoTask captureSnapshot(long sequence) {
+        Path directory = snapshotDirectory;
+        InventorySnapshot mapped = snapshot;
+        if (mapped == null) {
+            if (BINARY_SNAPSHOT) {
+                ByteBuffer content = InventorySnapshot.build(sequence, products.values());
+                return () -> {
+                    InventorySnapshot.write(directory, sequence, content);
+                    deleteOldGenerations(directory, sequence);
+                };
+            }
+            String content = renderSnapshot(sequence);
+            return () -> {
+                writeSnapshot(content);
+                deleteOldGenerations(directory, sequence + 1);
+            };
+        }
+        Map<Integer, Integer> changed = new HashMap<>();
+        for (Product product : materialized.values()) {
+            int row = mapped.find(product.getName());
+            if (row >= 0 && product.getOnHand() != mapped.stock(row)) {
+                changed.put(row, product.getOnHand());
+            }
+        }
+        if (BINARY_SNAPSHOT) {
+            if (sequence == mapped.getSequence()) {
+                // O diário só tinha entradas que o arquivo mapeado já cobre
+                return () -> { };
             }
+            return () -> {
+                mapped.writeUpdated(directory, sequence, changed);
+                deleteOldGenerations(directory, sequence);
+            };
+        }
+        return () -> {
+            writeSnapshot(renderSnapshot(mapped, changed, sequence));
+            deleteOldGenerations(directory, sequence + 1);
+        };
+    }
+
+    /**
+     * Apaga as gerações binárias anteriores à sequência dada. A geração que o inventário
+     * ainda lê pelo mapeamento fica: ela só é apagada numa compactação depois que uma
+     * recarga trocar o mapeamento por outro. Roda na thread do PersistenceWriter, e uma
+     * recarga esvazia a fila antes de trocar o mapeamento, então o campo lido aqui é o atual.
+     */
+    private void deleteOldGenerations(Path directory, long sequence) {
+        InventorySnapshot mapped = snapshot;
+        InventorySnapshot.deleteBefore(directory, sequence, mapped == null ? null : mapped.getPath());
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao compactar o inventário: " + e.getMessage());
         }
     }
 
     /**
-     * Escreve o estado atual do Map de produtos de volta para o arquivo,
-     * sobrescrevendo o conteúdo anterior no formato "nome:estoque:preco".
+     * Monta o conteúdo do snapshot na versão atual do InventoryFile: o cabeçalho, a
+     * sequência do diário que ele cobre e uma linha "nome:estoque:preco" por produto.
      */
-    private void writeInventoryToFile() throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(inventoryFilePath, false))) {
-            for (Product product : products.values()) {
-                bw.write(product.getName() + ":" + product.getStock() + ":" + product.getPrice());
-                bw.newLine();
+    private String renderSnapshot(long sequence) {
+        StringBuilder sb = new StringBuilder(32 * (products.size() + 2));
+        InventoryFile.appendHeader(sb, sequence);
+        for (Product product : products.values()) {
+            InventoryFile.appendProduct(sb, product);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * O mesmo conteúdo, montado a partir do snapshot binário e do estoque que mudou desde ele.
+     */
+    private static String renderSnapshot(InventorySnapshot mapped, Map<Integer, Integer> changed, long sequence) {
+        StringBuilder sb = new StringBuilder(32 * (mapped.size() + 2));
+        InventoryFile.appendHeader(sb, sequence);
+        for (int row = 0; row < mapped.size(); row++) {
+            Integer onHand = changed.get(row);
+            InventoryFile.appendProduct(sb, mapped.name(row), onHand != null ? onHand : mapped.stock(row), mapped.priceCents(row));
+        }
+        return sb.toString();
+    }
+
+    private void writeSnapshot(String content) throws IOException {
+        Path target = inventoryFilePath;
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * O catálogo do snapshot binário, na ordem das linhas. Cada produto vira um Product
+     * (o mesmo que getProduct devolve) só quando é lido.
+     */
+    private final class CatalogView extends AbstractList<Product> implements RandomAccess {
+        private final InventorySnapshot mapped;
+
+        CatalogView(InventorySnapshot mapped) {
+            this.mapped = mapped;
+        }
+
+        @Override
+        public Product get(int index) {
+            if (index < 0 || index >= mapped.size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            String name = mapped.name(index);
+            Product product = materialized.get(name);
+            return product != null ? product : materialize(mapped, name, index);
+        }
+
+        @Override
+        public int size() {
+            return mapped.size();
         }
     }
 }
@@ -0,0 +1,369 @@
+package javacafe.Models;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato do arquivo de inventário (files/inventory.txt) e a leitura dele.
+ *
+ * A versão atual ({@value #VERSION}) começa com um cabeçalho e a sequência do diário
+ * coberta pelo snapshot, seguidos de um produto por linha:
+ * <pre>
+ * #javacafe-inventory v2
+ * #seq=42
+ * capuccino:10:7.50
+ * </pre>
+ * Arquivos antigos, sem cabeçalho, também são lidos: com linhas "nome:estoque:preco" ou só
+ * "nome:estoque" (o formato do arquivo que vem com a aplicação), caso em que o preço fica
+ * zerado até alguém cadastrá-lo. Outras linhas começando com "#" são comentários.
+ *
+ * A leitura é de uma passada só, direto nos bytes de um buffer de tamanho fixo, sem
+ * split, regex ou uma String por linha. As linhas inválidas são ignoradas e relatadas
+ * juntas ao final, em um único aviso.
+ */
+public final class InventoryFile {
+
+    public static final int VERSION = 2;
+    public static final String HEADER = "#javacafe-inventory v" + VERSION;
+    static final String SEQUENCE_HEADER = "#seq=";
+
+    private static final byte[] VERSION_PREFIX = "#javacafe-inventory v".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEQUENCE_PREFIX = SEQUENCE_HEADER.getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Quantas linhas inválidas aparecem no aviso, como exemplo
+    private static final int MAX_SAMPLES = 5;
+    private static final int MAX_SAMPLE_LENGTH = 80;
+
+    private InventoryFile() {
+    }
+
+    /**
+     * O que a leitura encontrou no arquivo.
+     */
+    public static final class Result {
+        private int version;
+        private long sequence;
+        private int products;
+        private int withoutPrice;
+        private int badLines;
+        private final List<String> samples = new ArrayList<>();
+
+        /** @return A versão do cabeçalho, ou 1 para um arquivo antigo sem cabeçalho. */
+        public int getVersion() { return version; }
+        /** @return A última entrada do diário já incluída no snapshot (0 se não houver). */
+        public long getSequence() { return sequence; }
+        /** @return Quantas linhas de produto foram lidas. */
+        public int getProducts() { return products; }
+        /** @return Quantos produtos vieram de linhas antigas "nome:estoque", sem preço. */
+        public int getWithoutPrice() { return withoutPrice; }
+        /** @return Quantas linhas foram ignoradas por estarem mal formatadas. */
+        public int getBadLines() { return badLines; }
+        /** @return Algumas das linhas ignoradas, com o número da linha. */
+        public List<String> getSamples() { return samples; }
+    }
+
+    /**
+     * Lê o arquivo e coloca os produtos no mapa, pelo nome em minúsculas, na ordem do
+     * arquivo. As linhas inválidas são relatadas em um único aviso no System.err.
+     * @throws IOException Se o arquivo não puder ser lido ou for de uma versão mais nova.
+     */
+    public static Result load(Path path, Map<String, Product> products) throws IOException {
+        Parser parser = new Parser(products);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            parser.readAll(channel);
+        }
+        Result result = parser.result;
+        if (result.badLines > 0) {
+            System.err.println("AVISO: " + result.badLines + " linha(s) mal formatada(s) no inventário "
+                    + path + " foram ignoradas. Exemplos: " + String.join("; ", result.samples));
+        }
+        return result;
+    }
+
+    /**
+     * Escreve o cabeçalho da versão atual e a sequência do diário coberta pelo snapshot.
+     * @return O próprio buffer.
+     */
+    static StringBuilder appendHeader(StringBuilder out, long sequence) {
+        return out.append(HEADER).append('\n').append(SEQUENCE_HEADER).append(sequence).append('\n');
+    }
+
+    /**
+     * Escreve a linha de um produto ("nome:estoque:preco"), com o estoque físico.
+     * @return O próprio buffer.
+     */
+    static StringBuilder appendProduct(StringBuilder out, Product product) {
+        return appendProduct(out, product.getName(), product.getOnHand(), product.getPriceCents());
+    }
+
+    static StringBuilder appendProduct(StringBuilder out, String name, int onHand, long priceCents) {
+        out.append(name).append(':').append(onHand).append(':');
+        return Money.appendTo(out, priceCents).append('\n');
+    }
+
+    /**
+     * Lê só o cabeçalho do arquivo.
+     * @return A sequência do diário coberta pelo arquivo (0 se ele não tiver a linha "#seq=").
+     */
+    static long readSequence(Path path) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null && line.startsWith("#")) {
+                if (line.startsWith(SEQUENCE_HEADER)) {
+                    try {
+                        return Long.parseLong(line.substring(SEQUENCE_HEADER.length()).trim());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class Parser {
+        private final Map<String, Product> products;
+        private final Result result = new Result();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        // Nome em minúsculas, montado aqui antes de virar String
+        private byte[] nameBytes = new byte[64];
+        private long lineNumber;
+
+        Parser(Map<String, Product> products) {
+            this.products = products;
+            result.version = 1;
+        }
+
+        void readAll(FileChannel channel) throws IOException {
+            ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+            int end = 0;
+            int scanned = 0;
+            // Uma linha maior que o buffer é descartada até o próximo '\n'
+            boolean skipping = false;
+            boolean first = true;
+            while (true) {
+                wrapper.limit(buffer.length).position(end);
+                int read = channel.read(wrapper);
+                if (read > 0) {
+                    end += read;
+                }
+                int lineStart = 0;
+                if (first && end >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+                    lineStart = 3;
+                    scanned = 3;
+                }
+                first = false;
+                for (int i = scanned; i < end; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    lineNumber++;
+                    if (skipping) {
+                        skipping = false;
+                        bad(lineStart, lineStart);
+                    } else {
+                        parseLine(lineStart, i);
+                    }
+                    lineStart = i + 1;
+                }
+                if (read < 0) {
+                    if (skipping || lineStart < end) {
+                        lineNumber++;
+                        if (skipping) {
+                            bad(lineStart, lineStart);
+                        } else {
+                            parseLine(lineStart, end);
+                        }
+                    }
+                    return;
+                }
+                if (lineStart == 0 && end == buffer.length) {
+                    skipping = true;
+                    end = 0;
+                } else {
+                    System.arraycopy(buffer, lineStart, buffer, 0, end - lineStart);
+                    end -= lineStart;
+                }
+                scanned = end;
+            }
+        }
+
+        private void parseLine(int from, int to) throws IOException {
+            int start = from;
+            int end = to;
+            while (start < end && isBlank(buffer[start])) start++;
+            while (end > start && isBlank(buffer[end - 1])) end--;
+            if (start == end) {
+                return;
+            }
+            if (buffer[start] == '#') {
+                parseHeader(start, end);
+                return;
+            }
+            int firstColon = -1;
+            int secondColon = -1;
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == ':') {
+                    if (firstColon < 0) {
+                        firstColon = i;
+                    } else if (secondColon < 0) {
+                        secondColon = i;
+                    } else {
+                        bad(start, end);
+                        return;
+                    }
+                }
+            }
+            if (firstColon < 0) {
+                bad(start, end);
+                return;
+            }
+            int stockEnd = secondColon < 0 ? end : secondColon;
+            long stock = parseStock(firstColon + 1, stockEnd);
+            long priceCents = 0;
+            if (secondColon >= 0) {
+                try {
+                    priceCents = Money.parse(buffer, secondColon + 1, end);
+                } catch (NumberFormatException e) {
+                    bad(start, end);
+                    return;
+                }
+            }
+            String name = name(start, firstColon);
+            if (stock == Long.MIN_VALUE || name == null) {
+                bad(start, end);
+                return;
+            }
+            products.put(name, new Product(name, (int) stock, priceCents));
+            result.products++;
+            if (secondColon < 0) {
+                result.withoutPrice++;
+            }
+        }
+
+        private void parseHeader(int start, int end) throws IOException {
+            if (startsWith(start, end, SEQUENCE_PREFIX)) {
+                long sequence = parseLong(start + SEQUENCE_PREFIX.length, end);
+                if (sequence < 0) {
+                    bad(start, end);
+                } else {
+                    result.sequence = sequence;
+                }
+            } else if (startsWith(start, end, VERSION_PREFIX)) {
+                long version = parseLong(start + VERSION_PREFIX.length, end);
+                if (version <= 0) {
+                    bad(start, end);
+                } else if (version > VERSION) {
+                    throw new UnsupportedVersionException(version);
+                } else {
+                    result.version = (int) version;
+                }
+            }
+            // Qualquer outra linha com "#" é um comentário
+        }
+
+        /**
+         * @return O estoque (pode ser negativo), ou Long.MIN_VALUE se não for um inteiro de 32 bits.
+         */
+        private long parseStock(int from, int to) {
+            int start = from;
+            int end = to;
+            while (start < end && isBlank(buffer[start])) start++;
+            while (end > start && isBlank(buffer[end - 1])) end--;
+            boolean negative = start < end && buffer[start] == '-';
+            long value = parseLong(negative ? start + 1 : start, end);
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                return Long.MIN_VALUE;
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * @return O número formado só por dígitos, ou -1 se houver outra coisa ou for grande demais.
+         */
+        private long parseLong(int from, int to) {
+            if (from >= to || to - from > 18) {
+                return -1;
+            }
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = buffer[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         * @return O nome sem espaços nas pontas e em minúsculas, ou null se estiver vazio.
+         */
+        private String name(int from, int to) {
+            int end = to;
+            while (end > from && isBlank(buffer[end - 1])) end--;
+            int length = end - from;
+            if (length == 0) {
+                return null;
+            }
+            if (nameBytes.length < length) {
+                nameBytes = new byte[Math.max(length, nameBytes.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[from + i];
+                if (b < 0) {
+                    // Fora do ASCII: decodifica o UTF-8 e deixa o Java baixar as letras
+                    return new String(buffer, from, length, StandardCharsets.UTF_8).toLowerCase();
+                }
+                nameBytes[i] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+            }
+            return new String(nameBytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        private boolean startsWith(int start, int end, byte[] prefix) {
+            if (end - start < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buffer[start + i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void bad(int start, int end) {
+            result.badLines++;
+            if (result.samples.size() < MAX_SAMPLES) {
+                String text = end > start
+                        ? new String(buffer, start, Math.min(end - start, MAX_SAMPLE_LENGTH), StandardCharsets.UTF_8)
+                        : "(linha longa demais)";
+                result.samples.add("linha " + lineNumber + ": \"" + text + "\"");
+            }
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+    }
+
+    /**
+     * O arquivo foi gravado por uma versão mais nova da aplicação.
+     */
+    public static final class UnsupportedVersionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedVersionException(long version) {
+            super("Versão do arquivo de inventário não suportada: v" + version + " (esta aplicação lê até v" + VERSION + ")");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package javacafe.Models;
+
+import javacafe.backend_files.Metrics;
+import javacafe.backend_files.PersistenceWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Diário (write-ahead log) das alterações de estoque.
+ * Cada alteração é gravada como uma linha "sequencia:nome:delta" no final do arquivo,
+ * então o custo de um clique não depende do tamanho do catálogo.
+ * O arquivo de inventário passa a ser apenas um snapshot, reescrito de tempos em tempos
+ * pela compactação, e o diário é reaplicado sobre ele na inicialização.
+ * As gravações passam pelo PersistenceWriter, fora da thread da interface.
+ */
+class InventoryJournal {
+
+    private final Path journalPath;
+    private final Path rotatedPath;
+    private final PersistenceWriter writer = PersistenceWriter.get();
+    private long lastSequence;
+    private int pendingEntries;
+
+    InventoryJournal(Path journalPath) {
+        this.journalPath = journalPath;
+        this.rotatedPath = journalPath.resolveSibling(journalPath.getFileName() + ".1");
+    }
+
+    /**
+     * Reaplica sobre os produtos as entradas do diário com sequência maior que a do snapshot.
+     * Primeiro o diário rotacionado (de uma compactação interrompida), depois o atual.
+     * Uma última linha incompleta, deixada por uma queda de energia, é ignorada.
+     * @param products Busca o produto carregado do snapshot pelo nome (null se não existir).
+     * @param snapshotSequence A última sequência já incluída no snapshot.
+     */
+    void replay(Function<String, Product> products, long snapshotSequence) throws IOException {
+        lastSequence = snapshotSequence;
+        pendingEntries = 0;
+        replayFile(rotatedPath, products, snapshotSequence);
+        replayFile(journalPath, products, snapshotSequence);
+    }
+
+    private void replayFile(Path path, Function<String, Product> products, long snapshotSequence) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        long begin = Metrics.begin();
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int first = line.indexOf(':');
+                int last = line.lastIndexOf(':');
+                if (first <= 0 || last <= first) {
+                    continue;
+                }
+                long sequence;
+                int delta;
+                try {
+                    sequence = Long.parseLong(line.substring(0, first));
+                    delta = Integer.parseInt(line.substring(last + 1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                pendingEntries++;
+                if (sequence <= snapshotSequence) {
+                    continue;
+                }
+                Product product = products.apply(line.substring(first + 1, last));
+                if (product != null) {
+                    product.updateStock(delta);
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+        }
+        Metrics.fileRead(path, Files.size(path), begin);
+    }
+
+    /**
+     * Entrega ao PersistenceWriter uma alteração de estoque para o final do diário.
+     * @return A sequência atribuída à entrada.
+     */
+    long append(String productName, int delta) {
+        long sequence = ++lastSequence;
+        byte[] line = (sequence + ":" + productName + ":" + delta + "\n").getBytes(StandardCharsets.UTF_8);
+        writer.append(journalPath, line);
+        pendingEntries++;
+        return sequence;
+    }
+
+    /**
+     * Entrega várias alterações de uma vez, como uma única gravação no final do diário.
+     * @param deltas Nome do produto e a alteração de estoque.
+     */
+    void appendAll(Map<String, Integer> deltas) {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            long sequence = ++lastSequence;
+            lines.append(sequence).append(':').append(delta.getKey()).append(':').append(delta.getValue()).append('\n');
+            pendingEntries++;
+        }
+        writer.append(journalPath, lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Marca que as entradas até agora serão cobertas pelo próximo snapshot.
+     * @return A última sequência que o snapshot deve cobrir.
+     */
+    long markCompacted() {
+        pendingEntries = 0;
+        return lastSequence;
+    }
+
+    /**
+     * Move o diário atual para o arquivo rotacionado, para que novas entradas
+     * sigam para um diário vazio enquanto o snapshot é gravado.
+     * Deve rodar na thread do PersistenceWriter, depois das entradas que o snapshot cobre.
+     */
+    void rotateFiles() throws IOException {
+        if (Files.exists(journalPath)) {
+            if (Files.exists(rotatedPath)) {
+                // Uma compactação anterior falhou: junta as entradas para não perder nenhuma.
+                Files.write(rotatedPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+                Files.delete(journalPath);
+            } else {
+                Files.move(journalPath, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    /**
+     * Descarta o diário rotacionado, depois que o snapshot que o cobre foi gravado.
+     */
+    void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    /**
+     * @return Quantas entradas estão no diário atual desde a última compactação.
+     */
+    int pendingEntries() {
+        return pendingEntries;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+}
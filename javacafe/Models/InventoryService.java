@@ -0,0 +1,40 @@
+package javacafe.Models;
+
+import javacafe.backend_files.CafePartition;
+
+import java.io.IOException;
+
+/**
+ * Ponto de acesso único ao inventário da aplicação.
+ * O inventário é o da partição do café atual (CafePartition): o arquivo é lido apenas na
+ * primeira chamada a {@link #get()} (ou em um {@link #reload()} explícito), e todas as telas
+ * passam a compartilhar o mesmo mapa de produtos em memória.
+ */
+public final class InventoryService {
+
+    private InventoryService() {
+    }
+
+    /**
+     * Retorna o inventário compartilhado, carregando-o do disco na primeira chamada.
+     * @return O inventário da partição atual.
+     * @throws IOException Se houver um erro de leitura do arquivo.
+     */
+    public static Inventory get() throws IOException {
+        return CafePartition.current().inventory();
+    }
+
+    /**
+     * Relê o arquivo de inventário, descartando o estado em memória.
+     * A mesma instância é mantida, então as telas abertas enxergam os novos valores.
+     * @return O inventário da partição atual, já recarregado.
+     * @throws IOException Se houver um erro de leitura do arquivo.
+     */
+    public static Inventory reload() throws IOException {
+        Inventory inventory = get();
+        synchronized (InventoryService.class) {
+            inventory.reload();
+        }
+        return inventory;
+    }
+}
@@ -0,0 +1,379 @@
+package javacafe.Models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Snapshot binário do inventário, lido por mapeamento de memória em vez de ser interpretado.
+ *
+ * O arquivo tem um cabeçalho, uma tabela de produtos com colunas de largura fixa, um índice
+ * de espalhamento do nome para a linha e os nomes em UTF-8, cada um guardado uma vez:
+ * <pre>
+ * cabeçalho (32 bytes): "JCIN", versão, sequência do diário, produtos, posições do índice, bytes dos nomes
+ * linhas (24 bytes):    início do nome, tamanho do nome, hashCode do nome, estoque físico, preço em centavos
+ * índice (4 bytes):     linha + 1, ou 0 para uma posição vazia (sondagem linear)
+ * nomes:                os bytes dos nomes, um depois do outro
+ * </pre>
+ * Abrir o arquivo só confere o cabeçalho; um produto é lido quando é procurado, então o
+ * tempo de abertura e a memória usada quase não dependem do tamanho do catálogo.
+ *
+ * Cada snapshot é uma geração nova ("inventory-SEQ.bin", com a sequência do diário que ele
+ * cobre), e nunca substitui o arquivo que está mapeado: no Windows um arquivo mapeado não
+ * pode ser trocado nem apagado. As gerações antigas são apagadas quando possível.
+ */
+public final class InventorySnapshot {
+
+    static final String FILE_PREFIX = "inventory-";
+    static final String FILE_SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x4E49434A; // "JCIN" em little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ROW_SIZE = 24;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int STOCK_OFFSET = 12;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final long sequence;
+    private final int count;
+    private final int slots;
+    private final int indexOffset;
+    private final int namesOffset;
+
+    private InventorySnapshot(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Não é um snapshot de inventário: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Versão do snapshot de inventário não suportada: " + buffer.getInt(4) + " em " + path);
+        }
+        this.sequence = buffer.getLong(SEQUENCE_OFFSET);
+        this.count = buffer.getInt(16);
+        this.slots = buffer.getInt(20);
+        int namesLength = buffer.getInt(24);
+        long index = HEADER_SIZE + (long) count * ROW_SIZE;
+        long names = index + 4L * slots;
+        if (count < 0 || slots <= count || Integer.bitCount(slots) != 1 || namesLength < 0
+                || names + namesLength != buffer.capacity()) {
+            throw new IOException("Snapshot de inventário corrompido: " + path);
+        }
+        this.indexOffset = (int) index;
+        this.namesOffset = (int) names;
+    }
+
+    /**
+     * Mapeia o snapshot (só leitura) e confere o cabeçalho.
+     * @throws IOException Se o arquivo não puder ser lido ou não for um snapshot válido.
+     */
+    public static InventorySnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot de inventário grande demais: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new InventorySnapshot(path, mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /** @return A última entrada do diário incluída no snapshot. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** @return Quantos produtos o snapshot tem. */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Procura o produto pelo nome, já em minúsculas.
+     * @return A linha do produto, ou -1 se ele não estiver no snapshot.
+     */
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = slots - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(indexOffset + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            if (buffer.getInt(rowOffset(row) + 8) == hash && nameEquals(row, name)) {
+                return row;
+            }
+        }
+    }
+
+    public String name(int row) {
+        return new String(nameBytes(row), StandardCharsets.UTF_8);
+    }
+
+    /** @return O estoque físico do produto quando o snapshot foi gravado. */
+    public int stock(int row) {
+        return buffer.getInt(rowOffset(row) + STOCK_OFFSET);
+    }
+
+    public long priceCents(int row) {
+        return buffer.getLong(rowOffset(row) + 16);
+    }
+
+    /**
+     * @return Os nomes de todos os produtos, na ordem das linhas; cada nome só é lido quando pedido.
+     */
+    public List<String> names() {
+        return new NameList();
+    }
+
+    private byte[] nameBytes(int row) {
+        int offset = rowOffset(row);
+        byte[] bytes = new byte[buffer.getInt(offset + 4)];
+        buffer.get(namesOffset + buffer.getInt(offset), bytes);
+        return bytes;
+    }
+
+    private boolean nameEquals(int row, String name) {
+        int offset = rowOffset(row);
+        int start = namesOffset + buffer.getInt(offset);
+        int length = buffer.getInt(offset + 4);
+        if (length != name.length()) {
+            // Um nome com acentos tem mais bytes que caracteres
+            return length > name.length() && slowNameEquals(start, length, name);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                return slowNameEquals(start, length, name);
+            }
+            if (buffer.get(start + i) != (byte) c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean slowNameEquals(int start, int length, String name) {
+        byte[] expected = name.getBytes(StandardCharsets.UTF_8);
+        if (expected.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int rowOffset(int row) {
+        return HEADER_SIZE + row * ROW_SIZE;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class NameList extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return name(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    // --- Gravação ---
+
+    /**
+     * Monta um snapshot completo em memória, com os produtos na ordem dada (nomes já em minúsculas).
+     */
+    public static ByteBuffer build(long sequence, Collection<Product> products) {
+        int count = products.size();
+        int slots = tableSize(count);
+        byte[][] names = new byte[count][];
+        long namesLength = 0;
+        int i = 0;
+        for (Product product : products) {
+            names[i] = product.getName().getBytes(StandardCharsets.UTF_8);
+            namesLength += names[i].length;
+            i++;
+        }
+        long indexOffset = HEADER_SIZE + (long) count * ROW_SIZE;
+        long namesOffset = indexOffset + 4L * slots;
+        if (namesOffset + namesLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catálogo grande demais para um snapshot binário: " + count + " produtos");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) (namesOffset + namesLength)).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putLong(SEQUENCE_OFFSET, sequence)
+                .putInt(16, count).putInt(20, slots).putInt(24, (int) namesLength);
+        int nameOffset = 0;
+        int mask = slots - 1;
+        i = 0;
+        for (Product product : products) {
+            int row = rowOffset(i);
+            int hash = product.getName().hashCode();
+            out.putInt(row, nameOffset).putInt(row + 4, names[i].length).putInt(row + 8, hash)
+                    .putInt(row + STOCK_OFFSET, product.getOnHand()).putLong(row + 16, product.getPriceCents());
+            out.put((int) namesOffset + nameOffset, names[i]);
+            nameOffset += names[i].length;
+            int slot = spread(hash) & mask;
+            while (out.getInt((int) indexOffset + 4 * slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            out.putInt((int) indexOffset + 4 * slot, i + 1);
+            i++;
+        }
+        return out;
+    }
+
+    /**
+     * Grava o snapshot montado por {@link #build} como uma geração nova na pasta.
+     * @return O arquivo gravado.
+     */
+    public static Path write(Path directory, long sequence, ByteBuffer content) throws IOException {
+        Path target = pathFor(directory, sequence);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, content.duplicate().clear(), 0);
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /**
+     * Grava uma geração nova com os mesmos produtos deste snapshot e o estoque físico
+     * trocado nas linhas dadas. Como nomes, preços e índice não mudam, o arquivo é copiado
+     * do mapeamento e só as colunas alteradas são reescritas.
+     * @param onHandByRow O estoque físico atual, por linha, dos produtos que mudaram.
+     * @return O arquivo gravado.
+     */
+    public Path writeUpdated(Path directory, long newSequence, Map<Integer, Integer> onHandByRow) throws IOException {
+        Path target = pathFor(directory, newSequence);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, buffer.duplicate().clear(), 0);
+            ByteBuffer value = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            writeFully(out, value.putLong(0, newSequence).clear(), SEQUENCE_OFFSET);
+            for (Map.Entry<Integer, Integer> row : onHandByRow.entrySet()) {
+                writeFully(out, value.putInt(0, row.getValue()).clear().limit(4), rowOffset(row.getKey()) + STOCK_OFFSET);
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer content, long position) throws IOException {
+        while (content.hasRemaining()) {
+            position += out.write(content, position);
+        }
+    }
+
+    private static int tableSize(int count) {
+        // No máximo metade das posições ocupadas, para as sondagens serem curtas
+        int slots = 16;
+        while (slots < 2L * count) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    // --- Gerações ---
+
+    static Path pathFor(Path directory, long sequence) {
+        return directory.resolve(FILE_PREFIX + sequence + FILE_SUFFIX);
+    }
+
+    /**
+     * @return A sequência da geração pelo nome do arquivo, ou -1 se não for um snapshot.
+     */
+    static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return A geração mais nova na pasta, ou null se não houver nenhuma.
+     */
+    static Path latest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Path latest = null;
+        long latestSequence = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                long fileSequence = sequenceOf(file);
+                if (fileSequence > latestSequence) {
+                    latest = file;
+                    latestSequence = fileSequence;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Apaga as gerações com sequência menor que a dada, menos a que ainda está mapeada.
+     * Uma geração que não puder ser apagada agora (mapeada por uma lista antiga, no
+     * Windows) fica para a próxima vez.
+     * @param live A geração mapeada pelo inventário, ou null se nenhuma estiver.
+     */
+    static void deleteBefore(Path directory, long sequence, Path live) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                long fileSequence = sequenceOf(file);
+                if (fileSequence >= 0 && fileSequence < sequence
+                        && (live == null || !file.getFileName().equals(live.getFileName()))) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Ainda em uso; será apagada na próxima compactação.
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao apagar snapshots antigos do inventário: " + e.getMessage());
+        }
+    }
+}
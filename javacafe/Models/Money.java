@@ -0,0 +1,153 @@
+package javacafe.Models;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Dinheiro em ponto fixo: todos os valores são {@code long} em centavos.
+ * Não há objeto Money; as operações são métodos estáticos sobre primitivos, então somar
+ * centenas de milhares de linhas no fechamento do dia é exato e não aloca nada.
+ * As operações lançam ArithmeticException em caso de estouro, em vez de dar a volta.
+ */
+public final class Money {
+
+    public static final long ZERO = 0;
+
+    private Money() {
+    }
+
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+
+    /**
+     * @return O valor de uma quantidade de unidades (preço unitário x quantidade).
+     */
+    public static long multiply(long unitCents, int quantity) {
+        return Math.multiplyExact(unitCents, (long) quantity);
+    }
+
+    /**
+     * Aplica uma taxa em pontos-base (1/100 de 1%: 1000 = 10%), arredondando metade para cima
+     * (longe do zero), como nos impostos e descontos de recibo.
+     * @param cents O valor base.
+     * @param basisPoints A taxa; 1000 = 10%.
+     * @return A parcela do valor correspondente à taxa, em centavos.
+     */
+    public static long percent(long cents, int basisPoints) {
+        long scaled = Math.multiplyExact(cents, (long) basisPoints);
+        long quotient = scaled / 10_000;
+        long remainder = scaled % 10_000;
+        if (Math.abs(remainder) * 2 >= 10_000) {
+            quotient += Long.signum(scaled);
+        }
+        return quotient;
+    }
+
+    /**
+     * Lê um valor escrito com até duas casas decimais ("7", "7.5", "7,50", "R$ 7.50", "-1.05"),
+     * sem passar por double.
+     * @throws NumberFormatException Se o texto não for um valor válido.
+     */
+    public static long parse(String text) {
+        String value = text.trim();
+        if (value.startsWith("R$")) {
+            value = value.substring(2).trim();
+        }
+        boolean negative = value.startsWith("-");
+        if (negative) {
+            value = value.substring(1);
+        }
+        int separator = Math.max(value.indexOf('.'), value.indexOf(','));
+        String whole = separator < 0 ? value : value.substring(0, separator);
+        String fraction = separator < 0 ? "" : value.substring(separator + 1);
+        if (whole.isEmpty() && fraction.isEmpty() || fraction.length() > 2 || !digits(whole) || !digits(fraction)) {
+            throw new NumberFormatException("Valor em dinheiro inválido: " + text);
+        }
+        long cents = whole.isEmpty() ? 0 : Math.multiplyExact(Long.parseLong(whole), 100L);
+        if (fraction.length() == 1) {
+            cents += (fraction.charAt(0) - '0') * 10;
+        } else if (fraction.length() == 2) {
+            cents += (fraction.charAt(0) - '0') * 10 + (fraction.charAt(1) - '0');
+        }
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Lê um valor dos bytes ASCII text[from, to), com as mesmas regras de {@link #parse(String)},
+     * sem criar uma String (usado na leitura do arquivo de inventário).
+     * @throws NumberFormatException Se o texto não for um valor válido.
+     */
+    public static long parse(byte[] text, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && text[start] == ' ') start++;
+        while (end > start && text[end - 1] == ' ') end--;
+        if (end - start >= 2 && text[start] == 'R' && text[start + 1] == '$') {
+            start += 2;
+            while (start < end && text[start] == ' ') start++;
+        }
+        boolean negative = start < end && text[start] == '-';
+        if (negative) {
+            start++;
+        }
+        long whole = 0;
+        int wholeDigits = 0;
+        int i = start;
+        for (; i < end && text[i] != '.' && text[i] != ','; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Valor em dinheiro inválido: " + new String(text, from, to - from, StandardCharsets.UTF_8));
+            }
+            whole = Math.addExact(Math.multiplyExact(whole, 10L), digit);
+            wholeDigits++;
+        }
+        int fractionDigits = i < end ? end - i - 1 : 0;
+        long fraction = 0;
+        for (int j = i + 1; j < end; j++) {
+            int digit = text[j] - '0';
+            if (digit < 0 || digit > 9 || fractionDigits > 2) {
+                throw new NumberFormatException("Valor em dinheiro inválido: " + new String(text, from, to - from, StandardCharsets.UTF_8));
+            }
+            fraction = fraction * 10 + digit;
+        }
+        if (wholeDigits == 0 && fractionDigits == 0) {
+            throw new NumberFormatException("Valor em dinheiro inválido: " + new String(text, from, to - from, StandardCharsets.UTF_8));
+        }
+        long cents = Math.addExact(Math.multiplyExact(whole, 100L), fractionDigits == 1 ? fraction * 10 : fraction);
+        return negative ? -cents : cents;
+    }
+
+    private static boolean digits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return O valor como texto, ex.: 1234 -> "12.34".
+     */
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(12), cents).toString();
+    }
+
+    /**
+     * Escreve o valor direto no buffer ("12.34"), sem criar textos intermediários.
+     * @return O próprio buffer.
+     */
+    public static StringBuilder appendTo(StringBuilder out, long cents) {
+        long whole = cents / 100;
+        int fraction = (int) Math.abs(cents % 100);
+        if (cents < 0 && whole == 0) {
+            out.append('-');
+        }
+        return out.append(whole).append('.')
+                .append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+}
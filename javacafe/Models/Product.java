@@ -1,21 +1,142 @@
 package javacafe.Models;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 public class Product {
+    private static final VarHandle STOCK_STATE;
+
+    static {
+        try {
+            STOCK_STATE = MethodHandles.lookup().findVarHandle(Product.class, "stockState", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String name;
-    private int stock;
-    private final double price; 
+    // Estoque físico (32 bits altos) e unidades reservadas em carrinhos abertos (32 bits baixos),
+    // guardados juntos para que reservar, liberar e confirmar sejam um único compareAndSet.
+    // É um campo com VarHandle, e não um AtomicLong, para não criar um objeto a mais por
+    // produto (um catálogo de um milhão de produtos é carregado de uma vez).
+    private volatile long stockState;
+    // Preço unitário em centavos (ver Money)
+    private final long priceCents;
 
-    public Product(String name, int initialStock, double price) { 
+    public Product(String name, int initialStock, long priceCents) { 
         this.name = name;
-        this.stock = initialStock;
-        this.price = price; 
+        this.stockState = pack(initialStock, 0);
+        this.priceCents = priceCents; 
     }
 
     public String getName() { return name; }
-    public int getStock() { return stock; }
-    public double getPrice() { return price; } 
+    public long getPriceCents() { return priceCents; } 
+
+    /**
+     * @return O estoque disponível para venda (físico menos o que está reservado).
+     */
+    public int getStock() {
+        long state = stockState;
+        return onHand(state) - reserved(state);
+    }
 
+    /**
+     * @return O estoque físico, incluindo as unidades reservadas ainda não vendidas.
+     */
+    public int getOnHand() { return onHand(stockState); }
+
+    public int getReserved() { return reserved(stockState); }
+
+    /**
+     * Altera o estoque físico sem nenhuma verificação (usado ao reaplicar o diário).
+     */
     public void updateStock(int amount) {
-        this.stock += amount;
+        long state;
+        do {
+            state = stockState;
+        } while (!STOCK_STATE.compareAndSet(this, state, pack(onHand(state) + amount, reserved(state))));
+    }
+
+    /**
+     * Altera o estoque físico, desde que ele não fique abaixo do que já está reservado.
+     * @return true se a alteração foi aplicada.
+     */
+    public boolean tryUpdateStock(int amount) {
+        long state;
+        int newOnHand;
+        do {
+            state = stockState;
+            newOnHand = onHand(state) + amount;
+            if (newOnHand < reserved(state)) {
+                return false;
+            }
+        } while (!STOCK_STATE.compareAndSet(this, state, pack(newOnHand, reserved(state))));
+        return true;
+    }
+
+    /**
+     * Reserva unidades para um carrinho, se houver estoque disponível.
+     * @return true se a reserva foi feita; o estoque disponível nunca fica negativo.
+     */
+    public boolean reserve(int quantity) {
+        long state;
+        do {
+            state = stockState;
+            if (onHand(state) - reserved(state) < quantity) {
+                return false;
+            }
+        } while (!STOCK_STATE.compareAndSet(this, state, pack(onHand(state), reserved(state) + quantity)));
+        return true;
+    }
+
+    /**
+     * Devolve unidades reservadas ao estoque disponível.
+     * @return false se não havia tantas unidades reservadas (nada é alterado): uma
+     * liberação em dobro é um erro de quem chamou, e não é escondida.
+     */
+    public boolean release(int quantity) {
+        long state;
+        do {
+            state = stockState;
+            if (reserved(state) < quantity) {
+                return false;
+            }
+        } while (!STOCK_STATE.compareAndSet(this, state, pack(onHand(state), reserved(state) - quantity)));
+        return true;
     }
+
+    /**
+     * Confirma a venda de unidades reservadas, tirando-as do estoque físico.
+     * @return false se não havia tantas unidades reservadas.
+     */
+    public boolean commit(int quantity) {
+        long state;
+        do {
+            state = stockState;
+            if (reserved(state) < quantity) {
+                return false;
+            }
+        } while (!STOCK_STATE.compareAndSet(this, state,
+                pack(onHand(state) - quantity, reserved(state) - quantity)));
+        return true;
+    }
+
+    /**
+     * Desfaz um {@link #commit}: as unidades voltam ao estoque físico, ainda reservadas.
+     */
+    void undoCommit(int quantity) {
+        long state;
+        do {
+            state = stockState;
+        } while (!STOCK_STATE.compareAndSet(this, state,
+                pack(onHand(state) + quantity, reserved(state) + quantity)));
+    }
+
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int onHand(long state) { return (int) (state >> 32); }
+
+    private static int reserved(long state) { return (int) state; }
 }
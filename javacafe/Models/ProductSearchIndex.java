@@ -0,0 +1,519 @@
+package javacafe.Models;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de busca dos produtos, para a busca enquanto o operador digita.
+ *
+ * Cada produto entra com o nome e os apelidos (files/product_aliases.txt), sem acentos e em
+ * minúsculas. Nomes e apelidos, inteiros e palavra por palavra, ficam em uma árvore de
+ * prefixos: "cap" encontra "capuccino" e "leite" encontra "cafe com leite". Quando os
+ * prefixos não dão resultados suficientes, a busca aproximada compara os trigramas do texto
+ * digitado com os dos nomes, então "capucino" ou "late" ainda encontram o produto.
+ *
+ * Os resultados vêm nesta ordem: o nome começa com o texto, alguma palavra ou apelido começa
+ * com ele, e por último os aproximados (pela semelhança). Dentro de cada grupo, os produtos
+ * mais vendidos recentemente vêm primeiro: cada venda conta menos à medida que envelhece,
+ * com meia-vida de {@link #HALF_LIFE_DAYS} dias.
+ *
+ * O índice é atualizado produto a produto ({@link #sync}), sem ser refeito quando o catálogo
+ * muda. Produtos removidos só são marcados; o índice é refeito quando os removidos passam a
+ * ser a maioria. Todos os métodos são sincronizados; a busca só visita os produtos que
+ * combinam com o texto, nunca o catálogo inteiro.
+ */
+public final class ProductSearchIndex {
+
+    public static final String ALIASES_FILE = "files/product_aliases.txt";
+    public static final int HALF_LIFE_DAYS = 7;
+
+    private static final double HALF_LIFE_MS = HALF_LIFE_DAYS * 24.0 * 60 * 60 * 1000;
+    private static final double MIN_SIMILARITY = 0.5;
+    private static final double NAME_PREFIX = 3.0;
+    private static final double WORD_PREFIX = 2.0;
+    private static final int REBUILD_MIN_REMOVED = 1024;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    // Entradas por número; o número de um produto não muda enquanto ele estiver no índice
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> normalizedNames = new ArrayList<>();
+    private final List<List<String>> aliases = new ArrayList<>();
+    private boolean[] alive = new boolean[64];
+    private double[] popularity = new double[64];
+    private int aliveCount;
+
+    private Node root = new Node();
+    private Map<Long, IntList> grams = new HashMap<>();
+    // As vendas são somadas na escala deste momento, e os pesos crescem com o tempo
+    private final long epoch = System.currentTimeMillis();
+
+    // Memória de trabalho da busca, reaproveitada entre as chamadas
+    private int[] seenStamp = new int[64];
+    private int[] wordStamp = new int[64];
+    private int[] hits = new int[64];
+    private int stamp;
+    private final IntList touched = new IntList();
+
+    /**
+     * Deixa o índice com exatamente os produtos dados: os novos entram, os que sumiram saem
+     * e os que mudaram de apelidos são reindexados. Os que não mudaram não são tocados.
+     * @param productNames Os nomes dos produtos do catálogo.
+     * @param productAliases Os apelidos de cada produto (produtos sem apelido podem faltar).
+     */
+    public synchronized void sync(Collection<String> productNames, Map<String, List<String>> productAliases) {
+        Set<String> current = new HashSet<>(productNames);
+        for (String name : new ArrayList<>(ids.keySet())) {
+            if (!current.contains(name)) {
+                remove(name);
+            }
+        }
+        for (String name : productNames) {
+            add(name, productAliases.getOrDefault(name, Collections.emptyList()));
+        }
+        if (names.size() - aliveCount >= REBUILD_MIN_REMOVED && names.size() - aliveCount > aliveCount) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Coloca o produto no índice (ou atualiza os apelidos dele).
+     */
+    public synchronized void add(String name, List<String> productAliases) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            if (alive[existing] && aliases.get(existing).equals(productAliases)) {
+                return;
+            }
+            remove(name);
+        }
+        int id = names.size();
+        ensureCapacity(id + 1);
+        names.add(name);
+        normalizedNames.add(normalize(name));
+        aliases.add(new ArrayList<>(productAliases));
+        if (existing != null) {
+            // Quem volta ao catálogo mantém as vendas que já tinha
+            popularity[id] = popularity[existing];
+        }
+        ids.put(name, id);
+        alive[id] = true;
+        aliveCount++;
+        index(id);
+    }
+
+    /**
+     * Tira o produto dos resultados. As entradas dele na árvore e nos trigramas ficam até a
+     * próxima reconstrução, mas são ignoradas.
+     */
+    public synchronized void remove(String name) {
+        Integer id = ids.get(name);
+        if (id != null && alive[id]) {
+            alive[id] = false;
+            aliveCount--;
+        }
+    }
+
+    /**
+     * @return Quantos produtos estão no índice.
+     */
+    public synchronized int size() {
+        return aliveCount;
+    }
+
+    /**
+     * Soma as vendas dos últimos dias, vindas das tabelas de totais, como ponto de partida.
+     * Elas contam como vendas de meia-vida atrás.
+     * @param unitsByProduct Unidades vendidas por produto.
+     */
+    public synchronized void seedPopularity(Map<String, Long> unitsByProduct) {
+        double weight = weight(epoch - (long) HALF_LIFE_MS);
+        for (Map.Entry<String, Long> entry : unitsByProduct.entrySet()) {
+            Integer id = ids.get(entry.getKey());
+            if (id != null) {
+                popularity[id] += entry.getValue() * weight;
+            }
+        }
+    }
+
+    /**
+     * Registra uma venda, que passa a pesar na ordem dos resultados.
+     */
+    public synchronized void recordSale(String name, int quantity, long timestamp) {
+        Integer id = ids.get(name);
+        if (id != null && quantity > 0) {
+            popularity[id] += quantity * weight(timestamp);
+        }
+    }
+
+    /**
+     * Busca os produtos que combinam com o texto digitado.
+     * Com várias palavras, cada uma precisa ser o começo do nome, de uma palavra do nome ou
+     * de um apelido.
+     * @param query O texto digitado.
+     * @param limit Quantos resultados, no máximo.
+     * @return Os nomes dos produtos, do melhor para o pior.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String[] words = SPACES.split(normalized);
+        touched.clear();
+        int queryStamp = ++stamp;
+        for (String word : words) {
+            int current = ++stamp;
+            collectPrefix(word, queryStamp, current);
+        }
+
+        PriorityQueue<Result> best = new PriorityQueue<>(limit + 1);
+        int matched = 0;
+        for (int i = 0; i < touched.size; i++) {
+            int id = touched.values[i];
+            if (hits[id] == words.length) {
+                double score = normalizedNames.get(id).startsWith(normalized) ? NAME_PREFIX : WORD_PREFIX;
+                offer(best, limit, id, score);
+                matched++;
+            }
+        }
+        if (matched < limit && normalized.length() >= 3) {
+            collectFuzzy(normalized, best, limit, queryStamp, words.length);
+        }
+
+        String[] ordered = new String[best.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            ordered[i] = names.get(best.poll().id);
+        }
+        return Arrays.asList(ordered);
+    }
+
+    /**
+     * Marca os produtos com algum termo que começa com a palavra.
+     * Cada produto conta uma vez por palavra, mesmo que vários termos dele combinem.
+     */
+    private void collectPrefix(String word, int queryStamp, int currentWord) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(word.charAt(i));
+        }
+        if (node == null) {
+            return;
+        }
+        List<Node> stack = new ArrayList<>();
+        stack.add(node);
+        while (!stack.isEmpty()) {
+            Node next = stack.remove(stack.size() - 1);
+            for (int i = 0; i < next.idCount; i++) {
+                int id = next.ids[i];
+                if (!alive[id] || wordStamp[id] == currentWord) {
+                    continue;
+                }
+                wordStamp[id] = currentWord;
+                if (seenStamp[id] != queryStamp) {
+                    seenStamp[id] = queryStamp;
+                    hits[id] = 0;
+                    touched.add(id);
+                }
+                hits[id]++;
+            }
+            for (int i = 0; i < next.childCount; i++) {
+                stack.add(next.children[i]);
+            }
+        }
+    }
+
+    /**
+     * Busca aproximada: a semelhança é a fração dos trigramas do texto digitado que aparecem
+     * no nome ou nos apelidos do produto (o texto é curto e o nome pode ser longo, então o
+     * tamanho do nome não conta). Os produtos que já entraram pelos prefixos não são repetidos.
+     */
+    private void collectFuzzy(String normalized, PriorityQueue<Result> best, int limit, int queryStamp, int words) {
+        Set<Long> queryGrams = new HashSet<>();
+        addGrams(normalized, queryGrams);
+        int fuzzyStamp = ++stamp;
+        touched.clear();
+        for (long gram : queryGrams) {
+            IntList posting = grams.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int i = 0; i < posting.size; i++) {
+                int id = posting.values[i];
+                if (!alive[id] || (seenStamp[id] == queryStamp && hits[id] == words)) {
+                    continue;
+                }
+                if (wordStamp[id] != fuzzyStamp) {
+                    wordStamp[id] = fuzzyStamp;
+                    seenStamp[id] = 0;
+                    hits[id] = 0;
+                    touched.add(id);
+                }
+                hits[id]++;
+            }
+        }
+        for (int i = 0; i < touched.size; i++) {
+            int id = touched.values[i];
+            double similarity = (double) hits[id] / queryGrams.size();
+            if (similarity >= MIN_SIMILARITY) {
+                // Arredondada, para que as vendas desempatem semelhanças parecidas
+                offer(best, limit, id, Math.round(similarity * 10) / 10.0);
+            }
+        }
+    }
+
+    private void offer(PriorityQueue<Result> best, int limit, int id, double score) {
+        if (best.size() < limit) {
+            best.add(new Result(id, score, popularity[id], names.get(id)));
+        } else if (Result.compare(score, popularity[id], names.get(id), best.peek()) > 0) {
+            // O objeto só é criado para quem entra na fila
+            best.poll();
+            best.add(new Result(id, score, popularity[id], names.get(id)));
+        }
+    }
+
+    private void index(int id) {
+        Set<String> terms = new LinkedHashSet<>();
+        addTerms(normalizedNames.get(id), terms);
+        for (String alias : aliases.get(id)) {
+            addTerms(normalize(alias), terms);
+        }
+        for (String term : terms) {
+            root.insert(term).addId(id);
+        }
+        Set<Long> entryGrams = new HashSet<>();
+        addGrams(normalizedNames.get(id), entryGrams);
+        for (String alias : aliases.get(id)) {
+            addGrams(normalize(alias), entryGrams);
+        }
+        for (long gram : entryGrams) {
+            grams.computeIfAbsent(gram, g -> new IntList()).add(id);
+        }
+    }
+
+    /**
+     * Refaz a árvore e os trigramas só com os produtos que continuam no índice.
+     */
+    private void rebuild() {
+        List<String> oldNames = new ArrayList<>(names);
+        List<List<String>> oldAliases = new ArrayList<>(aliases);
+        boolean[] oldAlive = alive;
+        double[] oldPopularity = popularity;
+        ids.clear();
+        names.clear();
+        normalizedNames.clear();
+        aliases.clear();
+        alive = new boolean[64];
+        popularity = new double[64];
+        seenStamp = new int[64];
+        wordStamp = new int[64];
+        hits = new int[64];
+        aliveCount = 0;
+        root = new Node();
+        grams = new HashMap<>();
+        for (int old = 0; old < oldNames.size(); old++) {
+            if (oldAlive[old]) {
+                add(oldNames.get(old), oldAliases.get(old));
+                popularity[ids.get(oldNames.get(old))] = oldPopularity[old];
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= alive.length) {
+            return;
+        }
+        int grown = Math.max(capacity, alive.length * 2);
+        alive = Arrays.copyOf(alive, grown);
+        popularity = Arrays.copyOf(popularity, grown);
+        seenStamp = Arrays.copyOf(seenStamp, grown);
+        wordStamp = Arrays.copyOf(wordStamp, grown);
+        hits = Arrays.copyOf(hits, grown);
+    }
+
+    private double weight(long timestamp) {
+        return Math.pow(2.0, (timestamp - epoch) / HALF_LIFE_MS);
+    }
+
+    /**
+     * O texto inteiro e, se tiver mais de uma palavra, cada palavra.
+     */
+    private static void addTerms(String text, Set<String> terms) {
+        if (text.isEmpty()) {
+            return;
+        }
+        terms.add(text);
+        String[] words = SPACES.split(text);
+        if (words.length > 1) {
+            terms.addAll(Arrays.asList(words));
+        }
+    }
+
+    /**
+     * Os trigramas do texto com um espaço antes e depois (" ca", "cap", ..., "no "),
+     * cada um guardado em um long (três caracteres de 16 bits).
+     */
+    private static void addGrams(String text, Set<Long> out) {
+        String padded = " " + text + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            out.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+    }
+
+    /**
+     * @return O texto em minúsculas, sem acentos e com um espaço entre as palavras.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return SPACES.matcher(DIACRITICS.matcher(decomposed).replaceAll("")).replaceAll(" ").trim().toLowerCase();
+    }
+
+    /**
+     * Lê os apelidos dos produtos, uma linha por produto: "produto:apelido, outro apelido".
+     * Sem o arquivo, nenhum produto tem apelido.
+     * @return Nome do produto (em minúsculas) -> apelidos.
+     */
+    public static Map<String, List<String>> loadAliases(String path) {
+        Map<String, List<String>> result = new HashMap<>();
+        File file = new File(path);
+        if (!file.exists()) {
+            return result;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int separator = line.indexOf(':');
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (separator <= 0) {
+                    System.err.println("AVISO: Linha mal formatada nos apelidos e será ignorada: " + line);
+                    continue;
+                }
+                List<String> productAliases = result.computeIfAbsent(
+                        line.substring(0, separator).trim().toLowerCase(), name -> new ArrayList<>());
+                for (String alias : line.substring(separator + 1).split(",")) {
+                    if (!alias.trim().isEmpty()) {
+                        productAliases.add(alias.trim());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler os apelidos dos produtos: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Um nó da árvore de prefixos: os filhos por caractere (em ordem, para a busca binária)
+     * e os produtos com um termo que termina aqui.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private int[] ids = new int[0];
+        private int idCount;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node insert(String term) {
+            Node node = this;
+            for (int i = 0; i < term.length(); i++) {
+                char key = term.charAt(i);
+                int index = Arrays.binarySearch(node.keys, 0, node.childCount, key);
+                if (index < 0) {
+                    index = -index - 1;
+                    if (node.childCount == node.keys.length) {
+                        int grown = Math.max(2, node.keys.length * 2);
+                        node.keys = Arrays.copyOf(node.keys, grown);
+                        node.children = Arrays.copyOf(node.children, grown);
+                    }
+                    System.arraycopy(node.keys, index, node.keys, index + 1, node.childCount - index);
+                    System.arraycopy(node.children, index, node.children, index + 1, node.childCount - index);
+                    node.keys[index] = key;
+                    node.children[index] = new Node();
+                    node.childCount++;
+                }
+                node = node.children[index];
+            }
+            return node;
+        }
+
+        void addId(int id) {
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(2, ids.length * 2));
+            }
+            ids[idCount++] = id;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Um resultado na fila dos melhores; a fila guarda o pior no topo para ser trocado.
+     */
+    private static final class Result implements Comparable<Result> {
+        private final int id;
+        private final double score;
+        private final double popularity;
+        private final String name;
+
+        Result(int id, double score, double popularity, String name) {
+            this.id = id;
+            this.score = score;
+            this.popularity = popularity;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(Result other) {
+            return compare(score, popularity, name, other);
+        }
+
+        static int compare(double score, double popularity, String name, Result other) {
+            int compare = Double.compare(score, other.score);
+            if (compare == 0) {
+                compare = Double.compare(popularity, other.popularity);
+            }
+            if (compare == 0) {
+                // Nomes mais curtos e, depois, em ordem alfabética vêm antes
+                compare = Integer.compare(other.name.length(), name.length());
+            }
+            return compare != 0 ? compare : other.name.compareTo(name);
+        }
+    }
+}
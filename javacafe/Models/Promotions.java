@@ -0,0 +1,346 @@
+package javacafe.Models;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regras de preço e promoções, compiladas uma vez a partir de files/promotions.txt.
+ *
+ * Uma regra por linha, no formato "tipo|nome|alvo|valor[|HH:mm-HH:mm]":
+ * <pre>
+ * percent|Latte 10%|latte|10%                  desconto percentual em um produto
+ * percent|Tudo 5%|*|5%                         desconto percentual no carrinho inteiro
+ * combo|Espresso + Cookie|espresso+cookie|9.00 preço fechado para o conjunto
+ * combo|2 Brownies|brownie*2|12.00             quantidades com "*"
+ * price|Happy hour|capuccino|5.00|15:00-17:00  preço unitário especial num horário
+ * tax|Imposto|*|0%                             imposto sobre o valor com desconto
+ * </pre>
+ * Qualquer regra pode ter a janela de horário no final. Os descontos se acumulam.
+ *
+ * A compilação monta um índice produto -> regras que dependem dele, então o Cart só
+ * reavalia, a cada item adicionado ou removido, as regras daquele produto e as do
+ * carrinho inteiro, e não todas as regras de todos os produtos.
+ */
+public final class Promotions {
+
+    private static final String PROMOTIONS_FILE = "files/promotions.txt";
+    private static final int[] NO_RULES = new int[0];
+
+    private static volatile Promotions instance;
+
+    private final Rule[] rules;
+    private final Map<String, int[]> rulesByProduct;
+    private final int[] cartWideRules;
+    private final Rule[] windowedRules;
+    private final int taxBasisPoints;
+    private final ZoneId zone;
+
+    private Promotions(List<Rule> rules, int taxBasisPoints, ZoneId zone) {
+        this.rules = rules.toArray(new Rule[0]);
+        this.taxBasisPoints = taxBasisPoints;
+        this.zone = zone;
+        Map<String, List<Integer>> byProduct = new HashMap<>();
+        List<Integer> cartWide = new ArrayList<>();
+        List<Rule> windowed = new ArrayList<>();
+        for (int i = 0; i < this.rules.length; i++) {
+            Rule rule = this.rules[i];
+            if (rule.products.length == 0) {
+                cartWide.add(i);
+            }
+            for (String product : rule.products) {
+                byProduct.computeIfAbsent(product, p -> new ArrayList<>()).add(i);
+            }
+            if (rule.windowStart != null) {
+                windowed.add(rule);
+            }
+        }
+        this.rulesByProduct = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : byProduct.entrySet()) {
+            rulesByProduct.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        this.cartWideRules = toArray(cartWide);
+        this.windowedRules = windowed.toArray(new Rule[0]);
+    }
+
+    /**
+     * @return As regras da aplicação, compiladas de files/promotions.txt na primeira chamada
+     *         (nenhuma regra, se o arquivo não existir).
+     */
+    public static Promotions get() {
+        Promotions promotions = instance;
+        if (promotions == null) {
+            synchronized (Promotions.class) {
+                promotions = instance;
+                if (promotions == null) {
+                    promotions = load(Paths.get(PROMOTIONS_FILE));
+                    instance = promotions;
+                }
+            }
+        }
+        return promotions;
+    }
+
+    /**
+     * @return Um conjunto sem nenhuma regra e sem imposto.
+     */
+    public static Promotions none() {
+        return new Promotions(Collections.emptyList(), 0, ZoneId.systemDefault());
+    }
+
+    private static Promotions load(Path path) {
+        if (!Files.exists(path)) {
+            return none();
+        }
+        try {
+            return compile(Files.readAllLines(path, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Erro ao ler as promoções, seguindo sem nenhuma: " + e.getMessage());
+            return none();
+        }
+    }
+
+    /**
+     * Compila as regras. Linhas mal formadas são relatadas e ignoradas.
+     * @param lines As linhas no formato descrito na classe; "#" começa um comentário.
+     */
+    public static Promotions compile(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        int taxBasisPoints = 0;
+        for (String line : lines) {
+            if (line.trim().isEmpty() || line.trim().startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] parts = line.split("\\|");
+                if (parts.length < 4 || parts.length > 5) {
+                    throw new IllegalArgumentException("esperado tipo|nome|alvo|valor[|HH:mm-HH:mm]");
+                }
+                String kind = parts[0].trim().toLowerCase();
+                String name = parts[1].trim();
+                String target = parts[2].trim().toLowerCase();
+                String value = parts[3].trim();
+                Rule rule;
+                switch (kind) {
+                    case "percent":
+                        rule = new PercentRule(name, target.equals("*") ? null : target, parsePercent(value));
+                        break;
+                    case "price":
+                        rule = new PriceRule(name, target, Money.parse(value));
+                        break;
+                    case "combo":
+                        rule = new ComboRule(name, target, Money.parse(value));
+                        break;
+                    case "tax":
+                        taxBasisPoints = parsePercent(value);
+                        continue;
+                    default:
+                        throw new IllegalArgumentException("tipo desconhecido: " + kind);
+                }
+                if (parts.length == 5) {
+                    String[] window = parts[4].trim().split("-");
+                    if (window.length != 2) {
+                        throw new IllegalArgumentException("janela de horário inválida: " + parts[4]);
+                    }
+                    rule.windowStart = LocalTime.parse(window[0].trim());
+                    rule.windowEnd = LocalTime.parse(window[1].trim());
+                }
+                rules.add(rule);
+            } catch (RuntimeException e) {
+                System.err.println("AVISO: Regra de promoção ignorada (" + e.getMessage() + "): " + line);
+            }
+        }
+        return new Promotions(rules, taxBasisPoints, ZoneId.systemDefault());
+    }
+
+    /** "10%", "10" ou "12.5%" -> pontos-base (1000, 1000, 1250). */
+    private static int parsePercent(String value) {
+        String number = value.endsWith("%") ? value.substring(0, value.length() - 1) : value;
+        return Math.toIntExact(Money.parse(number));
+    }
+
+    int ruleCount() {
+        return rules.length;
+    }
+
+    String ruleName(int rule) {
+        return rules[rule].name;
+    }
+
+    /**
+     * @return As regras que dependem do produto (pode ser vazio).
+     */
+    int[] rulesFor(String productName) {
+        return rulesByProduct.getOrDefault(productName, NO_RULES);
+    }
+
+    int[] cartWideRules() {
+        return cartWideRules;
+    }
+
+    int getTaxBasisPoints() {
+        return taxBasisPoints;
+    }
+
+    /**
+     * Calcula o desconto de uma regra sobre o carrinho no momento dado.
+     */
+    long discount(int rule, Cart cart, long now) {
+        Rule r = rules[rule];
+        if (r.windowStart != null && !r.activeAt(LocalTime.ofInstant(Instant.ofEpochMilli(now), zone))) {
+            return 0;
+        }
+        return Math.max(0, r.discount(cart));
+    }
+
+    /**
+     * @return O próximo momento em que alguma janela de horário abre ou fecha
+     *         (Long.MAX_VALUE se nenhuma regra tiver janela).
+     */
+    long nextWindowChange(long now) {
+        if (windowedRules.length == 0) {
+            return Long.MAX_VALUE;
+        }
+        ZonedDateTime current = Instant.ofEpochMilli(now).atZone(zone);
+        long next = Long.MAX_VALUE;
+        for (Rule rule : windowedRules) {
+            next = Math.min(next, nextOccurrence(current, rule.windowStart));
+            next = Math.min(next, nextOccurrence(current, rule.windowEnd));
+        }
+        return next;
+    }
+
+    private static long nextOccurrence(ZonedDateTime current, LocalTime time) {
+        ZonedDateTime candidate = current.with(time);
+        if (!candidate.isAfter(current)) {
+            candidate = candidate.plusDays(1);
+        }
+        return candidate.toInstant().toEpochMilli();
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    // --- Tipos de regra ---
+
+    private abstract static class Rule {
+        final String name;
+        // Produtos que, ao mudar, exigem reavaliar a regra (vazio = carrinho inteiro)
+        final String[] products;
+        LocalTime windowStart;
+        LocalTime windowEnd;
+
+        Rule(String name, String... products) {
+            this.name = name;
+            this.products = products;
+        }
+
+        boolean activeAt(LocalTime time) {
+            if (windowStart.isBefore(windowEnd)) {
+                return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+            }
+            // Janela que passa da meia-noite, ex.: 22:00-02:00
+            return !time.isBefore(windowStart) || time.isBefore(windowEnd);
+        }
+
+        abstract long discount(Cart cart);
+    }
+
+    private static final class PercentRule extends Rule {
+        private final String product;
+        private final int basisPoints;
+
+        PercentRule(String name, String product, int basisPoints) {
+            super(name, product == null ? new String[0] : new String[]{product});
+            this.product = product;
+            this.basisPoints = basisPoints;
+        }
+
+        @Override
+        long discount(Cart cart) {
+            long base = product == null ? cart.getSubtotalCents() : cart.getLineCents(product);
+            return Money.percent(base, basisPoints);
+        }
+    }
+
+    private static final class PriceRule extends Rule {
+        private final String product;
+        private final long priceCents;
+
+        PriceRule(String name, String product, long priceCents) {
+            super(name, product);
+            this.product = product;
+            this.priceCents = priceCents;
+        }
+
+        @Override
+        long discount(Cart cart) {
+            long difference = cart.getUnitCents(product) - priceCents;
+            return difference <= 0 ? 0 : Money.multiply(difference, cart.getQuantity(product));
+        }
+    }
+
+    private static final class ComboRule extends Rule {
+        private final int[] required;
+        private final long comboCents;
+
+        ComboRule(String name, String members, long comboCents) {
+            super(name, productsOf(members));
+            this.required = quantitiesOf(members);
+            this.comboCents = comboCents;
+        }
+
+        private static String[] productsOf(String members) {
+            String[] parts = members.split("\\+");
+            String[] products = new String[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                int star = parts[i].indexOf('*');
+                products[i] = (star < 0 ? parts[i] : parts[i].substring(0, star)).trim();
+            }
+            return products;
+        }
+
+        private static int[] quantitiesOf(String members) {
+            String[] parts = members.split("\\+");
+            int[] quantities = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                int star = parts[i].indexOf('*');
+                quantities[i] = star < 0 ? 1 : Integer.parseInt(parts[i].substring(star + 1).trim());
+                if (quantities[i] <= 0) {
+                    throw new IllegalArgumentException("quantidade inválida no combo: " + parts[i]);
+                }
+            }
+            return quantities;
+        }
+
+        @Override
+        long discount(Cart cart) {
+            int combos = Integer.MAX_VALUE;
+            long regularCents = 0;
+            for (int i = 0; i < products.length; i++) {
+                combos = Math.min(combos, cart.getQuantity(products[i]) / required[i]);
+                regularCents += Money.multiply(cart.getUnitCents(products[i]), required[i]);
+            }
+            if (combos == 0 || regularCents <= comboCents) {
+                return 0;
+            }
+            return Money.multiply(regularCents - comboCents, combos);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package javacafe.Models;
+
+/**
+ * Uma linha vendida de um pedido, como gravada no livro de vendas binário.
+ * Guarda o nome completo do produto, a quantidade, o preço unitário em centavos,
+ * o caixa e o momento da venda.
+ */
+public class SaleRecord {
+    private final long timestamp;
+    private final long orderId;
+    private final String registerId;
+    private final String productName;
+    private final int quantity;
+    private final long unitPriceCents;
+
+    public SaleRecord(long timestamp, long orderId, String registerId, String productName,
+                      int quantity, long unitPriceCents) {
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.registerId = registerId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.unitPriceCents = unitPriceCents;
+    }
+
+    /** @return O momento da venda, em milissegundos desde a época (UTC). */
+    public long getTimestamp() { return timestamp; }
+    public long getOrderId() { return orderId; }
+    public String getRegisterId() { return registerId; }
+    public String getProductName() { return productName; }
+    public int getQuantity() { return quantity; }
+    public long getUnitPriceCents() { return unitPriceCents; }
+    public long getTotalCents() { return Money.multiply(unitPriceCents, quantity); }
+}
@@ -1,23 +1,16 @@
 package javacafe;
 
 import javacafe.Models.User;
+import javacafe.backend_files.CafePartition;
 import javacafe.backend_files.LoginController;
+import javacafe.controllers.PageCache;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.TextField;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 
-public class Scene1controller {
-
-    private Stage stage;
-    private Scene scene;
-    private Parent root;
+public class Scene1controller implements PageCache.Refreshable {
 
     @FXML
     TextField nameTextField;
@@ -25,38 +18,31 @@ public class Scene1controller {
     TextField passwordField;
 
     public void goToNewCafePage(ActionEvent event) throws IOException {
-
-        Parent root = FXMLLoader.load(getClass().getResource("pages/registerscreen.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "registerscreen.fxml");
     }
 
     public void goToLogPage(ActionEvent event) throws IOException {
-
-        Parent root = FXMLLoader.load(getClass().getResource("pages/logscene.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
-
+        PageCache.show(event, "logscene.fxml");
     }
 
     public void firstPage (ActionEvent event) throws IOException {
+        PageCache.show(event, "firstpage.fxml");
+    }
 
-
-        Parent root = FXMLLoader.load(getClass().getResource("pages/firstpage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
-
+    /**
+     * A página vem do cache: a senha digitada da última vez não pode continuar na tela.
+     */
+    @Override
+    public void onShow() {
+        if (passwordField != null) {
+            passwordField.clear();
+        }
     }
 
     /**
      * Recebe o nome do café e a senha e efetua o login se existir este registro.
-     * Ao fazer o login direciona para a página principal.
+     * Ao fazer o login os dados deste café (CafePartition) passam a ser os das telas,
+     * e direciona para a página principal.
      *
      * @param event
      * @throws IOException
@@ -69,11 +55,13 @@ public class Scene1controller {
         User user = new User(username, pass);
 
         if(controller.validUser(user)) {
-            Parent root = FXMLLoader.load(getClass().getResource("pages/mainpage.fxml"));
-            stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-            scene = new Scene(root);
-            stage.setScene(scene);
-            stage.show();
+            try {
+                CafePartition.login(username);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Não foi possível abrir os dados do café: " + e.getMessage());
+                return;
+            }
+            PageCache.show(event, "mainpage.fxml");
         }
         else {
             System.out.print("Incorrect username or password");
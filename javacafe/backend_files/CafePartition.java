@@ -0,0 +1,387 @@
+package javacafe.backend_files;
+
+import javacafe.Models.Inventory;
+import javacafe.Models.Promotions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Os dados de um café: inventário, livro de vendas, tabelas de totais, recibos, previsão de
+ * estoque e o OrderEngine sobre eles, todos na pasta files/cafes/nome/, com os mesmos nomes
+ * de arquivo da pasta files/.
+ *
+ * Uma partição só é aberta quando o café entra ({@link #login}) ou quando um caixa do
+ * EngineServer a escolhe, e cada parte dela é carregada no primeiro uso. Uma partição que
+ * não é a atual, não tem sessões abertas nem carrinhos com itens e não é usada há
+ * {@value #DEFAULT_IDLE_MINUTES} minutos (-Djavacafe.partition.idleMinutes) sai da memória:
+ * o inventário e os totais são gravados e tudo é relido do disco no próximo uso. Assim a
+ * memória acompanha os cafés ativos, e não todos os registrados.
+ *
+ * Os InventoryService, SalesLedger, SalesRollups, ReceiptArchive, StockForecast, SalesAnalytics
+ * e OrderEngine devolvem as partes da partição atual. Antes do login (e para os caixas do
+ * EngineServer que não escolhem um café) a atual é a partição padrão, a própria pasta files/. Uma
+ * partição nova começa com uma cópia do catálogo de files/inventory.txt e sem vendas.
+ */
+public final class CafePartition {
+
+    public static final String DEFAULT_DIRECTORY = "files";
+    public static final String CAFES_DIRECTORY = "files/cafes";
+    public static final long DEFAULT_IDLE_MINUTES = 30;
+
+    private static final String CATALOG_FILE = "inventory.txt";
+    private static final String SALES_LEDGER_FILE = "sales.dat";
+    private static final String ROLLUPS_FILE = "sales_rollups.txt";
+    private static final String RECEIPTS_DIRECTORY = "receipts";
+    // Chave da partição padrão no mapa das abertas (nenhum nome de café é vazio)
+    private static final String DEFAULT_KEY = "";
+    private static final long EVICTION_INTERVAL_SECONDS = 60;
+    private static final long IDLE_MILLIS =
+            Long.getLong("javacafe.partition.idleMinutes", DEFAULT_IDLE_MINUTES) * 60 * 1000;
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cafe-partition-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Partições abertas pelo nome do café; aberturas, sessões novas e remoções passam pela trava da classe
+    private static final Map<String, CafePartition> OPEN = new ConcurrentHashMap<>();
+    // Partições tiradas de OPEN que ainda estão gravando; quem abrir o mesmo café espera o futuro
+    private static final Map<String, CompletableFuture<Void>> CLOSING = new ConcurrentHashMap<>();
+    private static volatile CafePartition current;
+    private static boolean evictorStarted;
+
+    private final String cafeName;
+    private final Path directory;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile boolean closed;
+
+    private final Part<Inventory> inventory;
+    private final Part<SalesLedger> ledger;
+    private final Part<SalesRollups> rollups;
+    private final Part<ReceiptArchive> receipts;
+    private final Part<StockForecast> forecast;
+    private final Part<SalesAnalytics> analytics;
+    private final Part<OrderEngine> engine;
+
+    private CafePartition(String cafeName, Path directory) {
+        this.cafeName = cafeName;
+        this.directory = directory;
+        this.inventory = new Part<>(() -> {
+            if (cafeName != null) {
+                Inventory.createFromTemplate(Paths.get(DEFAULT_DIRECTORY, CATALOG_FILE), directory);
+            }
+            return new Inventory(directory);
+        });
+        this.ledger = new Part<>(() -> new SalesLedger(directory.resolve(SALES_LEDGER_FILE)));
+        this.rollups = new Part<>(() -> SalesRollups.open(directory.resolve(ROLLUPS_FILE), ledger.get()));
+        this.receipts = new Part<>(() -> new ReceiptArchive(directory.resolve(RECEIPTS_DIRECTORY)));
+        this.forecast = new Part<>(() -> StockForecast.open(inventory.get(), rollups.get()));
+        this.analytics = new Part<>(() -> new SalesAnalytics(ledger.get(), ZoneId.systemDefault()));
+        this.engine = new Part<>(() -> new OrderEngine(inventory.get(), Promotions.get(), ledger.get(),
+                rollups.get(), receipts.get(), forecast.get()));
+    }
+
+    /**
+     * @return A partição do café que está usando as telas, ou a padrão se ninguém entrou.
+     */
+    public static CafePartition current() {
+        CafePartition partition = current;
+        if (partition == null) {
+            return defaultPartition();
+        }
+        partition.touch();
+        return partition;
+    }
+
+    /**
+     * @return A partição padrão, na pasta files/.
+     */
+    public static CafePartition defaultPartition() {
+        return open(DEFAULT_KEY, partition -> { });
+    }
+
+    /**
+     * Abre a partição do café (sem carregar nada ainda), criando a pasta na primeira vez.
+     * @param cafeName O nome do café registrado.
+     * @return A partição aberta; a mesma instância enquanto ela não sair da memória.
+     * @throws IllegalArgumentException Se o nome não puder ser o nome de uma pasta.
+     */
+    public static CafePartition of(String cafeName) {
+        return open(validKey(cafeName), partition -> { });
+    }
+
+    /**
+     * Abre a partição do café e marca o começo de uma sessão (um caixa do EngineServer
+     * conectado a ele), com a mesma trava da remoção das partições ociosas: a partição
+     * devolvida não sai da memória até o {@link #release}.
+     * @throws IllegalArgumentException Se o nome não puder ser o nome de uma pasta.
+     */
+    public static CafePartition acquire(String cafeName) {
+        return open(validKey(cafeName), partition -> partition.sessions.incrementAndGet());
+    }
+
+    /**
+     * @return true se o nome puder ser o de um café: não vazio e usável como nome de pasta.
+     * O cadastro confere o nome com esta regra antes de gravá-lo.
+     */
+    public static boolean isValidName(String cafeName) {
+        return cafeName != null && !cafeName.isEmpty() && !cafeName.equals(".") && !cafeName.equals("..")
+                && cafeName.indexOf('/') < 0 && cafeName.indexOf('\\') < 0;
+    }
+
+    private static String validKey(String cafeName) {
+        if (!isValidName(cafeName)) {
+            throw new IllegalArgumentException("nome de café inválido para uma partição: " + cafeName);
+        }
+        return cafeName;
+    }
+
+    /**
+     * Abre a partição com a trava da classe: uma partição devolvida aqui acabou de ser usada,
+     * e a remoção das ociosas (com a mesma trava) não a fecha logo depois. Se a partição
+     * do café ainda estiver sendo fechada, espera as gravações dela fora da trava e só então
+     * abre uma nova, que relê os arquivos já gravados.
+     * @param claim O que fazer com a partição ainda com a trava (marcar uma sessão, torná-la a atual).
+     */
+    private static CafePartition open(String key, Consumer<CafePartition> claim) {
+        while (true) {
+            CompletableFuture<Void> closing;
+            synchronized (CafePartition.class) {
+                closing = CLOSING.get(key);
+                if (closing == null) {
+                    CafePartition partition = OPEN.get(key);
+                    if (partition == null) {
+                        Path directory = key.equals(DEFAULT_KEY)
+                                ? Paths.get(DEFAULT_DIRECTORY) : Paths.get(CAFES_DIRECTORY, key);
+                        partition = new CafePartition(key.equals(DEFAULT_KEY) ? null : key, directory);
+                        OPEN.put(key, partition);
+                        Metrics.count("partitions.opened");
+                        startEvictor();
+                    }
+                    partition.touch();
+                    claim.accept(partition);
+                    return partition;
+                }
+            }
+            closing.join();
+        }
+    }
+
+    /**
+     * Torna a partição do café a atual: as telas passam a usar os dados dela.
+     * @return A partição do café.
+     * @throws IllegalArgumentException Se o nome não puder ser o nome de uma pasta.
+     */
+    public static CafePartition login(String cafeName) {
+        return open(validKey(cafeName), partition -> current = partition);
+    }
+
+    /**
+     * Volta para a partição padrão; a do café que saiu pode sair da memória quando ficar ociosa.
+     */
+    public static void logout() {
+        CafePartition partition = current;
+        current = null;
+        if (partition != null) {
+            partition.touch();
+        }
+    }
+
+    /**
+     * @return Quantas partições estão na memória.
+     */
+    public static int openCount() {
+        return OPEN.size();
+    }
+
+    /**
+     * @return O nome do café, ou null para a partição padrão.
+     */
+    public String getCafeName() {
+        return cafeName;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return O caminho de um arquivo na pasta da partição (ex.: "counts.txt").
+     */
+    public Path file(String name) {
+        return directory.resolve(name);
+    }
+
+    public Inventory inventory() throws IOException {
+        return inventory.get();
+    }
+
+    public SalesLedger ledger() throws IOException {
+        return ledger.get();
+    }
+
+    public SalesRollups rollups() throws IOException {
+        return rollups.get();
+    }
+
+    public ReceiptArchive receipts() throws IOException {
+        return receipts.get();
+    }
+
+    public StockForecast forecast() throws IOException {
+        return forecast.get();
+    }
+
+    public SalesAnalytics analytics() throws IOException {
+        return analytics.get();
+    }
+
+    public OrderEngine engine() throws IOException {
+        return engine.get();
+    }
+
+    /**
+     * Marca o fim de uma sessão aberta com {@link #acquire}.
+     */
+    public void release() {
+        sessions.decrementAndGet();
+        touch();
+    }
+
+    private void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    private static synchronized void startEvictor() {
+        if (!evictorStarted) {
+            evictorStarted = true;
+            EVICTOR.scheduleWithFixedDelay(CafePartition::evictIdle,
+                    EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Tira da memória as partições ociosas. A escolha e a retirada do mapa das abertas usam
+     * a trava da classe; o fechamento (que espera as gravações chegarem ao disco) acontece
+     * fora dela, então as outras partições continuam abrindo. Quem abrir o mesmo café durante
+     * o fechamento espera só por ele e relê os arquivos já gravados.
+     */
+    static void evictIdle() {
+        List<CafePartition> idle = new ArrayList<>();
+        synchronized (CafePartition.class) {
+            long now = System.currentTimeMillis();
+            CafePartition active = current;
+            for (CafePartition partition : OPEN.values()) {
+                boolean isCurrent = partition == active || active == null && partition.cafeName == null;
+                if (!isCurrent && partition.sessions.get() == 0 && now - partition.lastUsed >= IDLE_MILLIS
+                        && !partition.hasOpenCarts()) {
+                    idle.add(partition);
+                }
+            }
+            for (CafePartition partition : idle) {
+                OPEN.remove(partition.key());
+                CLOSING.put(partition.key(), new CompletableFuture<>());
+                // As partes deixam de ser entregues já, antes das gravações
+                partition.closed = true;
+            }
+        }
+        for (CafePartition partition : idle) {
+            try {
+                partition.close();
+                Metrics.count("partitions.evicted");
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao fechar a partição do café " + partition.cafeName + ": " + e.getMessage());
+            } finally {
+                CLOSING.remove(partition.key()).complete(null);
+            }
+        }
+    }
+
+    private String key() {
+        return cafeName == null ? DEFAULT_KEY : cafeName;
+    }
+
+    private boolean hasOpenCarts() {
+        OrderEngine loaded = engine.peek();
+        return loaded != null && loaded.hasOpenCarts();
+    }
+
+    /**
+     * Para as tarefas periódicas, grava o que está só na memória e espera as gravações
+     * chegarem ao disco. Depois disso as partes não podem mais ser pedidas.
+     */
+    private void close() {
+        closed = true;
+        Inventory loadedInventory = inventory.peek();
+        if (loadedInventory != null) {
+            loadedInventory.close();
+        }
+        SalesRollups loadedRollups = rollups.peek();
+        if (loadedRollups != null) {
+            loadedRollups.close();
+        }
+        PersistenceWriter.get().flush();
+    }
+
+    @FunctionalInterface
+    private interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * Uma parte da partição, carregada no primeiro uso. Cada parte tem a própria trava,
+     * então partes independentes podem carregar em paralelo.
+     */
+    private final class Part<T> {
+        private final Loader<T> loader;
+        private volatile T value;
+
+        Part(Loader<T> loader) {
+            this.loader = loader;
+        }
+
+        T get() throws IOException {
+            touch();
+            // Mesmo uma parte já carregada é recusada: depois do fechamento o inventário e
+            // os totais não gravam mais, e a partição nova do café relê os arquivos.
+            if (closed) {
+                throw new IllegalStateException("a partição do café " + cafeName + " já foi fechada");
+            }
+            T loaded = value;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = value;
+                    if (loaded == null) {
+                        if (closed) {
+                            throw new IllegalStateException("a partição do café " + cafeName + " já foi fechada");
+                        }
+                        Files.createDirectories(directory);
+                        loaded = loader.load();
+                        value = loaded;
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        T peek() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package javacafe.backend_files;
+
+import javacafe.Models.User;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice em memória dos cafés registrados em registers.txt, com o nome do café como chave.
+ * O arquivo é lido uma única vez; a partir daí o login e a verificação de nomes
+ * repetidos são consultas diretas ao mapa, independentemente do tamanho do registro.
+ */
+public final class CredentialStore {
+
+    static final String REGISTERS_FILE = "backend_files/registers.txt";
+
+    private static volatile CredentialStore instance;
+
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+
+    private CredentialStore() {
+    }
+
+    /**
+     * Retorna o índice compartilhado, lendo registers.txt na primeira chamada.
+     * @return O CredentialStore da aplicação.
+     * @throws IOException Se houver um erro de leitura do arquivo.
+     */
+    public static CredentialStore get() throws IOException {
+        CredentialStore store = instance;
+        if (store == null) {
+            synchronized (CredentialStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new CredentialStore();
+                    store.load();
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        File file = new File(REGISTERS_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        long begin = Metrics.begin();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.indexOf('|') < 0) {
+                    continue;
+                }
+                User user = FileController.formatLine(line);
+                // O primeiro registro de um nome é o que vale, como na antiga busca linha a linha.
+                usersByName.putIfAbsent(user.getName(), user);
+            }
+        }
+        Metrics.fileRead(file.toPath(), file.length(), begin);
+    }
+
+    /**
+     * @param cafeName O nome do café.
+     * @return O usuário registrado com esse nome, ou null se não existir.
+     */
+    public User find(String cafeName) {
+        return usersByName.get(cafeName);
+    }
+
+    /**
+     * @param cafeName O nome do café.
+     * @return true se já existe um café registrado com esse nome.
+     */
+    public boolean exists(String cafeName) {
+        return usersByName.containsKey(cafeName);
+    }
+
+    /**
+     * @return Quantos cafés estão registrados.
+     */
+    public int size() {
+        return usersByName.size();
+    }
+
+    /**
+     * Adiciona um novo registro ao índice, se o nome ainda estiver livre.
+     * @param user O novo usuário.
+     * @return true se o registro foi adicionado, false se o nome já existia.
+     */
+    boolean add(User user) {
+        return usersByName.putIfAbsent(user.getName(), user) == null;
+    }
+}
@@ -0,0 +1,359 @@
+package javacafe.backend_files;
+
+import javacafe.Models.Cart;
+import javacafe.Models.User;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * Servidor TCP local que expõe o OrderEngine para outros caixas e quiosques.
+ * Cada conexão roda em uma virtual thread. Quando o número de conexões abertas chega
+ * ao limite, novas conexões recebem "BUSY" e são fechadas, em vez de enfileirar sem fim.
+ *
+ * O protocolo é de uma linha por comando, e cada comando recebe uma linha de resposta:
+ * <pre>
+ * ADD caixa produto      -> OK quantidade | ESGOTADO
+ * REMOVE caixa produto   -> OK quantidade | NAO_ENCONTRADO
+ * CART caixa             -> OK produto=quantidade;...
+ * CANCEL caixa           -> OK
+ * FINISH caixa           -> OK unidades pedido | ERRO mensagem
+ * STOCK produto          -> OK quantidade | NAO_ENCONTRADO
+ * CAFE nome senha        -> OK | ERRO mensagem
+ * QUIT
+ * </pre>
+ * O nome do produto é o resto da linha, então pode conter espaços ("espresso f").
+ * O caixa tem até {@value #MAX_REGISTER_LENGTH} letras, números, "-" ou "_" (o caixa
+ * "{@value OrderEngine#LOCAL_REGISTER}" é o das telas e não pode ser usado). Um caixa pertence à
+ * conexão que o usou primeiro, até ela fechar, e cada conexão usa no máximo
+ * {@value #DEFAULT_MAX_REGISTERS_PER_CONNECTION} caixas (-Djavacafe.engine.maxRegisters). Quando a
+ * conexão fecha (QUIT, queda ou {@value #READ_TIMEOUT_MILLIS} ms sem comandos) ou troca de café, os pedidos
+ * abertos dos caixas dela são cancelados e as reservas voltam ao estoque.
+ * Depois de um CAFE, os comandos da conexão usam a partição daquele café (CafePartition),
+ * que fica na memória enquanto a conexão estiver aberta; antes dele, usam a partição atual
+ * (a do café logado nas telas, ou a padrão no modo sem interface).
+ * A latência de cada comando conhecido é registrada nas Metrics como "engine.COMANDO".
+ */
+public final class EngineServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 5150;
+    private static final int DEFAULT_MAX_CONNECTIONS = 256;
+    private static final int READ_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final int DEFAULT_MAX_REGISTERS_PER_CONNECTION = 16;
+    private static final int MAX_REGISTER_LENGTH = SalesLedger.MAX_REGISTER_BYTES;
+    private static final Pattern REGISTER_ID = Pattern.compile("[A-Za-z0-9_-]{1," + MAX_REGISTER_LENGTH + "}");
+    // Os comandos medidos; um comando desconhecido não cria um histograma novo
+    private static final Set<String> COMMANDS = Set.of("ADD", "REMOVE", "CART", "CANCEL", "FINISH", "STOCK", "CAFE");
+
+    private final ServerSocket serverSocket;
+    private final Semaphore connectionSlots;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxRegistersPerConnection =
+            Integer.getInteger("javacafe.engine.maxRegisters", DEFAULT_MAX_REGISTERS_PER_CONNECTION);
+    // A conexão dona de cada caixa em uso, por motor (cada café tem o seu)
+    private final Map<RegisterKey, Session> registerOwners = new ConcurrentHashMap<>();
+
+    private EngineServer(int port, int maxConnections) throws IOException {
+        this.connectionSlots = new Semaphore(maxConnections);
+        // Só aceita conexões da própria máquina.
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Sobe o servidor e começa a aceitar conexões em segundo plano.
+     * @param port A porta local.
+     * @return O servidor em execução.
+     * @throws IOException Se a porta não puder ser aberta ou o inventário não carregar.
+     */
+    public static EngineServer start(int port) throws IOException {
+        int maxConnections = Integer.getInteger("javacafe.engine.maxConnections", DEFAULT_MAX_CONNECTIONS);
+        // O motor da partição atual já fica pronto para o primeiro comando
+        OrderEngine.get();
+        EngineServer server = new EngineServer(port, maxConnections);
+        Thread acceptor = new Thread(server::acceptLoop, "engine-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Order engine listening on 127.0.0.1:" + server.serverSocket.getLocalPort());
+        return server;
+    }
+
+    /**
+     * Modo sem interface: roda apenas o motor e o servidor.
+     * Uso: java javacafe.backend_files.EngineServer [porta]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        EngineServer server = start(port);
+        String metricsPort = System.getProperty("javacafe.metrics.port");
+        if (metricsPort != null) {
+            Metrics.startEndpoint(Integer.parseInt(metricsPort));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        Thread.currentThread().join();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Erro ao aceitar conexão: " + e.getMessage());
+                }
+                continue;
+            }
+            if (!connectionSlots.tryAcquire()) {
+                rejectBusy(socket);
+                continue;
+            }
+            executor.submit(() -> {
+                try {
+                    serve(socket);
+                } finally {
+                    connectionSlots.release();
+                }
+            });
+        }
+    }
+
+    private void rejectBusy(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write("BUSY\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ignored) {
+            // O cliente já foi embora; nada a fazer.
+        }
+    }
+
+    private void serve(Socket socket) {
+        Session session = new Session();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                if (!line.isEmpty()) {
+                    out.println(handle(session, line));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Conexão com o caixa encerrada: " + e.getMessage());
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Interpreta um comando do protocolo e devolve a linha de resposta.
+     */
+    String handle(Session session, String line) {
+        // Espaços repetidos entre os argumentos não entram nos nomes
+        String[] parts = line.trim().split("\\s+", 3);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        String command = parts[0].toUpperCase();
+        long begin = Metrics.begin();
+        try {
+            if (command.equals("CAFE")) {
+                requireArgs(parts, 3);
+                User user = CredentialStore.get().find(parts[1]);
+                if (user == null || !user.getPassword().equals(parts[2])) {
+                    return "ERRO café ou senha incorretos";
+                }
+                session.bind(CafePartition.acquire(parts[1]));
+                return "OK";
+            }
+            OrderEngine engine = session.engine();
+            if (parts.length >= 2 && !command.equals("STOCK") && COMMANDS.contains(command)) {
+                session.claim(engine, parts[1]);
+            }
+            switch (command) {
+                case "ADD":
+                    requireArgs(parts, 3);
+                    return engine.addItem(parts[1], parts[2])
+                            ? "OK " + engine.cart(parts[1]).getQuantity(parts[2].toLowerCase())
+                            : "ESGOTADO";
+                case "REMOVE":
+                    requireArgs(parts, 3);
+                    return engine.removeItem(parts[1], parts[2])
+                            ? "OK " + engine.cart(parts[1]).getQuantity(parts[2].toLowerCase())
+                            : "NAO_ENCONTRADO";
+                case "CART":
+                    requireArgs(parts, 2);
+                    return "OK " + describe(engine.cart(parts[1]));
+                case "CANCEL":
+                    requireArgs(parts, 2);
+                    engine.cancel(parts[1]);
+                    return "OK";
+                case "FINISH": {
+                    requireArgs(parts, 2);
+                    OrderEngine.FinishedOrder order = engine.finish(parts[1]);
+                    if (order == null) {
+                        return "ERRO reservas não conferem com o estoque";
+                    }
+                    return "OK " + order.getUnits() + " " + order.getOrderId();
+                }
+                case "STOCK": {
+                    requireArgs(parts, 2);
+                    String productName = line.trim().substring(parts[0].length()).trim();
+                    int stock = engine.getInventory().getStock(productName);
+                    return stock < 0 ? "NAO_ENCONTRADO" : "OK " + stock;
+                }
+                default:
+                    return "ERRO comando desconhecido: " + parts[0];
+            }
+        } catch (IllegalArgumentException e) {
+            return "ERRO " + e.getMessage();
+        } catch (IllegalStateException e) {
+            // A partição foi fechada ou despejada por inatividade; o caixa precisa de um novo CAFE
+            return "ERRO " + e.getMessage() + "; envie CAFE novamente";
+        } catch (IOException e) {
+            return "ERRO não foi possível carregar os dados do café: " + e.getMessage();
+        } finally {
+            if (COMMANDS.contains(command)) {
+                Metrics.end("engine." + command, begin);
+            }
+        }
+    }
+
+    private static void requireArgs(String[] parts, int count) {
+        if (parts.length < count) {
+            throw new IllegalArgumentException("argumentos insuficientes para " + parts[0]);
+        }
+    }
+
+    private static String describe(Cart cart) {
+        synchronized (cart) {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Integer> item : cart.getItems().entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append(';');
+                }
+                sb.append(item.getKey()).append('=').append(item.getValue());
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * O estado de uma conexão: o café escolhido, cuja partição não sai da memória enquanto
+     * ela durar, e os caixas que ela usou, fechados quando ela fecha ou troca de café.
+     */
+    final class Session {
+        private CafePartition partition;
+        private final Set<RegisterKey> registers = new HashSet<>();
+
+        /**
+         * Troca o café da conexão.
+         * @param next A partição, já com a sessão aberta por CafePartition.acquire, ou null.
+         */
+        void bind(CafePartition next) {
+            if (next == partition) {
+                if (next != null) {
+                    // Já era o café da conexão: a sessão nova sobra
+                    next.release();
+                }
+                return;
+            }
+            closeRegisters();
+            if (partition != null) {
+                partition.release();
+            }
+            partition = next;
+        }
+
+        OrderEngine engine() throws IOException {
+            return partition != null ? partition.engine() : OrderEngine.get();
+        }
+
+        /**
+         * Confere o caixa e o marca como desta conexão.
+         * @throws IllegalArgumentException Se o caixa for inválido, de outra conexão, ou
+         * se a conexão já usa caixas demais.
+         */
+        void claim(OrderEngine engine, String registerId) {
+            RegisterKey key = new RegisterKey(engine, registerId);
+            if (registers.contains(key)) {
+                return;
+            }
+            if (!REGISTER_ID.matcher(registerId).matches() || registerId.equals(OrderEngine.LOCAL_REGISTER)) {
+                throw new IllegalArgumentException("caixa inválido: " + registerId);
+            }
+            if (registers.size() >= maxRegistersPerConnection) {
+                throw new IllegalArgumentException("caixas demais nesta conexão (máximo " + maxRegistersPerConnection + ")");
+            }
+            Session owner = registerOwners.putIfAbsent(key, this);
+            if (owner != null && owner != this) {
+                throw new IllegalArgumentException("caixa em uso por outra conexão: " + registerId);
+            }
+            registers.add(key);
+        }
+
+        private void closeRegisters() {
+            for (RegisterKey key : registers) {
+                key.engine.closeRegister(key.registerId);
+                registerOwners.remove(key, this);
+            }
+            registers.clear();
+        }
+
+        void close() {
+            bind(null);
+            closeRegisters();
+        }
+    }
+
+    /**
+     * Um caixa de um motor: o mesmo nome de caixa em cafés diferentes são caixas diferentes.
+     */
+    private static final class RegisterKey {
+        private final OrderEngine engine;
+        private final String registerId;
+
+        RegisterKey(OrderEngine engine, String registerId) {
+            this.engine = engine;
+            this.registerId = registerId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RegisterKey key && key.engine == engine && key.registerId.equals(registerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(engine) * 31 + registerId.hashCode();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o servidor: " + e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+}
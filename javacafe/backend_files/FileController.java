@@ -4,9 +4,7 @@ package javacafe.backend_files;
 import javacafe.Models.User;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 
 ///
@@ -24,13 +22,22 @@ public class FileController {
 
     }
 
-    public void writeNewRegister(User user) throws IOException {
+    /**
+     * Registra um novo café, atualizando o índice do CredentialStore e os arquivos.
+     * @param user O novo usuário.
+     * @return true se o café foi registrado, false se o nome já estava em uso.
+     * @throws IOException Se houver um erro ao ler o registro.
+     */
+    public boolean writeNewRegister(User user) throws IOException {
         System.out.println("writeNewRegister called");
-        BufferedWriter bw = new BufferedWriter(new FileWriter("backend_files/registers.txt", true));
-        String text = formatText(user);
-        bw.append(text);
-        bw.close();
-        incrementRegisters();
+        CredentialStore store = CredentialStore.get();
+        if (!store.add(user)) {
+            return false;
+        }
+        PersistenceWriter writer = PersistenceWriter.get();
+        writer.append(CredentialStore.REGISTERS_FILE, formatText(user));
+        writer.replace("backend_files/count.txt", String.valueOf(store.size()));
+        return true;
     }
 
     static User formatLine(String line) {
@@ -39,20 +46,19 @@ public class FileController {
     }
 
     public User reader(int desiredLine) throws IOException {
-        BufferedReader br = new BufferedReader(new FileReader("backend_files/registers.txt"));
-        String line = br.readLine();
-        int i = 0;
-        while(line != null) {
-            if (desiredLine == i) {
-                break;
+        try (BufferedReader br = new BufferedReader(new FileReader(CredentialStore.REGISTERS_FILE))) {
+            String line = br.readLine();
+            int i = 0;
+            while(line != null) {
+                if (desiredLine == i) {
+                    break;
+                }
+                i++;
+                line = br.readLine();
             }
-            i++;
-            line = br.readLine();
+            assert line != null;
+            return formatLine(line);
         }
-        assert line != null;
-        User user = formatLine(line);
-        br.close();
-        return user;
     }
 
     /**
@@ -61,25 +67,10 @@ public class FileController {
      * @throws IOException
      */
     public int getCurrentCount() throws IOException {
-        BufferedReader br = new BufferedReader(new FileReader("backend_files/count.txt"));
-        String string = br.readLine();
-        return Integer.parseInt(string);
-
-    }
-    /**
-     * Incrementa 1 no arquivo count.txt
-     * @throws IOException
-     */
-    private void incrementRegisters() throws IOException {
-
-        int oldValue = getCurrentCount();
-
-        oldValue++;
-
-        BufferedWriter bw = new BufferedWriter(new FileWriter("backend_files/count.txt", false));
-        String newValue = String.valueOf(oldValue);
-        bw.write(newValue);
-        bw.close();
+        try (BufferedReader br = new BufferedReader(new FileReader("backend_files/count.txt"))) {
+            String string = br.readLine();
+            return Integer.parseInt(string.trim());
+        }
     }
 
 
@@ -7,22 +7,15 @@ import java.io.IOException;
 public class LoginController{
 
     /**
-     * Verifica se o usuário passado está no arquivo registers.txt
+     * Verifica se o usuário passado está no arquivo registers.txt.
+     * A consulta é feita no índice do CredentialStore, sem reler o arquivo.
      * @param user User
      * @return true se o usuário é encontrado, false se não é encontrado
      * @throws IOException
      */
     public boolean validUser(User user) throws IOException {
-        FileController fc = new FileController();
-        int n = fc.getCurrentCount();
-        for (int i = 0; i < n; i++) {
-            User u = fc.reader(i);
-            if ((u.getName().equals(user.getName())) && (u.getPassword().equals(user.getPassword()))) {
-                return true;
-            }
-        }
-
-        return false;
+        User u = CredentialStore.get().find(user.getName());
+        return u != null && u.getPassword().equals(user.getPassword());
     }
 
 
@@ -0,0 +1,357 @@
+package javacafe.backend_files;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ConstructorParameters;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Métricas da aplicação em produção: histogramas de latência e contadores.
+ *
+ * As latências são medidas como no StartupTimer ({@link #begin} e {@link #end}) e guardadas
+ * por nome em histogramas de tamanho fixo, então registrar uma medição não aloca nem trava.
+ * Os nomes seguem um prefixo por origem: "ui." para os handlers das telas, "io.read." e
+ * "io.write." para os arquivos (um por arquivo, pelo caminho a partir da pasta da aplicação,
+ * então o inventory.txt de cada café tem o seu; os bytes vão para o contador com ".bytes"
+ * no fim) e "fx." para as travadas da thread da interface.
+ *
+ * As métricas ficam disponíveis pelo JMX ({@value #OBJECT_NAME}, por exemplo no JConsole) e,
+ * com -Djavacafe.metrics.port=N, em texto em http://127.0.0.1:N/metrics.
+ */
+public final class Metrics {
+
+    public static final String OBJECT_NAME = "javacafe:type=Metrics";
+
+    private static final Map<String, Histogram> LATENCIES = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Path WORKING_DIRECTORY = Paths.get("").toAbsolutePath();
+    private static HttpServer endpoint;
+
+    static {
+        // Subir o servidor de MBeans da plataforma leva centenas de ms; a primeira métrica
+        // costuma ser registrada na thread da interface, durante a inicialização.
+        Thread registration = new Thread(Metrics::registerMBean, "metrics-jmx");
+        registration.setDaemon(true);
+        registration.start();
+    }
+
+    private Metrics() {
+    }
+
+    private static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Erro ao registrar as métricas no JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Um marcador para medir uma operação com {@link #end}.
+     */
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra a latência de uma operação que começou no marcador dado.
+     */
+    public static void end(String name, long begin) {
+        record(name, System.nanoTime() - begin);
+    }
+
+    /**
+     * Registra uma latência já medida, em nanossegundos.
+     */
+    public static void record(String name, long nanos) {
+        LATENCIES.computeIfAbsent(name, key -> new Histogram()).record(nanos);
+    }
+
+    public static void count(String name) {
+        count(name, 1);
+    }
+
+    public static void count(String name, long amount) {
+        COUNTERS.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Registra uma leitura de arquivo: a latência em "io.read.caminho" e os bytes no contador
+     * "io.read.caminho.bytes" (ex.: "io.read.files/cafes/centro/inventory.txt").
+     */
+    public static void fileRead(Path path, long bytes, long begin) {
+        file("io.read.", path, bytes, begin);
+    }
+
+    /**
+     * Registra uma escrita de arquivo: a latência em "io.write.caminho" e os bytes no contador
+     * "io.write.caminho.bytes".
+     */
+    public static void fileWrite(Path path, long bytes, long begin) {
+        file("io.write.", path, bytes, begin);
+    }
+
+    private static void file(String prefix, Path path, long bytes, long begin) {
+        String name = prefix + fileKey(path);
+        end(name, begin);
+        count(name + ".bytes", bytes);
+    }
+
+    /**
+     * @return O caminho do arquivo a partir da pasta da aplicação (o caminho absoluto, se
+     * estiver fora dela), com "/" como separador.
+     */
+    private static String fileKey(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path key = absolute.startsWith(WORKING_DIRECTORY) ? WORKING_DIRECTORY.relativize(absolute) : absolute;
+        return key.toString().replace('\\', '/');
+    }
+
+    /**
+     * @return O valor atual do contador (0 se nunca foi usado).
+     */
+    public static long counter(String name) {
+        LongAdder counter = COUNTERS.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return O resumo do histograma, ou null se nada foi registrado com esse nome.
+     */
+    public static LatencySummary latency(String name) {
+        Histogram histogram = LATENCIES.get(name);
+        return histogram == null ? null : histogram.summary();
+    }
+
+    /**
+     * Zera todas as métricas.
+     */
+    public static void reset() {
+        LATENCIES.clear();
+        COUNTERS.clear();
+    }
+
+    /**
+     * @return Todas as métricas em texto, uma por linha, em ordem alfabética: os contadores
+     * como "nome valor" e as latências (em ms) como "nome count=N mean=.. p50=.. p90=.. p99=.. max=..".
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("# javacafe ").append(LocalDateTime.now().withNano(0)).append('\n');
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(COUNTERS).entrySet()) {
+            sb.append(counter.getKey()).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> latency : new TreeMap<>(LATENCIES).entrySet()) {
+            LatencySummary summary = latency.getValue().summary();
+            sb.append(latency.getKey()).append(" count=").append(summary.getCount());
+            appendMillis(sb, " mean=", summary.getMeanMicros());
+            appendMillis(sb, " p50=", summary.getP50Micros());
+            appendMillis(sb, " p90=", summary.getP90Micros());
+            appendMillis(sb, " p99=", summary.getP99Micros());
+            appendMillis(sb, " max=", summary.getMaxMicros());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendMillis(StringBuilder sb, String label, long micros) {
+        sb.append(label).append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) sb.append('0');
+        if (fraction < 10) sb.append('0');
+        sb.append(fraction);
+    }
+
+    /**
+     * Sobe o endpoint de texto em 127.0.0.1 (GET /metrics devolve {@link #report}).
+     * Chamadas seguintes não fazem nada.
+     * @throws IOException Se a porta não puder ser aberta.
+     */
+    public static synchronized void startEndpoint(int port) throws IOException {
+        if (endpoint != null) {
+            return;
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            try (exchange) {
+                byte[] body = report().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        endpoint = server;
+        System.out.println("Métricas disponíveis em http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public static synchronized void stopEndpoint() {
+        if (endpoint != null) {
+            endpoint.stop(0);
+            endpoint = null;
+        }
+    }
+
+    /**
+     * Histograma de latências com faixas logarítmicas em microssegundos: 8 faixas por potência
+     * de 2, então os percentis têm no máximo 12,5% de erro, de 1 µs até alguns dias.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BITS + 1);
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            buckets.incrementAndGet(bucket(micros));
+            count.increment();
+            sumMicros.add(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        static int bucket(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @return O maior valor que cai na faixa.
+         */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+            long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+            return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+        }
+
+        LatencySummary summary() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long max = maxMicros.get();
+            long mean = total == 0 ? 0 : sumMicros.sum() / total;
+            return new LatencySummary(total, mean, percentile(counts, total, 0.50, max),
+                    percentile(counts, total, 0.90, max), percentile(counts, total, 0.99, max), max);
+        }
+
+        private static long percentile(long[] counts, long total, double fraction, long max) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * O resumo de um histograma, em microssegundos (aparece no JMX como um CompositeData).
+     */
+    public static final class LatencySummary {
+        private final long count;
+        private final long meanMicros;
+        private final long p50Micros;
+        private final long p90Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        @ConstructorParameters({"count", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "maxMicros"})
+        public LatencySummary(long count, long meanMicros, long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() { return count; }
+        public long getMeanMicros() { return meanMicros; }
+        public long getP50Micros() { return p50Micros; }
+        public long getP90Micros() { return p90Micros; }
+        public long getP99Micros() { return p99Micros; }
+        public long getMaxMicros() { return maxMicros; }
+    }
+
+    /**
+     * A interface das métricas no JMX.
+     */
+    public interface MetricsMXBean {
+        Map<String, Long> getCounters();
+
+        Map<String, LatencySummary> getLatencies();
+
+        String getReport();
+
+        void reset();
+    }
+
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> counters = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> counter : COUNTERS.entrySet()) {
+                counters.put(counter.getKey(), counter.getValue().sum());
+            }
+            return counters;
+        }
+
+        @Override
+        public Map<String, LatencySummary> getLatencies() {
+            Map<String, LatencySummary> latencies = new TreeMap<>();
+            for (Map.Entry<String, Histogram> latency : LATENCIES.entrySet()) {
+                latencies.put(latency.getKey(), latency.getValue().summary());
+            }
+            return latencies;
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package javacafe.backend_files;
+
+import javacafe.Models.Cart;
+import javacafe.Models.Inventory;
+import javacafe.Models.Product;
+import javacafe.Models.Promotions;
+import javacafe.Models.SaleRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor de pedidos sem interface gráfica.
+ * Mantém um carrinho por caixa (identificado por uma string) sobre o inventário
+ * compartilhado, então vários caixas, um quiosque e as telas JavaFX podem vender
+ * ao mesmo tempo contra o mesmo estoque. As telas usam o caixa {@link #LOCAL_REGISTER};
+ * os outros clientes chegam pelo EngineServer.
+ * Os pedidos, itens e faltas de estoque são contados nas Metrics, e cada pedido
+ * finalizado alimenta a previsão de falta de estoque (StockForecast).
+ */
+public final class OrderEngine {
+
+    public static final String LOCAL_REGISTER = "local";
+    // Nome das linhas de desconto no livro de vendas: "promo " + nome da regra
+    public static final String DISCOUNT_PREFIX = "promo ";
+
+    // Período das vendas que ordenam a busca de produtos quando o motor é criado
+    private static final long RECENT_SALES_MS = 14L * 24 * 60 * 60 * 1000;
+
+    private final Inventory inventory;
+    private final SalesLedger ledger;
+    private final SalesRollups rollups;
+    private final ReceiptArchive receipts;
+    private final StockForecast forecast;
+    private final ReceiptRenderer receiptRenderer = new ReceiptRenderer(ReceiptRenderer.PRINTER_80);
+    private final Promotions promotions;
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+
+    OrderEngine(Inventory inventory, Promotions promotions, SalesLedger ledger,
+                        SalesRollups rollups, ReceiptArchive receipts, StockForecast forecast) {
+        this.inventory = inventory;
+        this.promotions = promotions;
+        this.ledger = ledger;
+        this.rollups = rollups;
+        this.receipts = receipts;
+        this.forecast = forecast;
+        // O livro e o índice de recibos são gravados separadamente; se uma queda de energia
+        // levou só as últimas vendas do livro, os números continuam depois do último recibo.
+        if (ledger.skipOrderIdsThrough(receipts.lastOrderId())) {
+            System.err.println("AVISO: o arquivo de recibos tem pedidos que não estão no livro de vendas; "
+                    + "os próximos pedidos começam depois do #" + receipts.lastOrderId());
+        }
+        // A busca de produtos começa com as vendas das últimas duas semanas
+        long now = System.currentTimeMillis();
+        Map<String, Long> recentUnits = new HashMap<>();
+        for (Map.Entry<String, long[]> total : rollups.totalsByProduct(SalesRollups.Granularity.DAY,
+                now - RECENT_SALES_MS, now + 1).entrySet()) {
+            recentUnits.put(total.getKey(), total.getValue()[0]);
+        }
+        inventory.getSearchIndex().seedPopularity(recentUnits);
+    }
+
+    /**
+     * @return O motor da partição do café atual, criado sobre os dados dela no primeiro uso.
+     * @throws IOException Se houver um erro ao carregar o inventário.
+     */
+    public static OrderEngine get() throws IOException {
+        return CafePartition.current().engine();
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public SalesLedger getLedger() {
+        return ledger;
+    }
+
+    public SalesRollups getRollups() {
+        return rollups;
+    }
+
+    public ReceiptArchive getReceipts() {
+        return receipts;
+    }
+
+    public StockForecast getForecast() {
+        return forecast;
+    }
+
+    /**
+     * @param registerId O identificador do caixa.
+     * @return O carrinho aberto desse caixa (criado vazio se ainda não existir).
+     */
+    public Cart cart(String registerId) {
+        return carts.computeIfAbsent(registerId, id -> new Cart(promotions));
+    }
+
+    /**
+     * @return true se algum caixa tem um carrinho com itens (reservas ainda abertas).
+     */
+    public boolean hasOpenCarts() {
+        for (Cart cart : carts.values()) {
+            synchronized (cart) {
+                if (!cart.getItems().isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reserva uma unidade do produto e a coloca no carrinho do caixa.
+     * Só o carrinho do próprio caixa é travado; o estoque usa a reserva sem lock do Inventory.
+     * @return true se havia estoque; false se o produto está esgotado ou não existe.
+     */
+    public boolean addItem(String registerId, String productName) {
+        Cart cart = cart(registerId);
+        Product product = inventory.getProduct(productName);
+        synchronized (cart) {
+            if (product == null) {
+                return false;
+            }
+            if (!inventory.reserve(cart.getReservations(), productName, 1)) {
+                Metrics.count("stockouts");
+                return false;
+            }
+            cart.add(productName.toLowerCase(), product.getPriceCents());
+            Metrics.count("items.added");
+            return true;
+        }
+    }
+
+    /**
+     * Tira uma unidade do produto do carrinho e libera a reserva.
+     * @return false se o produto não estava no carrinho.
+     */
+    public boolean removeItem(String registerId, String productName) {
+        Cart cart = cart(registerId);
+        synchronized (cart) {
+            if (!inventory.release(cart.getReservations(), productName, 1)) {
+                return false;
+            }
+            cart.remove(productName.toLowerCase());
+            Metrics.count("items.removed");
+            return true;
+        }
+    }
+
+    /**
+     * Abandona o pedido do caixa, devolvendo todas as reservas ao estoque disponível.
+     */
+    public void cancel(String registerId) {
+        Cart cart = cart(registerId);
+        synchronized (cart) {
+            if (!cart.getItems().isEmpty()) {
+                Metrics.count("orders.cancelled");
+            }
+            inventory.releaseAll(cart.getReservations());
+            cart.clear();
+        }
+    }
+
+    /**
+     * Fecha o caixa: abandona o pedido aberto, como {@link #cancel}, e esquece o carrinho.
+     * Usado quando um caixa remoto se desconecta, para que as reservas voltem ao estoque
+     * e os carrinhos de caixas que não existem mais não fiquem na memória.
+     */
+    public void closeRegister(String registerId) {
+        Cart cart = carts.get(registerId);
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            cancel(registerId);
+            carts.remove(registerId, cart);
+        }
+    }
+
+    /**
+     * Finaliza o pedido do caixa: confirma as reservas no estoque, registra cada item
+     * no livro de vendas com um número de pedido novo (e cada promoção aplicada como uma
+     * linha de preço negativo), atualiza as tabelas de totais, guarda o recibo no
+     * ReceiptArchive e esvazia o carrinho. As vendas também passam a ordenar a busca de produtos
+     * e a atualizar as velocidades da previsão de estoque.
+     * @return O pedido finalizado, ou null se as reservas não conferem com o estoque
+     * (nada é vendido, e o carrinho continua aberto).
+     */
+    public FinishedOrder finish(String registerId) {
+        Cart cart = cart(registerId);
+        Map<String, Integer> items;
+        Map<String, Long> discounts;
+        long subtotalCents;
+        long taxCents;
+        synchronized (cart) {
+            // O que é vendido é o que foi reservado (o carrinho tem os mesmos itens)
+            items = cart.getReservations().getItems();
+            discounts = cart.getAppliedDiscounts();
+            subtotalCents = cart.getSubtotalCents();
+            taxCents = cart.getTaxCents();
+            if (!inventory.commit(cart.getReservations())) {
+                Metrics.count("orders.failed");
+                return null;
+            }
+            cart.clear();
+        }
+        if (items.isEmpty()) {
+            return new FinishedOrder(0, System.currentTimeMillis(), items);
+        }
+        // O número do pedido é reservado dentro da trava, para que livro, tabelas e recibos
+        // recebam os pedidos na mesma ordem crescente, e as tabelas cubram sempre um
+        // prefixo do livro.
+        synchronized (ledger) {
+            List<SaleRecord> records = toSaleRecords(registerId, items, discounts, subtotalCents);
+            FinishedOrder order = new FinishedOrder(records.get(0).getOrderId(), records.get(0).getTimestamp(), items);
+            ledger.append(records);
+            rollups.record(records);
+            forecast.record(records);
+            for (SaleRecord record : records) {
+                inventory.getSearchIndex().recordSale(record.getProductName(), record.getQuantity(), record.getTimestamp());
+            }
+            storeReceipt(order, renderReceipt(records, taxCents));
+            Metrics.count("orders");
+            Metrics.count("items", order.getUnits());
+            return order;
+        }
+    }
+
+    /**
+     * Guarda o recibo de um pedido já vendido. A venda não é desfeita se o arquivo de recibos
+     * recusar o recibo: o estoque e o livro já a registraram, e só a cópia do recibo falta.
+     */
+    private void storeReceipt(FinishedOrder order, String text) {
+        try {
+            receipts.store(order.getOrderId(), order.getTimestamp(), text);
+        } catch (IllegalArgumentException e) {
+            Metrics.count("receipts.failed");
+            System.err.println("Erro ao arquivar o recibo do pedido #" + order.getOrderId() + ": " + e.getMessage());
+        }
+    }
+
+    private List<SaleRecord> toSaleRecords(String registerId, Map<String, Integer> items,
+                                           Map<String, Long> discounts, long subtotalCents) {
+        long orderId = ledger.nextOrderId();
+        long now = System.currentTimeMillis();
+        List<SaleRecord> records = new ArrayList<>(items.size() + discounts.size());
+        for (Map.Entry<String, Integer> item : items.entrySet()) {
+            Product product = inventory.getProduct(item.getKey());
+            if (product == null || item.getValue() <= 0) {
+                continue;
+            }
+            records.add(new SaleRecord(now, orderId, registerId, product.getName(),
+                    item.getValue(), product.getPriceCents()));
+        }
+        // Os descontos somados nunca passam do subtotal
+        long remaining = subtotalCents;
+        for (Map.Entry<String, Long> discount : discounts.entrySet()) {
+            long cents = Math.min(discount.getValue(), remaining);
+            if (cents > 0) {
+                records.add(new SaleRecord(now, orderId, registerId, DISCOUNT_PREFIX + discount.getKey(), 1, -cents));
+                remaining -= cents;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Monta o texto do recibo guardado no arquivo, no layout da impressora de 80 colunas.
+     * Só é chamado dentro da trava do livro, então o renderizador pode ser compartilhado.
+     */
+    private String renderReceipt(List<SaleRecord> records, long taxCents) {
+        SaleRecord first = records.get(0);
+        receiptRenderer.begin(first.getOrderId(), first.getTimestamp(), first.getRegisterId());
+        long discountCents = 0;
+        for (SaleRecord record : records) {
+            if (record.getUnitPriceCents() < 0) {
+                discountCents -= record.getTotalCents();
+            } else {
+                receiptRenderer.line(record.getProductName(), record.getQuantity(), record.getUnitPriceCents());
+            }
+        }
+        return receiptRenderer.finish(discountCents, taxCents).toString();
+    }
+
+    /**
+     * Um pedido finalizado: o número (0 se o carrinho estava vazio), o momento e os itens vendidos.
+     */
+    public static final class FinishedOrder {
+        private final long orderId;
+        private final long timestamp;
+        private final Map<String, Integer> items;
+
+        FinishedOrder(long orderId, long timestamp, Map<String, Integer> items) {
+            this.orderId = orderId;
+            this.timestamp = timestamp;
+            this.items = Collections.unmodifiableMap(items);
+        }
+
+        public long getOrderId() { return orderId; }
+        public long getTimestamp() { return timestamp; }
+        public Map<String, Integer> getItems() { return items; }
+
+        /** @return Quantas unidades foram vendidas no pedido. */
+        public int getUnits() {
+            int units = 0;
+            for (int quantity : items.values()) {
+                units += quantity;
+            }
+            return units;
+        }
+    }
+}
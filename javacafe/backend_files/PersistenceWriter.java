@@ -0,0 +1,418 @@
+package javacafe.backend_files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estágio de persistência em segundo plano.
+ * Os controllers entregam pedidos de escrita aqui e seguem em frente; uma única thread
+ * grava os arquivos na ordem em que os pedidos chegaram. Reescritas repetidas do mesmo
+ * arquivo que ainda não foram gravadas são colapsadas no conteúdo mais recente.
+ *
+ * O modo de durabilidade é escolhido pela propriedade de sistema "javacafe.durability":
+ * "sync" grava e força o disco na própria thread que chamou, "async" grava em segundo
+ * plano sem forçar o disco, e "batched" (padrão) junta os pedidos a cada
+ * "javacafe.durability.batchMs" milissegundos e força o disco uma vez por arquivo.
+ * Cada escrita é registrada nas Metrics ("io.write." + caminho do arquivo), e cada força do disco em "io.force".
+ */
+public final class PersistenceWriter {
+
+    public enum DurabilityMode { SYNC, ASYNC, BATCHED }
+
+    /**
+     * Uma escrita arbitrária, executada na thread de persistência na ordem de chegada.
+     */
+    @FunctionalInterface
+    public interface IoTask {
+        void run() throws IOException;
+    }
+
+    private static final long DEFAULT_BATCH_MILLIS = 50;
+
+    private static final PersistenceWriter INSTANCE = new PersistenceWriter(
+            parseMode(System.getProperty("javacafe.durability", "batched")),
+            Long.getLong("javacafe.durability.batchMs", DEFAULT_BATCH_MILLIS));
+
+    private final DurabilityMode mode;
+    private final long batchMillis;
+    private final LinkedBlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    // Reescritas ainda na fila que podem receber um conteúdo mais novo.
+    private final Map<Path, ReplaceOperation> openReplaces = new HashMap<>();
+    // Canais de append mantidos abertos entre pedidos (usados só pela thread de escrita).
+    private final Map<Path, FileChannel> appendChannels = new HashMap<>();
+    private final Set<FileChannel> dirtyChannels = new LinkedHashSet<>();
+
+    PersistenceWriter(DurabilityMode mode, long batchMillis) {
+        this.mode = mode;
+        this.batchMillis = batchMillis;
+        if (mode != DurabilityMode.SYNC) {
+            Thread thread = new Thread(this::runLoop, "persistence-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushQuietly, "persistence-writer-shutdown"));
+    }
+
+    /**
+     * @return O estágio de persistência compartilhado pela aplicação.
+     */
+    public static PersistenceWriter get() {
+        return INSTANCE;
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Substitui todo o conteúdo de um arquivo. Se uma substituição anterior do mesmo
+     * arquivo ainda estiver na fila, apenas o conteúdo mais recente será gravado.
+     * @param path O caminho do arquivo.
+     * @param content O novo conteúdo do arquivo.
+     */
+    public void replace(String path, String content) {
+        replace(Paths.get(path), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void replace(Path path, byte[] content) {
+        if (mode == DurabilityMode.SYNC) {
+            runNow(new ReplaceOperation(path, content));
+            return;
+        }
+        synchronized (openReplaces) {
+            ReplaceOperation pending = openReplaces.get(path);
+            if (pending != null) {
+                pending.content = content;
+                return;
+            }
+            ReplaceOperation operation = new ReplaceOperation(path, content);
+            openReplaces.put(path, operation);
+            queue.add(operation);
+        }
+    }
+
+    /**
+     * Acrescenta dados ao final de um arquivo, preservando a ordem dos pedidos.
+     * @param path O caminho do arquivo.
+     * @param content O texto a ser acrescentado.
+     */
+    public void append(String path, String content) {
+        append(Paths.get(path), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void append(Path path, byte[] content) {
+        enqueue(new AppendOperation(path, content), path);
+    }
+
+    /**
+     * Executa uma escrita arbitrária depois de todos os pedidos já entregues.
+     * Os canais de append são fechados antes, então a tarefa pode mover ou apagar arquivos.
+     * @param task A tarefa de escrita.
+     */
+    public void execute(IoTask task) {
+        enqueue(new TaskOperation(task), null);
+    }
+
+    /**
+     * Chama o callback na thread de persistência assim que os pedidos entregues até agora
+     * tiverem sido escritos (visíveis para quem ler os arquivos, mas não necessariamente
+     * forçados em disco). Ao contrário de {@link #execute}, não fecha os canais de append.
+     * @param callback O que fazer depois das escritas; deve ser rápido.
+     */
+    public void whenWritten(Runnable callback) {
+        if (mode == DurabilityMode.SYNC) {
+            callback.run();
+            return;
+        }
+        queue.add(new CallbackOperation(callback));
+    }
+
+    /**
+     * Espera até que todos os pedidos entregues até agora estejam gravados
+     * (e forçados em disco, nos modos "sync" e "batched").
+     */
+    public void flush() {
+        if (mode == DurabilityMode.SYNC) {
+            return;
+        }
+        FlushOperation operation = new FlushOperation();
+        enqueue(operation, null);
+        try {
+            operation.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao esvaziar a fila de persistência: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Coloca uma operação na fila. Uma substituição pendente do mesmo arquivo (ou de
+     * qualquer arquivo, para tarefas) deixa de aceitar conteúdo novo, para que nada
+     * seja gravado fora de ordem em relação a esta operação.
+     */
+    private void enqueue(Operation operation, Path path) {
+        if (mode == DurabilityMode.SYNC) {
+            runNow(operation);
+            return;
+        }
+        synchronized (openReplaces) {
+            if (path == null) {
+                openReplaces.clear();
+            } else {
+                openReplaces.remove(path);
+            }
+            queue.add(operation);
+        }
+    }
+
+    private synchronized void runNow(Operation operation) {
+        List<Operation> batch = new ArrayList<>(1);
+        batch.add(operation);
+        process(batch);
+    }
+
+    private void runLoop() {
+        List<Operation> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                if (mode == DurabilityMode.BATCHED) {
+                    TimeUnit.MILLISECONDS.sleep(batchMillis);
+                }
+                queue.drainTo(batch);
+                process(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Erro inesperado na thread de persistência: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Aplica as operações do lote. Uma operação que falha (inclusive com uma RuntimeException
+     * de uma tarefa ou de um callback) é registrada e não impede as seguintes, e quem espera
+     * um flush deste lote é sempre liberado.
+     */
+    private void process(List<Operation> batch) {
+        try {
+            for (Operation operation : batch) {
+                if (operation instanceof FlushOperation) {
+                    continue;
+                }
+                try {
+                    operation.apply();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Erro ao gravar " + operation.describe() + ": " + e.getMessage());
+                }
+            }
+            if (mode != DurabilityMode.ASYNC) {
+                forceDirtyChannels();
+            }
+            dirtyChannels.clear();
+        } finally {
+            for (Operation operation : batch) {
+                if (operation instanceof FlushOperation) {
+                    ((FlushOperation) operation).done.countDown();
+                }
+            }
+        }
+    }
+
+    private void forceDirtyChannels() {
+        for (FileChannel channel : dirtyChannels) {
+            long begin = Metrics.begin();
+            try {
+                channel.force(false);
+                Metrics.end("io.force", begin);
+            } catch (IOException e) {
+                System.err.println("Erro ao forçar a gravação em disco: " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeAppendChannels() {
+        if (mode != DurabilityMode.ASYNC) {
+            forceDirtyChannels();
+        }
+        dirtyChannels.clear();
+        for (FileChannel channel : appendChannels.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar arquivo: " + e.getMessage());
+            }
+        }
+        appendChannels.clear();
+    }
+
+    private static void writeFully(FileChannel channel, byte[] content) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static DurabilityMode parseMode(String value) {
+        try {
+            return DurabilityMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Modo de durabilidade desconhecido: " + value + ". Usando 'batched'.");
+            return DurabilityMode.BATCHED;
+        }
+    }
+
+    // --- Operações da fila ---
+
+    private abstract static class Operation {
+        abstract void apply() throws IOException;
+
+        abstract String describe();
+    }
+
+    private final class ReplaceOperation extends Operation {
+        private final Path path;
+        private byte[] content;
+
+        ReplaceOperation(Path path, byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+
+        @Override
+        void apply() throws IOException {
+            byte[] latest;
+            synchronized (openReplaces) {
+                openReplaces.remove(path, this);
+                latest = content;
+            }
+            FileChannel channel = appendChannels.remove(path);
+            if (channel != null) {
+                dirtyChannels.remove(channel);
+                channel.close();
+            }
+            // Grava em um arquivo temporário e troca com um rename atômico,
+            // para que uma queda no meio da escrita não deixe o arquivo pela metade.
+            long begin = Metrics.begin();
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, latest);
+                if (mode != DurabilityMode.ASYNC) {
+                    out.force(false);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Metrics.fileWrite(path, latest.length, begin);
+        }
+
+        @Override
+        String describe() {
+            return path.toString();
+        }
+    }
+
+    private final class AppendOperation extends Operation {
+        private final Path path;
+        private final byte[] content;
+
+        AppendOperation(Path path, byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+
+        @Override
+        void apply() throws IOException {
+            long begin = Metrics.begin();
+            FileChannel channel = appendChannels.get(path);
+            if (channel == null) {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                appendChannels.put(path, channel);
+            }
+            writeFully(channel, content);
+            dirtyChannels.add(channel);
+            Metrics.fileWrite(path, content.length, begin);
+        }
+
+        @Override
+        String describe() {
+            return path.toString();
+        }
+    }
+
+    private final class TaskOperation extends Operation {
+        private final IoTask task;
+
+        TaskOperation(IoTask task) {
+            this.task = task;
+        }
+
+        @Override
+        void apply() throws IOException {
+            closeAppendChannels();
+            task.run();
+        }
+
+        @Override
+        String describe() {
+            return "tarefa de persistência";
+        }
+    }
+
+    private static final class CallbackOperation extends Operation {
+        private final Runnable callback;
+
+        CallbackOperation(Runnable callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        void apply() {
+            callback.run();
+        }
+
+        @Override
+        String describe() {
+            return "callback de persistência";
+        }
+    }
+
+    private static final class FlushOperation extends Operation {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        void apply() {
+        }
+
+        @Override
+        String describe() {
+            return "flush";
+        }
+    }
+}
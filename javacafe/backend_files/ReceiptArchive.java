@@ -0,0 +1,337 @@
+package javacafe.backend_files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Arquivo de recibos: substitui os arquivos soltos receipt_*.txt.
+ *
+ * Os recibos ficam comprimidos (deflate com um dicionário de palavras comuns em recibos)
+ * em segmentos de até {@value #SEGMENT_MAX_BYTES} bytes, receipts/receipts-NNNNNN.seg
+ * na pasta da partição do café (files/ ou files/cafes/nome/).
+ * Cada recibo no segmento é "int tamanhoOriginal" seguido dos bytes comprimidos.
+ *
+ * O índice receipts/receipts.idx tem um cabeçalho de {@value #HEADER_SIZE} bytes
+ * ("JCRI", versão) e uma entrada de {@value #ENTRY_SIZE} bytes por recibo:
+ * <pre>
+ * 0   long  número do pedido
+ * 8   long  momento do pedido (ms desde a época)
+ * 16  long  posição no segmento
+ * 24  int   número do segmento
+ * 28  int   tamanho no segmento
+ * </pre>
+ * Os números de pedido e os momentos só crescem, então a busca por número e a listagem
+ * por período são buscas binárias no índice, sem ler os segmentos nem varrer diretórios.
+ * As gravações passam pelo PersistenceWriter (primeiro o segmento, depois o índice).
+ */
+public final class ReceiptArchive {
+
+    public static final int HEADER_SIZE = 16;
+    public static final int ENTRY_SIZE = 32;
+    public static final long SEGMENT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4A435249; // "JCRI"
+    private static final int VERSION = 1;
+    private static final String INDEX_FILE = "receipts.idx";
+
+    // Não pode mudar depois que houver recibos gravados: a leitura depende dele.
+    private static final byte[] DICTIONARY = ("------------------------------------------------------------------\n"
+            + "Valor: \t\t\t R$ \nReceipt\nPedido #  caixa local\n\t R$ 0.00\n"
+            + "capuccino: latte: mate: espresso f: espresso: cookie: brownie:                     ")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final Path directory;
+    private final Path indexPath;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final byte[] compressBuffer = new byte[8 * 1024];
+    private long entryCount;
+    private long lastOrderId;
+    private long lastTimestamp;
+    private int segment;
+    private long segmentSize;
+    // Quantas entradas já estão no arquivo de índice (as demais ainda estão na fila de gravação).
+    private volatile long writtenEntries;
+
+    ReceiptArchive(Path directory) throws IOException {
+        this.directory = directory;
+        this.indexPath = directory.resolve(INDEX_FILE);
+        open();
+    }
+
+    /**
+     * @return O arquivo de recibos da partição do café atual (receipts/), aberto na primeira chamada.
+     * @throws IOException Se o índice não puder ser lido ou tiver um formato desconhecido.
+     */
+    public static ReceiptArchive get() throws IOException {
+        return CafePartition.current().receipts();
+    }
+
+    /**
+     * Cria o índice ou valida o existente. Entradas do final que apontam para dados que
+     * não chegaram ao segmento (queda de energia entre as duas gravações) são descartadas.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(ENTRY_SIZE).putInt(0).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                channel.force(true);
+            } else {
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != ENTRY_SIZE) {
+                    throw new IOException("Formato desconhecido no índice de recibos: " + indexPath);
+                }
+            }
+            long count = (channel.size() - HEADER_SIZE) / ENTRY_SIZE;
+            segment = 1;
+            while (count > 0) {
+                Entry last = readEntry(channel, count - 1);
+                Path segmentPath = segmentPath(last.segment);
+                if (Files.exists(segmentPath) && Files.size(segmentPath) >= last.offset + last.length) {
+                    lastOrderId = last.orderId;
+                    lastTimestamp = last.timestamp;
+                    segment = last.segment;
+                    break;
+                }
+                count--;
+            }
+            long complete = HEADER_SIZE + count * ENTRY_SIZE;
+            if (complete != channel.size()) {
+                channel.truncate(complete);
+            }
+            entryCount = count;
+            writtenEntries = count;
+        }
+        Path current = segmentPath(segment);
+        segmentSize = Files.exists(current) ? Files.size(current) : 0;
+    }
+
+    /**
+     * Comprime e entrega um recibo ao arquivo.
+     * @param orderId O número do pedido; deve ser maior que o do último recibo guardado.
+     * @param timestamp O momento do pedido.
+     * @param text O texto do recibo.
+     * @throws IllegalArgumentException Se o número do pedido não for crescente.
+     */
+    public synchronized void store(long orderId, long timestamp, String text) {
+        if (orderId <= lastOrderId) {
+            throw new IllegalArgumentException("Número de pedido fora de ordem: " + orderId + " <= " + lastOrderId);
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(raw);
+        if (segmentSize > 0 && segmentSize + compressed.length > SEGMENT_MAX_BYTES) {
+            segment++;
+            segmentSize = 0;
+        }
+        // O índice exige momentos crescentes, mesmo se o relógio da máquina voltar.
+        long indexedTimestamp = Math.max(timestamp, lastTimestamp);
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putLong(orderId).putLong(indexedTimestamp).putLong(segmentSize)
+                .putInt(segment).putInt(compressed.length);
+
+        PersistenceWriter writer = PersistenceWriter.get();
+        writer.append(segmentPath(segment), compressed);
+        writer.append(indexPath, entry.array());
+        long written = ++entryCount;
+        writer.whenWritten(() -> writtenEntries = Math.max(writtenEntries, written));
+
+        segmentSize += compressed.length;
+        lastOrderId = orderId;
+        lastTimestamp = indexedTimestamp;
+    }
+
+    /**
+     * @return O texto do recibo do pedido, ou null se ele não está no arquivo.
+     */
+    public String find(long orderId) throws IOException {
+        awaitWritten();
+        try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long low = 0;
+            long high = writtenEntries - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                Entry entry = readEntry(index, middle);
+                if (entry.orderId < orderId) {
+                    low = middle + 1;
+                } else if (entry.orderId > orderId) {
+                    high = middle - 1;
+                } else {
+                    return read(entry);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lista os recibos de um período, sem descomprimir nenhum deles.
+     * @param from Início do período, em ms (inclusive).
+     * @param to Fim do período, em ms (exclusive).
+     * @param limit O máximo de entradas devolvidas.
+     * @return As entradas do período, da mais antiga para a mais recente.
+     */
+    public List<Entry> list(long from, long to, int limit) throws IOException {
+        awaitWritten();
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long count = writtenEntries;
+            long low = 0;
+            long high = count;
+            // Primeira entrada com momento >= from
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                if (readEntry(index, middle).timestamp < from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (long i = low; i < count && entries.size() < limit; i++) {
+                Entry entry = readEntry(index, i);
+                if (entry.timestamp >= to) {
+                    break;
+                }
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return O texto de um recibo listado por {@link #list}.
+     */
+    public String read(Entry entry) throws IOException {
+        long begin = Metrics.begin();
+        ByteBuffer data = ByteBuffer.allocate(entry.length).order(ByteOrder.LITTLE_ENDIAN);
+        Path segment = segmentPath(entry.segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            while (data.hasRemaining()) {
+                if (channel.read(data, entry.offset + data.position()) < 0) {
+                    throw new IOException("Recibo incompleto no segmento " + entry.segment);
+                }
+            }
+        }
+        Metrics.fileRead(segment, entry.length, begin);
+        return new String(decompress(data.array()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return O número do pedido do último recibo guardado (0 se não há nenhum).
+     */
+    public synchronized long lastOrderId() {
+        return lastOrderId;
+    }
+
+    /**
+     * @return Quantos recibos foram entregues ao arquivo.
+     */
+    public synchronized long size() {
+        return entryCount;
+    }
+
+    private void awaitWritten() {
+        long delivered;
+        synchronized (this) {
+            delivered = entryCount;
+        }
+        if (writtenEntries < delivered) {
+            PersistenceWriter.get().flush();
+        }
+    }
+
+    private byte[] compress(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        out.write(raw.length >>> 24);
+        out.write(raw.length >>> 16);
+        out.write(raw.length >>> 8);
+        out.write(raw.length);
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(raw);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(compressBuffer);
+            out.write(compressBuffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] stored) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(stored);
+        byte[] raw = new byte[buffer.getInt()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, 4, stored.length - 4);
+            int position = 0;
+            while (position < raw.length) {
+                int n = inflater.inflate(raw, position, raw.length - position);
+                if (n == 0 && inflater.needsDictionary()) {
+                    inflater.setDictionary(DICTIONARY);
+                } else if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Recibo corrompido no arquivo");
+                }
+                position += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Recibo corrompido no arquivo: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("receipts-%06d.seg", number));
+    }
+
+    private static Entry readEntry(FileChannel index, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long offset = HEADER_SIZE + position * ENTRY_SIZE;
+        while (buffer.hasRemaining()) {
+            if (index.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Índice de recibos incompleto");
+            }
+        }
+        buffer.flip();
+        return new Entry(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt());
+    }
+
+    /**
+     * Uma entrada do índice: onde está o recibo de um pedido.
+     */
+    public static final class Entry {
+        private final long orderId;
+        private final long timestamp;
+        private final long offset;
+        private final int segment;
+        private final int length;
+
+        Entry(long orderId, long timestamp, long offset, int segment, int length) {
+            this.orderId = orderId;
+            this.timestamp = timestamp;
+            this.offset = offset;
+            this.segment = segment;
+            this.length = length;
+        }
+
+        public long getOrderId() { return orderId; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
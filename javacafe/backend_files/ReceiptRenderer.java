@@ -0,0 +1,410 @@
+package javacafe.backend_files;
+
+import javacafe.Models.Money;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Monta o texto dos recibos a partir de layouts compilados uma única vez.
+ *
+ * Um layout tem seis modelos: cabeçalho, linha (um por item), separador (depois dos
+ * itens), desconto e imposto (só quando houver) e total (só quando o total é maior que
+ * zero). Nos modelos, "{campo}" é trocado
+ * pelo valor do campo, e a especificação depois de ":" ajusta a coluna:
+ * <pre>
+ * {name:20}     preenche com espaços à direita até 20 caracteres
+ * {subtotal:>9} alinha à direita em 9 caracteres
+ * {name:.3}     corta em 3 caracteres
+ * {col:40}      preenche a linha com espaços até a coluna 40
+ * </pre>
+ * Campos: order, date, register, name, qty, unit, subtotal, items (soma das linhas),
+ * discount, tax, total (a pagar: items - discount + tax), units.
+ * Os valores em dinheiro vêm em centavos e são escritos como "12.34" direto no buffer,
+ * sem String.format nem objetos intermediários por linha.
+ *
+ * Os layouts "detailed", "summary" e "printer80" já vêm prontos; qualquer um deles pode ser
+ * trocado, e novos podem ser criados, em files/receipt_layouts.properties
+ * (chaves "nome.header", "nome.line", "nome.separator", "nome.discount", "nome.tax" e "nome.total").
+ *
+ * Cada instância guarda o próprio buffer e não deve ser usada por duas threads ao mesmo tempo.
+ */
+public final class ReceiptRenderer {
+
+    public static final String DETAILED = "detailed";
+    public static final String SUMMARY = "summary";
+    public static final String PRINTER_80 = "printer80";
+
+    private static final String LAYOUTS_FILE = "files/receipt_layouts.properties";
+    private static final String RULE_80 = "--------------------------------------------------------------------------------\n";
+
+    private static final Map<String, Layout> LAYOUTS = loadLayouts(Paths.get(LAYOUTS_FILE));
+
+    private final Layout layout;
+    private final StringBuilder out = new StringBuilder(512);
+    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    // Campos do pedido e da linha sendo escrita
+    private long orderId;
+    private long timestamp;
+    private String registerId;
+    private String name;
+    private int quantity;
+    private long unitCents;
+    private long itemsCents;
+    private long discountCents;
+    private long taxCents;
+    private int units;
+
+    /**
+     * @param layoutName O nome do layout ("detailed", "summary", "printer80" ou um definido no arquivo).
+     * @throws IllegalArgumentException Se o layout não existir.
+     */
+    public ReceiptRenderer(String layoutName) {
+        this(layout(layoutName));
+    }
+
+    public ReceiptRenderer(Layout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * @return O layout com esse nome, compilado na carga da classe.
+     */
+    public static Layout layout(String name) {
+        Layout layout = LAYOUTS.get(name);
+        if (layout == null) {
+            throw new IllegalArgumentException("Layout de recibo desconhecido: " + name);
+        }
+        return layout;
+    }
+
+    /**
+     * Começa um recibo novo, reaproveitando o buffer, e escreve o cabeçalho.
+     * @param orderId O número do pedido (0 para um pedido ainda aberto).
+     * @param timestamp O momento do pedido.
+     * @param registerId O caixa.
+     */
+    public ReceiptRenderer begin(long orderId, long timestamp, String registerId) {
+        out.setLength(0);
+        this.orderId = orderId;
+        this.timestamp = timestamp;
+        this.registerId = registerId;
+        this.itemsCents = 0;
+        this.discountCents = 0;
+        this.taxCents = 0;
+        this.units = 0;
+        write(layout.header);
+        return this;
+    }
+
+    /**
+     * Escreve a linha de um item.
+     * @param productName O nome do produto.
+     * @param quantity A quantidade.
+     * @param unitCents O preço unitário em centavos.
+     */
+    public ReceiptRenderer line(String productName, int quantity, long unitCents) {
+        this.name = productName;
+        this.quantity = quantity;
+        this.unitCents = unitCents;
+        itemsCents = Money.add(itemsCents, Money.multiply(unitCents, quantity));
+        units += quantity;
+        write(layout.line);
+        return this;
+    }
+
+    /**
+     * Escreve o separador e o total, sem descontos nem imposto.
+     * @return O texto do recibo. É o próprio buffer: copie antes de chamar begin de novo.
+     */
+    public CharSequence finish() {
+        return finish(0, 0);
+    }
+
+    /**
+     * Escreve o separador, o desconto e o imposto (se houver) e o total.
+     * @param discountCents O desconto das promoções, em centavos.
+     * @param taxCents O imposto, em centavos.
+     * @return O texto do recibo. É o próprio buffer: copie antes de chamar begin de novo.
+     */
+    public CharSequence finish(long discountCents, long taxCents) {
+        this.name = null;
+        this.discountCents = discountCents;
+        this.taxCents = taxCents;
+        write(layout.separator);
+        if (discountCents > 0) {
+            write(layout.discount);
+        }
+        if (taxCents > 0) {
+            write(layout.tax);
+        }
+        if (getTotalCents() > 0) {
+            write(layout.total);
+        }
+        return out;
+    }
+
+    /**
+     * @return O valor a pagar: soma das linhas - desconto + imposto.
+     */
+    public long getTotalCents() {
+        return Money.add(Money.subtract(itemsCents, discountCents), taxCents);
+    }
+
+    private void write(Segment[] segments) {
+        for (Segment segment : segments) {
+            if (segment.field == null) {
+                out.append(segment.literal);
+                continue;
+            }
+            int start = out.length();
+            if (segment.field == Field.COL) {
+                int lineStart = out.lastIndexOf("\n") + 1;
+                while (out.length() - lineStart < segment.width) {
+                    out.append(' ');
+                }
+                continue;
+            }
+            appendField(segment.field);
+            if (segment.maxLength >= 0 && out.length() - start > segment.maxLength) {
+                out.setLength(start + segment.maxLength);
+            }
+            int padding = segment.width - (out.length() - start);
+            for (int i = 0; i < padding; i++) {
+                if (segment.rightAligned) {
+                    out.insert(start, ' ');
+                } else {
+                    out.append(' ');
+                }
+            }
+        }
+    }
+
+    private void appendField(Field field) {
+        switch (field) {
+            case ORDER:
+                out.append(orderId);
+                break;
+            case DATE:
+                dateFormat.formatTo(Instant.ofEpochMilli(timestamp), out);
+                break;
+            case REGISTER:
+                out.append(registerId);
+                break;
+            case NAME:
+                out.append(name);
+                break;
+            case QTY:
+                out.append(quantity);
+                break;
+            case UNIT:
+                appendMoney(unitCents);
+                break;
+            case SUBTOTAL:
+                appendMoney(Money.multiply(unitCents, quantity));
+                break;
+            case ITEMS:
+                appendMoney(itemsCents);
+                break;
+            case DISCOUNT:
+                appendMoney(discountCents);
+                break;
+            case TAX:
+                appendMoney(taxCents);
+                break;
+            case TOTAL:
+                appendMoney(getTotalCents());
+                break;
+            case UNITS:
+                out.append(units);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void appendMoney(long cents) {
+        Money.appendTo(out, cents);
+    }
+
+    // --- Compilação dos layouts ---
+
+    private enum Field { ORDER, DATE, REGISTER, NAME, QTY, UNIT, SUBTOTAL, ITEMS, DISCOUNT, TAX, TOTAL, UNITS, COL }
+
+    private static final class Segment {
+        private final String literal;
+        private final Field field;
+        private final int width;
+        private final int maxLength;
+        private final boolean rightAligned;
+
+        Segment(String literal, Field field, int width, int maxLength, boolean rightAligned) {
+            this.literal = literal;
+            this.field = field;
+            this.width = width;
+            this.maxLength = maxLength;
+            this.rightAligned = rightAligned;
+        }
+    }
+
+    /**
+     * Um layout compilado: os modelos já quebrados em trechos fixos e campos.
+     */
+    public static final class Layout {
+        private final Segment[] header;
+        private final Segment[] line;
+        private final Segment[] separator;
+        private final Segment[] discount;
+        private final Segment[] tax;
+        private final Segment[] total;
+
+        private Layout(Segment[] header, Segment[] line, Segment[] separator,
+                       Segment[] discount, Segment[] tax, Segment[] total) {
+            this.header = header;
+            this.line = line;
+            this.separator = separator;
+            this.discount = discount;
+            this.tax = tax;
+            this.total = total;
+        }
+
+        /**
+         * Compila um layout a partir dos seis modelos.
+         * @throws IllegalArgumentException Se algum modelo tiver um campo desconhecido ou mal formado.
+         */
+        public static Layout compile(String header, String line, String separator,
+                                     String discount, String tax, String total) {
+            return new Layout(parse(header), parse(line), parse(separator),
+                    parse(discount), parse(tax), parse(total));
+        }
+    }
+
+    private static Segment[] parse(String template) {
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+        while (position < template.length()) {
+            int open = template.indexOf('{', position);
+            if (open < 0) {
+                segments.add(new Segment(template.substring(position), null, 0, -1, false));
+                break;
+            }
+            if (open > position) {
+                segments.add(new Segment(template.substring(position, open), null, 0, -1, false));
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Campo sem '}' no modelo: " + template);
+            }
+            segments.add(parseField(template.substring(open + 1, close)));
+            position = close + 1;
+        }
+        return segments.toArray(new Segment[0]);
+    }
+
+    private static Segment parseField(String spec) {
+        int colon = spec.indexOf(':');
+        String fieldName = colon < 0 ? spec : spec.substring(0, colon);
+        Field field;
+        try {
+            field = Field.valueOf(fieldName.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Campo desconhecido no modelo de recibo: " + fieldName);
+        }
+        int width = 0;
+        int maxLength = -1;
+        boolean rightAligned = false;
+        if (colon >= 0) {
+            String format = spec.substring(colon + 1);
+            if (format.startsWith(">")) {
+                rightAligned = true;
+                format = format.substring(1);
+            }
+            int dot = format.indexOf('.');
+            try {
+                if (dot >= 0) {
+                    maxLength = Integer.parseInt(format.substring(dot + 1));
+                    format = format.substring(0, dot);
+                }
+                if (!format.isEmpty()) {
+                    width = Integer.parseInt(format);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Formato inválido no campo de recibo: " + spec);
+            }
+        }
+        return new Segment(null, field, width, maxLength, rightAligned);
+    }
+
+    private static Map<String, Layout> loadLayouts(Path path) {
+        Properties templates = new Properties();
+        templates.setProperty(DETAILED + ".header", "");
+        templates.setProperty(DETAILED + ".line", "{name}:{col:20} {qty} \t R$ {subtotal}\n");
+        templates.setProperty(DETAILED + ".separator", "------------------------------------------------------------------\n");
+        templates.setProperty(DETAILED + ".discount", "Desconto: \t\t -R$ {discount}\n");
+        templates.setProperty(DETAILED + ".tax", "Imposto: \t\t R$ {tax}\n");
+        templates.setProperty(DETAILED + ".total", "Valor: \t\t\t R$ {total}");
+
+        templates.setProperty(SUMMARY + ".header", "----------------------------------\n");
+        templates.setProperty(SUMMARY + ".line", "{name:.3}: {qty} | ");
+        templates.setProperty(SUMMARY + ".separator", "");
+        templates.setProperty(SUMMARY + ".discount", "\n-R$ {discount}");
+        templates.setProperty(SUMMARY + ".total", "\nR$ {total}");
+
+        templates.setProperty(PRINTER_80 + ".header", "JAVACAFE{col:52}Pedido #{order:>20}\n"
+                + "{date}{col:60}caixa {register:>14.14}\n" + RULE_80);
+        templates.setProperty(PRINTER_80 + ".line", "{name:.44}{col:44}{qty:>6} x {unit:>10}{col:64}R$ {subtotal:>13}\n");
+        templates.setProperty(PRINTER_80 + ".separator", RULE_80);
+        templates.setProperty(PRINTER_80 + ".discount", "DESCONTO{col:63}-R$ {discount:>13}\n");
+        templates.setProperty(PRINTER_80 + ".tax", "IMPOSTO{col:64}R$ {tax:>13}\n");
+        templates.setProperty(PRINTER_80 + ".total", "TOTAL ({units} un.){col:64}R$ {total:>13}\n");
+
+        Map<String, Layout> layouts = new HashMap<>();
+        compileAll(templates, layouts);
+        if (Files.exists(path)) {
+            // Os modelos do arquivo substituem os padrões; um layout inválido no arquivo
+            // é ignorado e o padrão de mesmo nome continua valendo.
+            Properties custom = new Properties(templates);
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                custom.load(reader);
+                compileAll(custom, layouts);
+            } catch (IOException e) {
+                System.err.println("Erro ao ler os layouts de recibo, usando os padrões: " + e.getMessage());
+            }
+        }
+        return layouts;
+    }
+
+    private static void compileAll(Properties templates, Map<String, Layout> layouts) {
+        for (String key : templates.stringPropertyNames()) {
+            if (!key.endsWith(".line")) {
+                continue;
+            }
+            String name = key.substring(0, key.length() - ".line".length());
+            try {
+                layouts.put(name, Layout.compile(
+                        templates.getProperty(name + ".header", ""),
+                        templates.getProperty(name + ".line"),
+                        templates.getProperty(name + ".separator", ""),
+                        templates.getProperty(name + ".discount", ""),
+                        templates.getProperty(name + ".tax", ""),
+                        templates.getProperty(name + ".total", "")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Layout de recibo '" + name + "' ignorado: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,666 @@
+package javacafe.backend_files;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Consultas analíticas sobre o livro de vendas: filtro por período (e, opcionalmente, por
+ * produto), agrupamento e soma de linhas, unidades, receita e pedidos por grupo.
+ *
+ * O livro é copiado para vetores primitivos, uma coluna por campo (momento, produto, caixa,
+ * unidades, centavos e o número sequencial do pedido), com os nomes de produtos e caixas
+ * trocados por números. A cópia é incremental: cada consulta primeiro lê só os registros
+ * que chegaram desde a anterior. A consulta divide as linhas em blocos que são somados em
+ * paralelo no ForkJoinPool comum e depois juntados, então anos de vendas de vários caixas
+ * são respondidos em milissegundos. Como as linhas de um pedido são vizinhas no livro, os
+ * pedidos distintos são contados sem conjuntos: só o pedido que atravessa a divisa entre
+ * dois blocos precisa ser descontado ao juntá-los.
+ *
+ * As linhas de desconto (preço negativo) entram na receita com zero unidades, como no
+ * SalesRollups. Horas e dias são os do fuso horário da loja.
+ */
+public final class SalesAnalytics {
+
+    public enum GroupBy { TOTAL, PRODUCT, REGISTER, HOUR, DAY, HOUR_OF_DAY, DAY_OF_WEEK }
+
+    public enum SortBy { KEY, UNITS, CENTS, ORDERS }
+
+    // Linhas por bloco somado em uma tarefa; com muitos grupos, os blocos crescem para que
+    // zerar os vetores do bloco não custe mais que somar as linhas
+    private static final int LEAF_ROWS = 1 << 16;
+    private static final int MAX_GROUPS = 1 << 20;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH'h'");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final Locale PT_BR = Locale.of("pt", "BR");
+
+    private final SalesLedger ledger;
+    private final ZoneRules zoneRules;
+    private final Dictionary products = new Dictionary();
+    private final Dictionary registers = new Dictionary();
+    // Número do produto nas colunas para cada número da tabela de nomes do livro (-1 se ainda não visto)
+    private int[] productByLedgerId = new int[0];
+    // O que as consultas enxergam; trocado inteiro a cada carga, nunca alterado abaixo de size
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private long lastOrderId;
+    private int orderCount;
+
+    SalesAnalytics(SalesLedger ledger, ZoneId zone) {
+        this.ledger = ledger;
+        this.zoneRules = zone.getRules();
+    }
+
+    /**
+     * @return As consultas sobre o livro de vendas da partição do café atual.
+     * @throws IOException Se o livro não puder ser aberto.
+     */
+    public static SalesAnalytics get() throws IOException {
+        return CafePartition.current().analytics();
+    }
+
+    /**
+     * Copia para as colunas os registros do livro que chegaram desde a última carga.
+     * @return Quantos registros foram copiados.
+     * @throws IOException Se o livro não puder ser lido.
+     */
+    public synchronized int refresh() throws IOException {
+        Columns current = columns;
+        try (SalesLedger.Reader reader = ledger.openReader()) {
+            long total = reader.size();
+            if (total <= current.size) {
+                return 0;
+            }
+            long begin = Metrics.begin();
+            Columns next = current.withCapacity(Math.toIntExact(total));
+            byte[] register = new byte[SalesLedger.MAX_REGISTER_BYTES];
+            // A contagem de pedidos só avança se a carga terminar: uma carga que falha
+            // é refeita inteira na próxima consulta
+            long lastOrder = lastOrderId;
+            int orders = orderCount;
+            int row = current.size;
+            for (long i = current.size; i < total; i++, row++) {
+                long time = reader.timestampAt(i);
+                long orderId = reader.orderIdAt(i);
+                if (orderId != lastOrder || orders == 0) {
+                    orders++;
+                    lastOrder = orderId;
+                }
+                long unitCents = reader.unitPriceAt(i);
+                int quantity = reader.quantityAt(i);
+                next.time[row] = time;
+                next.product[row] = productId(reader, reader.productIdAt(i));
+                next.register[row] = (short) registers.id(register, reader.registerIdAt(i, register));
+                next.units[row] = unitCents < 0 ? 0 : quantity;
+                next.cents[row] = unitCents * quantity;
+                next.order[row] = orders - 1;
+                if (row > 0 && time < next.time[row - 1]) {
+                    next.sorted = false;
+                }
+                next.minTime = Math.min(next.minTime, time);
+                next.maxTime = Math.max(next.maxTime, time);
+            }
+            if (registers.size() > Short.MAX_VALUE) {
+                throw new IOException("Caixas demais no livro de vendas para as consultas: " + registers.size());
+            }
+            lastOrderId = lastOrder;
+            orderCount = orders;
+            next.size = row;
+            next.productCount = products.size();
+            next.registerCount = registers.size();
+            columns = next;
+            Metrics.fileRead(ledger.getPath(), (total - current.size) * SalesLedger.RECORD_SIZE, begin);
+            return (int) (total - current.size);
+        }
+    }
+
+    /**
+     * @return O número nas colunas do produto com esse número na tabela de nomes do livro.
+     */
+    private int productId(SalesLedger.Reader reader, int ledgerId) {
+        if (ledgerId < 0 || ledgerId >= reader.productCount()) {
+            byte[] name = reader.productNameBytes(ledgerId);
+            return products.id(name, name.length);
+        }
+        if (ledgerId >= productByLedgerId.length) {
+            int filled = productByLedgerId.length;
+            productByLedgerId = Arrays.copyOf(productByLedgerId, Math.max(reader.productCount(), filled * 2));
+            Arrays.fill(productByLedgerId, filled, productByLedgerId.length, -1);
+        }
+        int id = productByLedgerId[ledgerId];
+        if (id < 0) {
+            byte[] name = reader.productNameBytes(ledgerId);
+            id = products.id(name, name.length);
+            productByLedgerId[ledgerId] = id;
+        }
+        return id;
+    }
+
+    /**
+     * @return Quantas linhas do livro estão nas colunas.
+     */
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * Soma as vendas do período por grupo.
+     * @param from Início do período, em ms (inclusive).
+     * @param to Fim do período, em ms (exclusive).
+     * @param groupBy Como as linhas são agrupadas.
+     * @param productName Só as linhas deste produto, ou null para todas.
+     * @return Um resultado por grupo com alguma linha, na ordem dos grupos.
+     * @throws IOException Se o livro não puder ser lido.
+     * @throws IllegalArgumentException Se o agrupamento por hora ou dia gerar grupos demais.
+     */
+    public Result query(long from, long to, GroupBy groupBy, String productName) throws IOException {
+        refresh();
+        long begin = Metrics.begin();
+        Columns data = columns;
+        int productFilter = -1;
+        if (productName != null) {
+            productFilter = products.find(productName.toLowerCase());
+            if (productFilter < 0) {
+                return new Result(Collections.emptyList(), 0, System.nanoTime() - begin);
+            }
+        }
+        int lo = 0;
+        int hi = data.size;
+        if (data.sorted) {
+            lo = data.lowerBound(from);
+            hi = data.lowerBound(to);
+        }
+        Grouping grouping = grouping(groupBy, data, lo, hi, from, to);
+        Partial total = ForkJoinPool.commonPool().invoke(new Aggregate(data, grouping, zoneRules,
+                Math.max(LEAF_ROWS, grouping.groups * 8), lo, hi, from, to, productFilter));
+        List<Row> rows = new ArrayList<>();
+        for (int g = 0; g < grouping.groups; g++) {
+            if (total.lines[g] > 0) {
+                rows.add(new Row(g, grouping.label(g), total.lines[g], total.units[g], total.cents[g], total.orders[g]));
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        Metrics.record("analytics.query", elapsed);
+        return new Result(rows, hi - lo, elapsed);
+    }
+
+    private Grouping grouping(GroupBy groupBy, Columns data, int lo, int hi, long from, long to) {
+        switch (groupBy) {
+            case PRODUCT:
+                return new Grouping(data.productCount) {
+                    int key(Columns c, int row, LocalClock clock) { return c.product[row]; }
+                    String label(int group) { return products.name(group); }
+                };
+            case REGISTER:
+                return new Grouping(data.registerCount) {
+                    int key(Columns c, int row, LocalClock clock) { return c.register[row]; }
+                    String label(int group) { return registers.name(group); }
+                };
+            case HOUR_OF_DAY:
+                return new Grouping(24) {
+                    int key(Columns c, int row, LocalClock clock) {
+                        return (int) (Math.floorMod(clock.toLocal(c.time[row]), DAY_MS) / HOUR_MS);
+                    }
+                    String label(int group) { return String.format("%02dh", group); }
+                };
+            case DAY_OF_WEEK:
+                return new Grouping(7) {
+                    int key(Columns c, int row, LocalClock clock) {
+                        // O dia 0 da época (1970-01-01) foi uma quinta-feira; o grupo 0 é a segunda
+                        return Math.floorMod(Math.floorDiv(clock.toLocal(c.time[row]), DAY_MS) + 3, 7);
+                    }
+                    String label(int group) { return DayOfWeek.of(group + 1).getDisplayName(TextStyle.SHORT, PT_BR); }
+                };
+            case HOUR:
+                return buckets(data, lo, hi, from, to, HOUR_MS, HOUR_FORMAT);
+            case DAY:
+                return buckets(data, lo, hi, from, to, DAY_MS, DAY_FORMAT);
+            default:
+                return new Grouping(1) {
+                    int key(Columns c, int row, LocalClock clock) { return 0; }
+                    String label(int group) { return "total"; }
+                };
+        }
+    }
+
+    /**
+     * Um grupo por hora ou dia do calendário, do primeiro ao último com vendas no período.
+     */
+    private Grouping buckets(Columns data, int lo, int hi, long from, long to, long width, DateTimeFormatter format) {
+        if (data.size == 0 || lo >= hi) {
+            return new Grouping(0) {
+                int key(Columns c, int row, LocalClock clock) { return 0; }
+                String label(int group) { return ""; }
+            };
+        }
+        long first = Math.max(from, data.sorted ? data.time[lo] : data.minTime);
+        long last = Math.min(to - 1, data.sorted ? data.time[hi - 1] : data.maxTime);
+        LocalClock clock = new LocalClock(zoneRules);
+        long base = Math.floorDiv(clock.toLocal(first), width);
+        long count = Math.floorDiv(clock.toLocal(last), width) - base + 1;
+        if (count > MAX_GROUPS) {
+            throw new IllegalArgumentException("período longo demais para agrupar: " + count + " grupos");
+        }
+        return new Grouping((int) Math.max(0, count)) {
+            int key(Columns c, int row, LocalClock rowClock) {
+                return (int) (Math.floorDiv(rowClock.toLocal(c.time[row]), width) - base);
+            }
+            String label(int group) {
+                return LocalDateTime.ofEpochSecond((base + group) * width / 1000, 0, ZoneOffset.UTC).format(format);
+            }
+        };
+    }
+
+    /**
+     * As colunas. Os vetores só crescem por cópia, e uma carga nova só escreve depois de
+     * size, então uma consulta pode ler enquanto a próxima carga acontece.
+     */
+    private static final class Columns {
+        private final long[] time;
+        private final int[] product;
+        private final short[] register;
+        private final int[] units;
+        private final long[] cents;
+        private final int[] order;
+        private int size;
+        private int productCount;
+        private int registerCount;
+        private boolean sorted = true;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+
+        Columns(int capacity) {
+            this(new long[capacity], new int[capacity], new short[capacity],
+                    new int[capacity], new long[capacity], new int[capacity]);
+        }
+
+        private Columns(long[] time, int[] product, short[] register, int[] units, long[] cents, int[] order) {
+            this.time = time;
+            this.product = product;
+            this.register = register;
+            this.units = units;
+            this.cents = cents;
+            this.order = order;
+        }
+
+        /**
+         * @return Colunas novas com os mesmos dados e lugar para o total de linhas pedido. Os
+         * vetores são compartilhados enquanto couberem, já que a carga só escreve depois de size.
+         */
+        Columns withCapacity(int total) {
+            Columns next;
+            if (total <= time.length) {
+                next = new Columns(time, product, register, units, cents, order);
+            } else {
+                int capacity = Math.max(total, time.length + (time.length >> 1));
+                next = new Columns(Arrays.copyOf(time, capacity), Arrays.copyOf(product, capacity),
+                        Arrays.copyOf(register, capacity), Arrays.copyOf(units, capacity),
+                        Arrays.copyOf(cents, capacity), Arrays.copyOf(order, capacity));
+            }
+            next.size = size;
+            next.productCount = productCount;
+            next.registerCount = registerCount;
+            next.sorted = sorted;
+            next.minTime = minTime;
+            next.maxTime = maxTime;
+            return next;
+        }
+
+        /**
+         * @return A primeira linha com momento maior ou igual ao dado (só com as linhas em ordem).
+         */
+        int lowerBound(long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (time[mid] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Converte momentos para o horário local, guardando o deslocamento do fuso até a próxima
+     * mudança (horário de verão), então a regra do fuso é consultada poucas vezes por bloco.
+     */
+    private static final class LocalClock {
+        private final ZoneRules rules;
+        private long validFrom = Long.MAX_VALUE;
+        private long validTo = Long.MIN_VALUE;
+        private long offset;
+
+        LocalClock(ZoneRules rules) {
+            this.rules = rules;
+        }
+
+        long toLocal(long timestamp) {
+            if (timestamp < validFrom || timestamp >= validTo) {
+                Instant instant = Instant.ofEpochMilli(timestamp);
+                offset = rules.getOffset(instant).getTotalSeconds() * 1000L;
+                if (rules.isFixedOffset()) {
+                    validFrom = Long.MIN_VALUE;
+                    validTo = Long.MAX_VALUE;
+                } else {
+                    ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+                    ZoneOffsetTransition next = rules.nextTransition(instant);
+                    validFrom = previous == null ? Long.MIN_VALUE : previous.getInstant().toEpochMilli();
+                    validTo = next == null ? Long.MAX_VALUE : next.getInstant().toEpochMilli();
+                }
+            }
+            return timestamp + offset;
+        }
+    }
+
+    /**
+     * Como uma linha vira um grupo, e o nome de cada grupo.
+     */
+    private abstract static class Grouping {
+        final int groups;
+
+        Grouping(int groups) {
+            this.groups = groups;
+        }
+
+        abstract int key(Columns columns, int row, LocalClock clock);
+
+        abstract String label(int group);
+    }
+
+    /**
+     * Somas por grupo de um bloco de linhas. Os pedidos são contados quando o número do
+     * pedido muda dentro do grupo; o primeiro e o último de cada grupo servem para descontar,
+     * ao juntar dois blocos, o pedido que começou em um e terminou no outro.
+     */
+    private static final class Partial {
+        final long[] lines;
+        final long[] units;
+        final long[] cents;
+        final long[] orders;
+        final int[] firstOrder;
+        final int[] lastOrder;
+
+        Partial(int groups) {
+            lines = new long[groups];
+            units = new long[groups];
+            cents = new long[groups];
+            orders = new long[groups];
+            firstOrder = new int[groups];
+            lastOrder = new int[groups];
+            Arrays.fill(firstOrder, -1);
+            Arrays.fill(lastOrder, -1);
+        }
+
+        /**
+         * Junta o bloco seguinte a este.
+         */
+        Partial merge(Partial next) {
+            for (int g = 0; g < lines.length; g++) {
+                if (next.lines[g] == 0) {
+                    continue;
+                }
+                lines[g] += next.lines[g];
+                units[g] += next.units[g];
+                cents[g] += next.cents[g];
+                orders[g] += next.orders[g];
+                if (lastOrder[g] >= 0 && lastOrder[g] == next.firstOrder[g]) {
+                    orders[g]--;
+                }
+                if (firstOrder[g] < 0) {
+                    firstOrder[g] = next.firstOrder[g];
+                }
+                lastOrder[g] = next.lastOrder[g];
+            }
+            return this;
+        }
+    }
+
+    private static final class Aggregate extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        // A tarefa nunca é serializada; as colunas e o agrupamento só existem na memória
+        private final transient Columns data;
+        private final transient Grouping grouping;
+        private final ZoneRules zoneRules;
+        private final int leafRows;
+        private final int lo;
+        private final int hi;
+        private final long from;
+        private final long to;
+        private final int productFilter;
+
+        Aggregate(Columns data, Grouping grouping, ZoneRules zoneRules, int leafRows,
+                  int lo, int hi, long from, long to, int productFilter) {
+            this.data = data;
+            this.grouping = grouping;
+            this.zoneRules = zoneRules;
+            this.leafRows = leafRows;
+            this.lo = lo;
+            this.hi = hi;
+            this.from = from;
+            this.to = to;
+            this.productFilter = productFilter;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (hi - lo <= leafRows) {
+                return sum();
+            }
+            int mid = (lo + hi) >>> 1;
+            Aggregate left = new Aggregate(data, grouping, zoneRules, leafRows, lo, mid, from, to, productFilter);
+            left.fork();
+            Partial right = new Aggregate(data, grouping, zoneRules, leafRows, mid, hi, from, to, productFilter).compute();
+            return left.join().merge(right);
+        }
+
+        private Partial sum() {
+            Partial partial = new Partial(grouping.groups);
+            LocalClock clock = new LocalClock(zoneRules);
+            long[] time = data.time;
+            for (int row = lo; row < hi; row++) {
+                long timestamp = time[row];
+                if (timestamp < from || timestamp >= to || productFilter >= 0 && data.product[row] != productFilter) {
+                    continue;
+                }
+                int g = grouping.key(data, row, clock);
+                partial.lines[g]++;
+                partial.units[g] += data.units[row];
+                partial.cents[g] += data.cents[row];
+                int order = data.order[row];
+                if (partial.lastOrder[g] != order) {
+                    partial.orders[g]++;
+                    if (partial.firstOrder[g] < 0) {
+                        partial.firstOrder[g] = order;
+                    }
+                    partial.lastOrder[g] = order;
+                }
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Nomes (de produtos ou caixas) numerados na ordem em que aparecem no livro.
+     * A busca é pelos bytes do registro, então um nome só vira String na primeira vez.
+     */
+    private static final class Dictionary {
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> byName = new HashMap<>();
+        private byte[][] keys = new byte[64][];
+        private int[] ids = new int[64];
+
+        // Só a carga (com a trava do SalesAnalytics) procura e acrescenta nomes
+        int id(byte[] bytes, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int mask = keys.length - 1;
+            for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    return add(bytes, length, slot);
+                }
+                if (key.length == length && Arrays.equals(key, 0, length, bytes, 0, length)) {
+                    return ids[slot];
+                }
+            }
+        }
+
+        private synchronized int add(byte[] bytes, int length, int slot) {
+            int id = names.size();
+            String name = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            names.add(name);
+            byName.putIfAbsent(name, id);
+            keys[slot] = Arrays.copyOf(bytes, length);
+            ids[slot] = id;
+            if (names.size() * 2 > keys.length) {
+                grow();
+            }
+            return id;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new byte[oldKeys.length * 2][];
+            ids = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                byte[] key = oldKeys[i];
+                if (key == null) {
+                    continue;
+                }
+                int hash = 1;
+                for (byte b : key) {
+                    hash = 31 * hash + b;
+                }
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                ids[slot] = oldIds[i];
+            }
+        }
+
+        synchronized String name(int id) {
+            return names.get(id);
+        }
+
+        synchronized int find(String name) {
+            Integer id = byName.get(name);
+            return id == null ? -1 : id;
+        }
+
+        synchronized int size() {
+            return names.size();
+        }
+    }
+
+    /**
+     * O resultado de uma consulta, com quantas linhas do livro foram percorridas e o tempo gasto.
+     */
+    public static final class Result {
+        private final List<Row> rows;
+        private final long rowsScanned;
+        private final long nanos;
+
+        Result(List<Row> rows, long rowsScanned, long nanos) {
+            this.rows = Collections.unmodifiableList(rows);
+            this.rowsScanned = rowsScanned;
+            this.nanos = nanos;
+        }
+
+        public List<Row> getRows() { return rows; }
+        public long getRowsScanned() { return rowsScanned; }
+        public double getMillis() { return nanos / 1e6; }
+
+        /**
+         * @return Os grupos em ordem decrescente pela medida escolhida (crescente pela chave), no máximo limit.
+         */
+        public List<Row> sorted(SortBy sortBy, int limit) {
+            Comparator<Row> order;
+            switch (sortBy) {
+                case UNITS:
+                    order = Comparator.comparingLong(Row::getUnits).reversed();
+                    break;
+                case CENTS:
+                    order = Comparator.comparingLong(Row::getCents).reversed();
+                    break;
+                case ORDERS:
+                    order = Comparator.comparingLong(Row::getOrders).reversed();
+                    break;
+                default:
+                    order = Comparator.comparingInt(Row::getGroup);
+                    break;
+            }
+            List<Row> sorted = new ArrayList<>(rows);
+            sorted.sort(order);
+            return sorted.subList(0, Math.min(limit, sorted.size()));
+        }
+    }
+
+    /**
+     * As somas de um grupo: linhas do livro, unidades, receita em centavos e pedidos distintos.
+     */
+    public static final class Row {
+        private final int group;
+        private final String key;
+        private final long lines;
+        private final long units;
+        private final long cents;
+        private final long orders;
+
+        Row(int group, String key, long lines, long units, long cents, long orders) {
+            this.group = group;
+            this.key = key;
+            this.lines = lines;
+            this.units = units;
+            this.cents = cents;
+            this.orders = orders;
+        }
+
+        public int getGroup() { return group; }
+        public String getKey() { return key; }
+        public long getLines() { return lines; }
+        public long getUnits() { return units; }
+        public long getCents() { return cents; }
+        public long getOrders() { return orders; }
+
+        /** @return Unidades por pedido (o tamanho médio da cesta). */
+        public double getUnitsPerOrder() {
+            return orders == 0 ? 0 : (double) units / orders;
+        }
+
+        /** @return Receita média por pedido, em centavos. */
+        public long getCentsPerOrder() {
+            return orders == 0 ? 0 : cents / orders;
+        }
+    }
+}
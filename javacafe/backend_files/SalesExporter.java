@@ -0,0 +1,313 @@
+package javacafe.backend_files;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exporta as vendas de um período do livro de vendas em CSV ou JSON, opcionalmente com gzip,
+ * para a contabilidade.
+ *
+ * Os registros são lidos direto do arquivo mapeado, campo a campo, e escritos em um buffer de
+ * tamanho fixo ({@value #BUFFER_SIZE} bytes) que vai para o arquivo quando enche, então a memória
+ * usada não depende do tamanho do histórico. O arquivo é escrito com o sufixo ".part" e só ganha
+ * o nome final quando termina; uma exportação interrompida (Thread.interrupt) ou com erro apaga
+ * o parcial.
+ *
+ * CSV: uma linha de cabeçalho e uma por item vendido, separadas por vírgula, com aspas nos
+ * textos que precisarem. JSON: uma lista com um objeto por item vendido. Os momentos vão no
+ * formato ISO com o fuso da loja, e os valores em reais com ponto decimal.
+ */
+public final class SalesExporter {
+
+    public enum Format {
+        CSV(".csv"), JSON(".json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return A extensão do arquivo, com ".gz" se for comprimido.
+         */
+        public String extension(boolean gzip) {
+            return gzip ? extension + ".gz" : extension;
+        }
+    }
+
+    /**
+     * Recebe o andamento da exportação: quantos registros do livro já foram percorridos, de quantos.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long done, long total);
+    }
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    // Maior linha possível sem o nome e o caixa: os números, o momento e a pontuação
+    private static final int MAX_LINE = 256;
+    private static final int PROGRESS_EVERY = 16 * 1024;
+    private static final String CSV_HEADER = "momento,pedido,caixa,produto,quantidade,preco_unitario,total\n";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path target;
+    private final Format format;
+    private final boolean gzip;
+    private final ZoneId zone;
+    // Cresce só se um nome de produto sozinho não couber nele
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] register = new byte[SalesLedger.MAX_REGISTER_BYTES];
+    private final byte[] digits = new byte[20];
+    private final DateTimeFormatter timeFormat = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private int position;
+    private long bytesWritten;
+    // O último segundo formatado: vendas do mesmo segundo reaproveitam o texto
+    private long cachedSecond = Long.MIN_VALUE;
+    private byte[] cachedTime;
+
+    /**
+     * @param target O arquivo a criar (substituído se existir).
+     * @param format CSV ou JSON.
+     * @param gzip Se o arquivo deve ser comprimido.
+     * @param zone O fuso dos momentos escritos.
+     */
+    public SalesExporter(Path target, Format format, boolean gzip, ZoneId zone) {
+        this.target = target;
+        this.format = format;
+        this.gzip = gzip;
+        this.zone = zone;
+    }
+
+    /**
+     * Exporta as vendas com momento em [from, to). As vendas ainda na fila de gravação são
+     * gravadas antes, para entrarem no arquivo.
+     * @param progress Avisado a cada {@value #PROGRESS_EVERY} registros percorridos, e no fim.
+     * @return Quantas vendas foram exportadas.
+     * @throws IOException Se o livro não puder ser lido ou o arquivo escrito; InterruptedIOException
+     * se a thread for interrompida.
+     */
+    public long export(SalesLedger ledger, long from, long to, Progress progress) throws IOException {
+        long begin = Metrics.begin();
+        PersistenceWriter.get().flush();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long rows = 0;
+        bytesWritten = 0;
+        position = 0;
+        try (SalesLedger.Reader reader = ledger.openReader()) {
+            long total = reader.size();
+            try (OutputStream file = Files.newOutputStream(partial);
+                 OutputStream out = gzip ? new GZIPOutputStream(file, BUFFER_SIZE) : file) {
+                ascii(format == Format.CSV ? CSV_HEADER : "[\n");
+                for (long i = 0; i < total; i++) {
+                    long timestamp = reader.timestampAt(i);
+                    if (timestamp >= from && timestamp < to) {
+                        byte[] product = reader.productNameBytes(reader.productIdAt(i));
+                        int registerLength = reader.registerIdAt(i, register);
+                        // Cada byte do texto vira no máximo seis quando escapado em JSON
+                        reserve(out, MAX_LINE + 6 * (product.length + registerLength));
+                        if (format == Format.CSV) {
+                            csvLine(reader, i, timestamp, product, registerLength);
+                        } else {
+                            jsonLine(reader, i, timestamp, product, registerLength, rows == 0);
+                        }
+                        rows++;
+                    }
+                    if ((i + 1) % PROGRESS_EVERY == 0) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("exportação de vendas interrompida");
+                        }
+                        progress.update(i + 1, total);
+                    }
+                }
+                if (format == Format.JSON) {
+                    ascii(rows == 0 ? "]\n" : "\n]\n");
+                }
+                drain(out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            progress.update(total, total);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Metrics.fileWrite(target, Files.size(target), begin);
+        Metrics.count("export.rows", rows);
+        return rows;
+    }
+
+    /**
+     * @return Quantos bytes (antes da compressão) a última exportação gerou.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void csvLine(SalesLedger.Reader reader, long index, long timestamp, byte[] product, int registerLength) {
+        time(timestamp);
+        put((byte) ',');
+        number(reader.orderIdAt(index));
+        put((byte) ',');
+        csvText(register, registerLength);
+        put((byte) ',');
+        csvText(product, product.length);
+        put((byte) ',');
+        int quantity = reader.quantityAt(index);
+        long unitCents = reader.unitPriceAt(index);
+        number(quantity);
+        put((byte) ',');
+        cents(unitCents);
+        put((byte) ',');
+        cents(unitCents * quantity);
+        put((byte) '\n');
+    }
+
+    private void jsonLine(SalesLedger.Reader reader, long index, long timestamp, byte[] product, int registerLength,
+                          boolean first) {
+        int quantity = reader.quantityAt(index);
+        long unitCents = reader.unitPriceAt(index);
+        ascii(first ? "{\"momento\":\"" : ",\n{\"momento\":\"");
+        time(timestamp);
+        ascii("\",\"pedido\":");
+        number(reader.orderIdAt(index));
+        ascii(",\"caixa\":\"");
+        jsonText(register, registerLength);
+        ascii("\",\"produto\":\"");
+        jsonText(product, product.length);
+        ascii("\",\"quantidade\":");
+        number(quantity);
+        ascii(",\"preco_unitario\":");
+        cents(unitCents);
+        ascii(",\"total\":");
+        cents(unitCents * quantity);
+        put((byte) '}');
+    }
+
+    private void time(long timestamp) {
+        long second = Math.floorDiv(timestamp, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTime = timeFormat.format(Instant.ofEpochSecond(second).atZone(zone))
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+        System.arraycopy(cachedTime, 0, buffer, position, cachedTime.length);
+        position += cachedTime.length;
+    }
+
+    /**
+     * Texto entre aspas se tiver vírgula, aspas ou quebra de linha (aspas internas dobradas).
+     */
+    private void csvText(byte[] text, int length) {
+        boolean quote = false;
+        for (int i = 0; i < length && !quote; i++) {
+            byte b = text[i];
+            quote = b == ',' || b == '"' || b == '\n' || b == '\r';
+        }
+        if (!quote) {
+            System.arraycopy(text, 0, buffer, position, length);
+            position += length;
+            return;
+        }
+        put((byte) '"');
+        for (int i = 0; i < length; i++) {
+            if (text[i] == '"') {
+                put((byte) '"');
+            }
+            put(text[i]);
+        }
+        put((byte) '"');
+    }
+
+    /**
+     * Texto UTF-8 escapado para uma string JSON; os bytes acima de 127 passam como estão.
+     */
+    private void jsonText(byte[] text, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b = text[i];
+            if (b == '"' || b == '\\') {
+                put((byte) '\\');
+                put(b);
+            } else if (b >= 0 && b < 0x20) {
+                ascii("\\u00");
+                put(HEX[b >> 4]);
+                put(HEX[b & 0xF]);
+            } else {
+                put(b);
+            }
+        }
+    }
+
+    private void number(long value) {
+        if (value < 0) {
+            put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                ascii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (count > 0) {
+            put(digits[--count]);
+        }
+    }
+
+    /**
+     * O valor em reais com duas casas, como no Money.format ("-0.50", "12.34").
+     */
+    private void cents(long cents) {
+        long whole = cents / 100;
+        int fraction = (int) Math.abs(cents % 100);
+        if (cents < 0 && whole == 0) {
+            put((byte) '-');
+        }
+        number(whole);
+        put((byte) '.');
+        put((byte) ('0' + fraction / 10));
+        put((byte) ('0' + fraction % 10));
+    }
+
+    private void ascii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void put(byte b) {
+        buffer[position++] = b;
+    }
+
+    /**
+     * Garante espaço para a próxima linha: grava o que está no buffer se ela não couber no
+     * resto, e aumenta o buffer se ela não couber nem nele vazio.
+     */
+    private void reserve(OutputStream out, int length) throws IOException {
+        if (position + length <= buffer.length) {
+            return;
+        }
+        drain(out);
+        if (length > buffer.length) {
+            buffer = new byte[length];
+        }
+    }
+
+    private void drain(OutputStream out) throws IOException {
+        out.write(buffer, 0, position);
+        bytesWritten += position;
+        position = 0;
+    }
+}
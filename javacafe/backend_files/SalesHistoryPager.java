@@ -0,0 +1,86 @@
+package javacafe.backend_files;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Leitura paginada do livro de vendas, da venda mais recente para a mais antiga.
+ * As linhas são montadas por página, só quando pedidas, e apenas as últimas
+ * {@value #MAX_CACHED_PAGES} páginas ficam em memória, então abrir o histórico custa o
+ * mesmo com cem ou com milhões de vendas.
+ */
+public class SalesHistoryPager implements AutoCloseable {
+
+    public static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    private final SalesLedger ledger;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final Map<Long, String[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private SalesLedger.Reader reader;
+
+    public SalesHistoryPager(SalesLedger ledger) throws IOException {
+        this.ledger = ledger;
+        this.reader = ledger.openReader();
+    }
+
+    /**
+     * @return Quantas vendas (linhas) existem no instantâneo atual.
+     */
+    public synchronized int size() {
+        return (int) Math.min(Integer.MAX_VALUE, reader.size());
+    }
+
+    /**
+     * @param index A posição a partir da mais recente (0 é a última venda).
+     * @return A linha legível dessa venda.
+     */
+    public synchronized String line(int index) {
+        long page = index / PAGE_SIZE;
+        String[] lines = pages.get(page);
+        if (lines == null) {
+            lines = loadPage(page);
+            pages.put(page, lines);
+        }
+        return lines[index % PAGE_SIZE];
+    }
+
+    private String[] loadPage(long page) {
+        long begin = Metrics.begin();
+        long total = reader.size();
+        long first = page * PAGE_SIZE;
+        int count = (int) Math.max(0, Math.min(PAGE_SIZE, total - first));
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = SalesLedger.renderLine(reader.read(total - 1 - (first + i)), dateFormat);
+        }
+        Metrics.fileRead(ledger.getPath(), (long) count * SalesLedger.RECORD_SIZE, begin);
+        return lines;
+    }
+
+    /**
+     * Estende a leitura para incluir as vendas acrescentadas desde a última vez; só o fim
+     * do livro é mapeado de novo.
+     * @return Quantas vendas novas apareceram.
+     */
+    public synchronized int refresh() throws IOException {
+        int before = size();
+        if (reader.extend() > 0) {
+            // As posições contam a partir da venda mais recente, então as páginas antigas mudaram.
+            pages.clear();
+        }
+        return size() - before;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        reader.close();
+    }
+}
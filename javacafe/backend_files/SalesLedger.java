@@ -0,0 +1,643 @@
+package javacafe.backend_files;
+
+import javacafe.Models.Money;
+import javacafe.Models.SaleRecord;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Livro de vendas binário, somente de acréscimo, com registros de tamanho fixo.
+ *
+ * O arquivo começa com um cabeçalho de {@value #HEADER_SIZE} bytes ("JCSL", versão,
+ * tamanho do registro) seguido de registros de {@value #RECORD_SIZE} bytes:
+ * <pre>
+ * 0   long  momento da venda (ms desde a época)
+ * 8   long  número do pedido
+ * 16  long  preço unitário em centavos
+ * 24  int   quantidade
+ * 28  int   número do produto na tabela de nomes
+ * 32  byte  tamanho do caixa              33 10 bytes caixa (UTF-8)
+ * </pre>
+ * Os nomes dos produtos ficam inteiros, sem limite de tamanho, na tabela de nomes ao lado
+ * (sales.dat.names): um nome UTF-8 por linha, e o número do produto é a linha. Um nome novo
+ * vai para a tabela antes dos registros que o usam.
+ *
+ * Como todos os registros têm o mesmo tamanho, o registro i está sempre em
+ * HEADER_SIZE + i * RECORD_SIZE, e a leitura é feita direto do arquivo mapeado em memória,
+ * tanto sequencial quanto aleatória, em janelas de 2^{@value #WINDOW_SHIFT} registros
+ * (um mapeamento só não passa de 2 GB). O texto para pessoas é gerado a partir dele com {@link #render}.
+ *
+ * Um livro da versão 1 (nomes cortados em 40 bytes dentro do registro) é convertido ao abrir.
+ * O histórico de antes do livro (sales.txt, resumos de três letras sem data nem preço unitário)
+ * não tem como virar registros; ele fica onde está e é apontado por {@link #getLegacyHistory()}.
+ */
+public final class SalesLedger {
+
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 48;
+    public static final int MAX_REGISTER_BYTES = 10;
+
+    // Cada janela mapeada tem 2^24 registros (768 MB)
+    static final int WINDOW_SHIFT = 24;
+
+    private static final int MAGIC = 0x4A43534C; // "JCSL"
+    private static final int VERSION = 2;
+    private static final int V1_RECORD_SIZE = 80;
+    private static final int V1_NAME_BYTES = 40;
+    private static final String LEGACY_HISTORY_FILE = "sales.txt";
+
+    private final Path path;
+    private final Path namesPath;
+    private long recordCount;
+    private long nextOrderId;
+    // Tabela de nomes: só cresce, e uma posição preenchida nunca muda, então uma leitura
+    // pode ficar com o vetor e a contagem do momento em que foi aberta.
+    private byte[][] names = new byte[64][];
+    private int nameCount;
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private Path legacyHistory;
+    // Avisados quando novos registros chegam ao arquivo. Referências fracas: quem registra
+    // um ouvinte precisa guardá-lo, e ele some junto com a tela que o criou.
+    private final Set<Runnable> listeners = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    SalesLedger(Path path) throws IOException {
+        this.path = path;
+        this.namesPath = path.resolveSibling(path.getFileName() + ".names");
+        open();
+    }
+
+    /**
+     * @return O livro de vendas da partição do café atual (sales.dat), aberto na primeira chamada.
+     * @throws IOException Se o arquivo não puder ser lido ou tiver um formato desconhecido.
+     */
+    public static SalesLedger get() throws IOException {
+        return CafePartition.current().ledger();
+    }
+
+    /**
+     * Cria o cabeçalho de um livro novo ou valida o existente (convertendo um da versão 1).
+     * Um registro incompleto no final, deixado por uma queda de energia, é descartado,
+     * assim como uma linha incompleta no final da tabela de nomes.
+     */
+    private void open() throws IOException {
+        if (readVersion() == 1) {
+            migrateVersion1();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE) {
+                channel.truncate(0);
+                channel.write(header(), 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+                    throw new IOException("Formato desconhecido no livro de vendas: " + path);
+                }
+            }
+            long size = channel.size();
+            recordCount = (size - HEADER_SIZE) / RECORD_SIZE;
+            long complete = HEADER_SIZE + recordCount * RECORD_SIZE;
+            if (complete != size) {
+                channel.truncate(complete);
+            }
+            nextOrderId = 1;
+            if (recordCount > 0) {
+                ByteBuffer last = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(last, complete - RECORD_SIZE);
+                last.flip();
+                last.getLong();
+                nextOrderId = last.getLong() + 1;
+            }
+        }
+        loadNames();
+        Path legacy = path.resolveSibling(LEGACY_HISTORY_FILE);
+        if (hasContent(legacy)) {
+            legacyHistory = legacy;
+        }
+    }
+
+    /**
+     * @return true se o arquivo existir e tiver algo além de espaços e quebras de linha.
+     * Lê só até o primeiro caractere visível, sem carregar o arquivo inteiro.
+     */
+    private static boolean hasContent(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return false;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+        return header;
+    }
+
+    /**
+     * @return A versão no cabeçalho do arquivo, ou 0 se ele ainda não tem cabeçalho.
+     */
+    private int readVersion() throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Formato desconhecido no livro de vendas: " + path);
+            }
+            return header.getInt();
+        }
+    }
+
+    /**
+     * Lê a tabela de nomes. Uma última linha sem quebra de linha, de uma gravação
+     * interrompida, é cortada do arquivo.
+     */
+    private void loadNames() throws IOException {
+        if (!Files.exists(namesPath)) {
+            return;
+        }
+        long begin = Metrics.begin();
+        byte[] content = Files.readAllBytes(namesPath);
+        int start = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                addName(Arrays.copyOfRange(content, start, i));
+                start = i + 1;
+            }
+        }
+        if (start != content.length) {
+            try (FileChannel channel = FileChannel.open(namesPath, StandardOpenOption.WRITE)) {
+                channel.truncate(start);
+            }
+        }
+        Metrics.fileRead(namesPath, content.length, begin);
+    }
+
+    private int addName(byte[] bytes) {
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = bytes;
+        nameIds.putIfAbsent(new String(bytes, StandardCharsets.UTF_8), nameCount);
+        return nameCount++;
+    }
+
+    /**
+     * @return O número do produto na tabela de nomes; um nome novo é acrescentado à tabela
+     * e às linhas a gravar. Quebras de linha no nome viram espaços.
+     */
+    private int nameId(String name, ByteArrayOutputStream added) {
+        String clean = name.replace('\n', ' ').replace('\r', ' ');
+        Integer id = nameIds.get(clean);
+        if (id != null) {
+            return id;
+        }
+        byte[] bytes = clean.getBytes(StandardCharsets.UTF_8);
+        added.write(bytes, 0, bytes.length);
+        added.write('\n');
+        return addName(bytes);
+    }
+
+    /**
+     * Converte um livro da versão 1 (registros de 80 bytes com o nome dentro) para a atual.
+     * A tabela de nomes é gravada primeiro, e o livro convertido toma o lugar do antigo
+     * de uma vez; se a conversão for interrompida, ela é refeita do começo na próxima abertura.
+     */
+    private void migrateVersion1() throws IOException {
+        System.out.println("Convertendo o livro de vendas para a versão " + VERSION + ": " + path);
+        long begin = Metrics.begin();
+        Path converted = path.resolveSibling(path.getFileName() + ".v" + VERSION);
+        Path convertedNames = namesPath.resolveSibling(namesPath.getFileName() + ".v" + VERSION);
+        ByteArrayOutputStream added = new ByteArrayOutputStream();
+        int batch = 4096;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(converted, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            in.read(header, 0);
+            header.flip();
+            header.getInt();
+            header.getInt();
+            if (header.getInt() != V1_RECORD_SIZE) {
+                throw new IOException("Formato desconhecido no livro de vendas: " + path);
+            }
+            out.write(header(), 0);
+            ByteBuffer source = ByteBuffer.allocate(batch * V1_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer target = ByteBuffer.allocate(batch * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] name = new byte[V1_NAME_BYTES];
+            byte[] register = new byte[MAX_REGISTER_BYTES];
+            long remaining = (in.size() - HEADER_SIZE) / V1_RECORD_SIZE;
+            long readAt = HEADER_SIZE;
+            long writeAt = HEADER_SIZE;
+            while (remaining > 0) {
+                int records = (int) Math.min(batch, remaining);
+                source.clear().limit(records * V1_RECORD_SIZE);
+                while (source.hasRemaining()) {
+                    if (in.read(source, readAt + source.position()) < 0) {
+                        throw new IOException("Livro de vendas terminou antes do esperado: " + path);
+                    }
+                }
+                target.clear();
+                for (int r = 0; r < records; r++) {
+                    int offset = r * V1_RECORD_SIZE;
+                    int nameLength = Math.min(V1_NAME_BYTES, source.get(offset + 28) & 0xFF);
+                    int registerLength = Math.min(MAX_REGISTER_BYTES, source.get(offset + 29) & 0xFF);
+                    source.get(offset + 30, name, 0, nameLength);
+                    source.get(offset + 30 + V1_NAME_BYTES, register, 0, registerLength);
+                    encode(target, source.getLong(offset), source.getLong(offset + 8), source.getLong(offset + 16),
+                            source.getInt(offset + 24),
+                            nameId(new String(name, 0, nameLength, StandardCharsets.UTF_8), added),
+                            register, registerLength);
+                }
+                target.flip();
+                while (target.hasRemaining()) {
+                    writeAt += out.write(target, writeAt);
+                }
+                readAt += (long) records * V1_RECORD_SIZE;
+                remaining -= records;
+            }
+            out.force(true);
+        }
+        Files.write(convertedNames, added.toByteArray());
+        Files.move(convertedNames, namesPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(converted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // A tabela é lida de novo do arquivo, como em qualquer abertura
+        names = new byte[64][];
+        nameCount = 0;
+        nameIds.clear();
+        Metrics.fileWrite(path, Files.size(path), begin);
+    }
+
+    /**
+     * Reserva o próximo número de pedido. Os números são crescentes e nunca repetem,
+     * mesmo para pedidos finalizados no mesmo segundo.
+     */
+    public synchronized long nextOrderId() {
+        return nextOrderId++;
+    }
+
+    /**
+     * Garante que os próximos números de pedido sejam maiores que esse. Usado quando outro
+     * arquivo (o de recibos) chegou ao disco com pedidos que o livro perdeu numa queda de energia.
+     * @return true se os números precisaram avançar.
+     */
+    public synchronized boolean skipOrderIdsThrough(long orderId) {
+        if (orderId < nextOrderId) {
+            return false;
+        }
+        nextOrderId = orderId + 1;
+        return true;
+    }
+
+    /**
+     * Acrescenta as linhas de um pedido ao livro, em uma única gravação pelo PersistenceWriter.
+     * Os nomes de produto ainda desconhecidos vão antes para a tabela de nomes.
+     * @param records As linhas do pedido.
+     */
+    public void append(List<SaleRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        synchronized (this) {
+            ByteArrayOutputStream added = new ByteArrayOutputStream();
+            for (SaleRecord record : records) {
+                byte[] register = truncate(record.getRegisterId(), MAX_REGISTER_BYTES);
+                encode(buffer, record.getTimestamp(), record.getOrderId(), record.getUnitPriceCents(),
+                        record.getQuantity(), nameId(record.getProductName(), added), register, register.length);
+            }
+            PersistenceWriter writer = PersistenceWriter.get();
+            if (added.size() > 0) {
+                writer.append(namesPath, added.toByteArray());
+            }
+            writer.append(path, buffer.array());
+            recordCount += records.size();
+            writer.whenWritten(this::notifyListeners);
+        }
+    }
+
+    /**
+     * Registra um ouvinte chamado (na thread de persistência) sempre que novos registros
+     * já estiverem no arquivo e visíveis para um novo {@link #openReader()}.
+     * O livro guarda apenas uma referência fraca ao ouvinte.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        Runnable[] current;
+        synchronized (listeners) {
+            current = listeners.toArray(new Runnable[0]);
+        }
+        for (Runnable listener : current) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return Quantos registros foram entregues ao livro (alguns podem ainda estar na fila de gravação).
+     */
+    public synchronized long size() {
+        return recordCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return O histórico em texto de antes do livro de vendas (sales.txt na mesma pasta),
+     * ou null se não houver nenhum.
+     */
+    public Path getLegacyHistory() {
+        return legacyHistory;
+    }
+
+    /**
+     * Abre uma leitura mapeada em memória com os registros já gravados em disco.
+     * Chame PersistenceWriter.flush antes, se precisar ver as vendas mais recentes.
+     */
+    public Reader openReader() throws IOException {
+        return openReader(WINDOW_SHIFT);
+    }
+
+    /**
+     * @param windowShift Cada janela mapeada tem 2^windowShift registros.
+     */
+    Reader openReader(int windowShift) throws IOException {
+        return new Reader(this, windowShift);
+    }
+
+    /**
+     * Gera uma versão legível do livro, uma linha por item vendido.
+     * @param reader Uma leitura aberta do livro.
+     * @param out Onde escrever o texto.
+     * @param from O primeiro registro (inclusive).
+     * @param to O último registro (exclusive).
+     */
+    public static void render(Reader reader, Appendable out, long from, long to) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (long i = from; i < to; i++) {
+            out.append(renderLine(reader.read(i), dateFormat)).append('\n');
+        }
+    }
+
+    /**
+     * @return Uma linha legível para um registro, ex.: "2024-06-29 10:08:12  #12  local  latte x2  R$ 13.80".
+     */
+    public static String renderLine(SaleRecord record, SimpleDateFormat dateFormat) {
+        StringBuilder line = new StringBuilder(80);
+        line.append(dateFormat.format(new Date(record.getTimestamp())))
+                .append("  #").append(record.getOrderId())
+                .append("  ").append(record.getRegisterId())
+                .append("  ").append(record.getProductName())
+                .append(" x").append(record.getQuantity())
+                .append("  R$ ");
+        return Money.appendTo(line, record.getTotalCents()).toString();
+    }
+
+    private static void encode(ByteBuffer buffer, long timestamp, long orderId, long unitPriceCents,
+                               int quantity, int productId, byte[] register, int registerLength) {
+        int start = buffer.position();
+        buffer.putLong(timestamp)
+                .putLong(orderId)
+                .putLong(unitPriceCents)
+                .putInt(quantity)
+                .putInt(productId)
+                .put((byte) registerLength)
+                .put(register, 0, registerLength);
+        buffer.position(start + RECORD_SIZE);
+    }
+
+    /**
+     * Corta um texto em UTF-8 sem quebrar um caractere no meio.
+     */
+    private static byte[] truncate(String text, int maxBytes) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxBytes) {
+            return bytes;
+        }
+        System.err.println("AVISO: caixa com nome longo demais para o livro de vendas, será cortado: " + text);
+        int end = maxBytes;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        byte[] cut = new byte[end];
+        System.arraycopy(bytes, 0, cut, 0, end);
+        return cut;
+    }
+
+    /**
+     * Leitura mapeada em memória de um instantâneo do livro, que {@link #extend} faz avançar.
+     * Não é segura entre threads. Os registros são lidos sob demanda, sem carregar o arquivo no heap. O arquivo é mapeado
+     * em janelas de tamanho fixo, e um registro nunca fica dividido entre duas delas.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final SalesLedger ledger;
+        private final int windowShift;
+        private final long windowMask;
+        private FileChannel channel;
+        private MappedByteBuffer[] windows = new MappedByteBuffer[0];
+        private long count;
+        private byte[][] names = new byte[0][];
+        private int nameCount;
+
+        Reader(SalesLedger ledger, int windowShift) throws IOException {
+            this.ledger = ledger;
+            this.windowShift = windowShift;
+            this.windowMask = (1L << windowShift) - 1;
+            extend();
+        }
+
+        /**
+         * Passa a incluir os registros gravados desde a abertura (ou desde a última chamada).
+         * Só a última janela, se estava incompleta, e as janelas novas são mapeadas; as
+         * outras continuam as mesmas.
+         * @return Quantos registros novos apareceram.
+         */
+        public long extend() throws IOException {
+            if (channel == null) {
+                if (!Files.exists(ledger.path)) {
+                    return 0;
+                }
+                channel = FileChannel.open(ledger.path, StandardOpenOption.READ);
+            }
+            long size = channel.size();
+            long total = size < HEADER_SIZE ? 0 : (size - HEADER_SIZE) / RECORD_SIZE;
+            // A tabela é copiada depois de fixado o tamanho: todo nome usado por um registro já
+            // gravado entrou nela antes do registro ir para a fila de gravação
+            synchronized (ledger) {
+                names = ledger.names;
+                nameCount = ledger.nameCount;
+            }
+            if (total <= count) {
+                return 0;
+            }
+            int firstWindow = (int) (count >>> windowShift);
+            MappedByteBuffer[] grown = Arrays.copyOf(windows, (int) ((total + windowMask) >>> windowShift));
+            for (int w = firstWindow; w < grown.length; w++) {
+                long first = (long) w << windowShift;
+                long records = Math.min(1L << windowShift, total - first);
+                grown[w] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+                grown[w].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            long added = total - count;
+            windows = grown;
+            count = total;
+            return added;
+        }
+
+        /**
+         * @return Quantos registros completos existem neste instantâneo.
+         */
+        public long size() {
+            return count;
+        }
+
+        /**
+         * @param index A posição do registro (0 é o mais antigo).
+         * @return O registro nessa posição.
+         */
+        public SaleRecord read(long index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Registro " + index + " de " + count);
+            }
+            MappedByteBuffer buffer = window(index);
+            int offset = offset(index);
+            int registerLength = buffer.get(offset + 32) & 0xFF;
+            byte[] register = new byte[registerLength];
+            buffer.get(offset + 33, register);
+            return new SaleRecord(
+                    buffer.getLong(offset),
+                    buffer.getLong(offset + 8),
+                    new String(register, StandardCharsets.UTF_8),
+                    productName(buffer.getInt(offset + 28)),
+                    buffer.getInt(offset + 24),
+                    buffer.getLong(offset + 16));
+        }
+
+        /**
+         * @return Só o momento da venda do registro, sem montar o objeto inteiro.
+         */
+        public long timestampAt(long index) {
+            return window(index).getLong(offset(index));
+        }
+
+        /**
+         * Os campos de um registro lidos sem montar objetos, para quem percorre o livro inteiro.
+         */
+        public long orderIdAt(long index) {
+            return window(index).getLong(offset(index) + 8);
+        }
+
+        public long unitPriceAt(long index) {
+            return window(index).getLong(offset(index) + 16);
+        }
+
+        public int quantityAt(long index) {
+            return window(index).getInt(offset(index) + 24);
+        }
+
+        /**
+         * @return O número do produto na tabela de nomes (ver {@link #productName}).
+         */
+        public int productIdAt(long index) {
+            return window(index).getInt(offset(index) + 28);
+        }
+
+        /**
+         * Copia os bytes UTF-8 do caixa para o vetor (com pelo menos {@value SalesLedger#MAX_REGISTER_BYTES} posições).
+         * @return Quantos bytes foram copiados.
+         */
+        public int registerIdAt(long index, byte[] into) {
+            MappedByteBuffer buffer = window(index);
+            int offset = offset(index);
+            int length = buffer.get(offset + 32) & 0xFF;
+            buffer.get(offset + 33, into, 0, length);
+            return length;
+        }
+
+        /**
+         * @return Quantos nomes de produto a tabela tinha quando a leitura foi aberta ou estendida.
+         */
+        public int productCount() {
+            return nameCount;
+        }
+
+        /**
+         * @return O nome do produto com esse número.
+         */
+        public String productName(int productId) {
+            return new String(productNameBytes(productId), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return Os bytes UTF-8 do nome do produto, compartilhados: não devem ser alterados.
+         * Um número fora da tabela (a tabela perdeu a última linha numa queda de energia) vira
+         * "produto #n".
+         */
+        public byte[] productNameBytes(int productId) {
+            if (productId >= 0 && productId < nameCount) {
+                return names[productId];
+            }
+            return ("produto #" + productId).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private MappedByteBuffer window(long index) {
+            return windows[(int) (index >>> windowShift)];
+        }
+
+        private int offset(long index) {
+            return (int) (index & windowMask) * RECORD_SIZE;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
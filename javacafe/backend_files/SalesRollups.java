@@ -0,0 +1,313 @@
+package javacafe.backend_files;
+
+import javacafe.Models.SaleRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totais de vendas agregados por produto e por hora, dia e mês.
+ * As tabelas são atualizadas a cada pedido finalizado (custo proporcional ao número de
+ * itens do pedido), então um relatório percorre apenas os baldes do período pedido,
+ * e não todas as vendas já feitas.
+ *
+ * As tabelas são gravadas periodicamente em sales_rollups.txt, na pasta da partição do café, junto com a quantidade
+ * de registros do livro de vendas que elas cobrem. Na inicialização, os registros que
+ * faltam são aplicados a partir do livro; se o arquivo não existir ou não bater com o
+ * livro, tudo é reconstruído a partir dele.
+ */
+public final class SalesRollups {
+
+    public enum Granularity { HOUR, DAY, MONTH }
+
+    private static final String LEDGER_RECORDS_HEADER = "#ledgerRecords=";
+    private static final long SAVE_INTERVAL_SECONDS = 60;
+
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sales-rollups-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path path;
+    private final ZoneId zone;
+    private final Map<Granularity, Map<Key, long[]>> tables = new EnumMap<>(Granularity.class);
+    private long ledgerRecords;
+    private boolean dirty;
+    private ScheduledFuture<?> periodicSave;
+
+    SalesRollups(Path path, ZoneId zone) {
+        this.path = path;
+        this.zone = zone;
+        for (Granularity granularity : Granularity.values()) {
+            tables.put(granularity, new HashMap<>());
+        }
+    }
+
+    /**
+     * @return As tabelas da partição do café atual, carregadas e alinhadas com o livro de vendas na primeira chamada.
+     * @throws IOException Se houver um erro ao ler o arquivo ou o livro.
+     */
+    public static SalesRollups get() throws IOException {
+        return CafePartition.current().rollups();
+    }
+
+    /**
+     * Carrega as tabelas gravadas no arquivo, alinha com o livro e agenda as gravações periódicas.
+     */
+    static SalesRollups open(Path path, SalesLedger ledger) throws IOException {
+        SalesRollups rollups = new SalesRollups(path, ZoneId.systemDefault());
+        rollups.load(ledger);
+        rollups.periodicSave = SAVER.scheduleWithFixedDelay(rollups::saveIfDirty,
+                SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return rollups;
+    }
+
+    /**
+     * Para as gravações periódicas e grava as tabelas uma última vez, se mudaram.
+     */
+    void close() {
+        if (periodicSave != null) {
+            periodicSave.cancel(false);
+        }
+        saveIfDirty();
+    }
+
+    /**
+     * Adiciona as linhas de um pedido finalizado às tabelas.
+     * @param records As linhas do pedido, já entregues ao livro de vendas.
+     */
+    public synchronized void record(List<SaleRecord> records) {
+        for (SaleRecord record : records) {
+            apply(record);
+        }
+        ledgerRecords += records.size();
+        dirty = true;
+    }
+
+    /**
+     * Soma unidades e receita (em centavos) de todos os produtos por balde.
+     * @param granularity O tamanho do balde.
+     * @param from Início do período, em ms (inclusive).
+     * @param to Fim do período, em ms (exclusive).
+     * @return Início do balde -> {unidades, centavos}, em ordem cronológica.
+     */
+    public synchronized TreeMap<Long, long[]> totalsByBucket(Granularity granularity, long from, long to) {
+        TreeMap<Long, long[]> totals = new TreeMap<>();
+        for (Map.Entry<Key, long[]> entry : tables.get(granularity).entrySet()) {
+            long bucket = entry.getKey().bucketStart;
+            if (bucket >= from && bucket < to) {
+                add(totals.computeIfAbsent(bucket, b -> new long[2]), entry.getValue());
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Soma unidades e receita (em centavos) de cada produto no período.
+     * Para períodos longos, use a granularidade mais grossa que ainda cubra o período.
+     * @param granularity O tamanho do balde usado para a soma.
+     * @param from Início do período, em ms (inclusive).
+     * @param to Fim do período, em ms (exclusive).
+     * @return Produto -> {unidades, centavos}, em ordem alfabética.
+     */
+    public synchronized TreeMap<String, long[]> totalsByProduct(Granularity granularity, long from, long to) {
+        TreeMap<String, long[]> totals = new TreeMap<>();
+        for (Map.Entry<Key, long[]> entry : tables.get(granularity).entrySet()) {
+            long bucket = entry.getKey().bucketStart;
+            if (bucket >= from && bucket < to) {
+                add(totals.computeIfAbsent(entry.getKey().productName, p -> new long[2]), entry.getValue());
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Percorre as unidades vendidas de cada produto em cada balde do período, sem montar mapas.
+     * Linhas de desconto aparecem com zero unidades.
+     * @param granularity O tamanho do balde.
+     * @param from Início do período, em ms (inclusive).
+     * @param to Fim do período, em ms (exclusive).
+     */
+    public synchronized void visitUnits(Granularity granularity, long from, long to, UnitsVisitor visitor) {
+        for (Map.Entry<Key, long[]> entry : tables.get(granularity).entrySet()) {
+            long bucket = entry.getKey().bucketStart;
+            if (bucket >= from && bucket < to) {
+                visitor.visit(bucket, entry.getKey().productName, entry.getValue()[0]);
+            }
+        }
+    }
+
+    /**
+     * @return O início do balde que contém o momento dado, no fuso horário da loja.
+     */
+    public long bucketStart(Granularity granularity, long timestamp) {
+        ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(zone);
+        switch (granularity) {
+            case HOUR:
+                time = time.truncatedTo(ChronoUnit.HOURS);
+                break;
+            case DAY:
+                time = time.truncatedTo(ChronoUnit.DAYS);
+                break;
+            default:
+                time = time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+                break;
+        }
+        return time.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Descarta as tabelas e as reconstrói lendo o livro de vendas do começo.
+     */
+    public synchronized void rebuild(SalesLedger ledger) throws IOException {
+        for (Map<Key, long[]> table : tables.values()) {
+            table.clear();
+        }
+        ledgerRecords = 0;
+        catchUp(ledger);
+    }
+
+    private void apply(SaleRecord record) {
+        // Linhas de desconto (preço negativo) entram só na receita, não nas unidades
+        long units = record.getUnitPriceCents() < 0 ? 0 : record.getQuantity();
+        long[] delta = {units, record.getTotalCents()};
+        for (Granularity granularity : Granularity.values()) {
+            Key key = new Key(bucketStart(granularity, record.getTimestamp()), record.getProductName());
+            add(tables.get(granularity).computeIfAbsent(key, k -> new long[2]), delta);
+        }
+    }
+
+    private static void add(long[] total, long[] delta) {
+        total[0] += delta[0];
+        total[1] += delta[1];
+    }
+
+    /**
+     * Aplica os registros do livro que ainda não estão nas tabelas.
+     */
+    private void catchUp(SalesLedger ledger) throws IOException {
+        try (SalesLedger.Reader reader = ledger.openReader()) {
+            long total = reader.size();
+            for (long i = ledgerRecords; i < total; i++) {
+                apply(reader.read(i));
+            }
+            if (total != ledgerRecords) {
+                ledgerRecords = total;
+                dirty = true;
+            }
+        }
+    }
+
+    private synchronized void load(SalesLedger ledger) throws IOException {
+        if (!Files.exists(path)) {
+            rebuild(ledger);
+            return;
+        }
+        long begin = Metrics.begin();
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith(LEDGER_RECORDS_HEADER)) {
+                    ledgerRecords = Long.parseLong(line.substring(LEDGER_RECORDS_HEADER.length()).trim());
+                    continue;
+                }
+                // Formato: GRANULARIDADE|inicioDoBalde|unidades|centavos|produto
+                String[] parts = line.split("\\|", 5);
+                if (parts.length != 5) {
+                    continue;
+                }
+                Key key = new Key(Long.parseLong(parts[1]), parts[4]);
+                tables.get(Granularity.valueOf(parts[0])).put(key,
+                        new long[]{Long.parseLong(parts[2]), Long.parseLong(parts[3])});
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Tabelas de vendas inválidas, reconstruindo a partir do livro: " + e.getMessage());
+            rebuild(ledger);
+            return;
+        }
+        Metrics.fileRead(path, Files.size(path), begin);
+        try (SalesLedger.Reader reader = ledger.openReader()) {
+            if (reader.size() < ledgerRecords) {
+                // O livro é mais curto do que as tabelas: elas não são deste livro.
+                rebuild(ledger);
+                return;
+            }
+        }
+        catchUp(ledger);
+    }
+
+    /**
+     * Grava as tabelas, se mudaram desde a última gravação.
+     * O texto é montado aqui (fora da thread da interface) e entregue ao PersistenceWriter.
+     */
+    void saveIfDirty() {
+        String content;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            StringBuilder sb = new StringBuilder();
+            sb.append(LEDGER_RECORDS_HEADER).append(ledgerRecords).append('\n');
+            for (Map.Entry<Granularity, Map<Key, long[]>> table : tables.entrySet()) {
+                for (Map.Entry<Key, long[]> entry : table.getValue().entrySet()) {
+                    sb.append(table.getKey().name()).append('|')
+                            .append(entry.getKey().bucketStart).append('|')
+                            .append(entry.getValue()[0]).append('|')
+                            .append(entry.getValue()[1]).append('|')
+                            .append(entry.getKey().productName).append('\n');
+                }
+            }
+            content = sb.toString();
+        }
+        PersistenceWriter.get().replace(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Recebe as unidades de um produto em um balde (veja {@link #visitUnits}).
+     */
+    public interface UnitsVisitor {
+        void visit(long bucketStart, String productName, long units);
+    }
+
+    private static final class Key {
+        private final long bucketStart;
+        private final String productName;
+
+        Key(long bucketStart, String productName) {
+            this.bucketStart = bucketStart;
+            this.productName = productName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return bucketStart == other.bucketStart && productName.equals(other.productName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(bucketStart) * 31 + productName.hashCode();
+        }
+    }
+}
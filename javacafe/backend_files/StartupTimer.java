@@ -0,0 +1,88 @@
+package javacafe.backend_files;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Medição do tempo de inicialização, por fase.
+ * Cada fase é registrada com o tempo que levou; o resumo é impresso quando a
+ * inicialização termina, e o tempo desde o lançamento da JVM até o primeiro pedido
+ * finalizado é impresso uma vez, quando ele acontece.
+ *
+ * Com -Djavacafe.startup.report=false nada é impresso (os tempos continuam disponíveis).
+ */
+public final class StartupTimer {
+
+    private static final boolean REPORT = Boolean.parseBoolean(System.getProperty("javacafe.startup.report", "true"));
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+    private static final AtomicBoolean FIRST_ORDER = new AtomicBoolean();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * @return Um marcador para medir uma fase com {@link #end}.
+     */
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra uma fase que começou no marcador dado.
+     * @return O tempo da fase, em ms.
+     */
+    public static long end(String phase, long begin) {
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        synchronized (PHASES) {
+            PHASES.put(phase, millis);
+        }
+        return millis;
+    }
+
+    /**
+     * @return Os ms desde o lançamento da JVM.
+     */
+    public static long sinceLaunch() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    /**
+     * @return Uma cópia das fases registradas até agora (nome -> ms), na ordem em que terminaram.
+     */
+    public static Map<String, Long> phases() {
+        synchronized (PHASES) {
+            return new LinkedHashMap<>(PHASES);
+        }
+    }
+
+    /**
+     * Imprime as fases registradas e o tempo desde o lançamento.
+     */
+    public static void report(String title) {
+        if (!REPORT) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(title).append(" (").append(sinceLaunch()).append(" ms desde o lançamento)");
+        for (Map.Entry<String, Long> phase : phases().entrySet()) {
+            sb.append("\n  ").append(phase.getKey()).append(": ").append(phase.getValue()).append(" ms");
+        }
+        System.out.println(sb);
+    }
+
+    /**
+     * Registra o primeiro pedido finalizado desde o lançamento (as chamadas seguintes não fazem nada).
+     */
+    public static void markFirstOrder() {
+        if (FIRST_ORDER.compareAndSet(false, true)) {
+            long millis = sinceLaunch();
+            synchronized (PHASES) {
+                PHASES.put("lançamento até o primeiro pedido", millis);
+            }
+            if (REPORT) {
+                System.out.println("Primeiro pedido finalizado " + millis + " ms depois do lançamento");
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package javacafe.backend_files;
+
+import javacafe.Models.Inventory;
+import javacafe.Models.SaleRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Previsão de falta de estoque a partir da velocidade de vendas de cada produto.
+ *
+ * A velocidade (unidades por hora) é uma média com peso exponencial no tempo: cada venda
+ * soma quantidade / τ e perde peso por e^(-Δt/τ), com τ de {@value #DEFAULT_TIME_CONSTANT_HOURS}
+ * horas por padrão (-Djavacafe.forecast.timeConstantHours). Cada produto guarda só a
+ * velocidade e o momento em que ela foi calculada, então um pedido atualiza apenas os
+ * produtos que vendeu, sem reler o histórico. Na criação, a velocidade parte dos totais
+ * diários do SalesRollups das últimas 4τ.
+ *
+ * Depois de cada pedido, os produtos vendidos são conferidos: se o estoque disponível acaba
+ * antes do prazo de reposição ({@value #DEFAULT_LEAD_TIME_HOURS} h, -Djavacafe.forecast.leadTimeHours),
+ * o produto ganha uma sugestão de reposição que cobre o prazo mais
+ * {@value #DEFAULT_COVER_HOURS} h de vendas (-Djavacafe.forecast.coverHours). Os ouvintes só
+ * são avisados quando a sugestão aparece, não a cada pedido; ela some quando o estoque volta a cobrir o prazo.
+ */
+public final class StockForecast {
+
+    public static final long DEFAULT_TIME_CONSTANT_HOURS = 72;
+    public static final long DEFAULT_LEAD_TIME_HOURS = 48;
+    public static final long DEFAULT_COVER_HOURS = 7 * 24;
+
+    private static final double HOUR_MS = 60 * 60 * 1000.0;
+    // Velocidades menores que isso (uma unidade a cada 1000 h) contam como zero
+    private static final double MIN_UNITS_PER_HOUR = 0.001;
+
+    private final Inventory inventory;
+    private final double timeConstantHours;
+    private final double leadTimeHours;
+    private final double coverHours;
+    // Produto (minúsculas) -> velocidade; protegido pela trava do objeto
+    private final Map<String, Velocity> velocities = new HashMap<>();
+    private final Map<String, Suggestion> suggestions = new ConcurrentHashMap<>();
+    private final List<Consumer<Suggestion>> listeners = new CopyOnWriteArrayList<>();
+
+    StockForecast(Inventory inventory, double timeConstantHours, double leadTimeHours, double coverHours) {
+        this.inventory = inventory;
+        this.timeConstantHours = timeConstantHours;
+        this.leadTimeHours = leadTimeHours;
+        this.coverHours = coverHours;
+    }
+
+    /**
+     * @return A previsão da partição do café atual, com as velocidades iniciais tiradas das tabelas de totais.
+     * @throws IOException Se houver um erro ao carregar o inventário ou as tabelas.
+     */
+    public static StockForecast get() throws IOException {
+        return CafePartition.current().forecast();
+    }
+
+    /**
+     * Cria a previsão de um inventário, com os parâmetros das propriedades do sistema.
+     */
+    static StockForecast open(Inventory inventory, SalesRollups rollups) {
+        StockForecast forecast = new StockForecast(inventory,
+                Long.getLong("javacafe.forecast.timeConstantHours", DEFAULT_TIME_CONSTANT_HOURS),
+                Long.getLong("javacafe.forecast.leadTimeHours", DEFAULT_LEAD_TIME_HOURS),
+                Long.getLong("javacafe.forecast.coverHours", DEFAULT_COVER_HOURS));
+        forecast.seed(rollups, System.currentTimeMillis());
+        return forecast;
+    }
+
+    /**
+     * Soma as vendas recentes das tabelas diárias como se cada dia tivesse vendido no meio do dia,
+     * e confere o estoque de todos os produtos que venderam.
+     */
+    synchronized void seed(SalesRollups rollups, long now) {
+        long from = now - (long) (4 * timeConstantHours * HOUR_MS);
+        long halfDay = (long) (12 * HOUR_MS);
+        rollups.visitUnits(SalesRollups.Granularity.DAY, rollups.bucketStart(SalesRollups.Granularity.DAY, from),
+                now + 1, (bucketStart, productName, units) -> {
+                    if (units > 0) {
+                        add(productName.toLowerCase(), units, Math.min(bucketStart + halfDay, now));
+                    }
+                });
+        for (String name : velocities.keySet()) {
+            check(name, now);
+        }
+    }
+
+    /**
+     * Atualiza as velocidades com as linhas de um pedido finalizado e confere o estoque dos
+     * produtos vendidos. Linhas de desconto (preço negativo) são ignoradas.
+     */
+    public synchronized void record(List<SaleRecord> records) {
+        long begin = Metrics.begin();
+        for (SaleRecord record : records) {
+            if (record.getUnitPriceCents() >= 0 && record.getQuantity() > 0) {
+                add(record.getProductName().toLowerCase(), record.getQuantity(), record.getTimestamp());
+            }
+        }
+        for (SaleRecord record : records) {
+            if (record.getUnitPriceCents() >= 0) {
+                check(record.getProductName().toLowerCase(), record.getTimestamp());
+            }
+        }
+        Metrics.end("forecast.record", begin);
+    }
+
+    /**
+     * Confere de novo um produto cujo estoque mudou fora de um pedido (por exemplo, uma reposição).
+     */
+    public synchronized void check(String productName) {
+        check(productName.toLowerCase(), System.currentTimeMillis());
+    }
+
+    /**
+     * @return A velocidade atual do produto, em unidades por hora (0 se não vendeu recentemente).
+     */
+    public synchronized double unitsPerHour(String productName) {
+        return unitsPerHour(velocities.get(productName.toLowerCase()), System.currentTimeMillis());
+    }
+
+    /**
+     * @return Em quantas horas o estoque disponível do produto acaba no ritmo atual
+     * (infinito se ele não está vendendo, 0 se já acabou).
+     */
+    public synchronized double hoursToStockout(String productName) {
+        String name = productName.toLowerCase();
+        return hoursToStockout(inventory.getStock(name), unitsPerHour(velocities.get(name), System.currentTimeMillis()));
+    }
+
+    /**
+     * @return As sugestões de reposição em aberto, da falta mais próxima para a mais distante.
+     */
+    public List<Suggestion> getSuggestions() {
+        List<Suggestion> open = new ArrayList<>(suggestions.values());
+        open.sort(Comparator.comparingDouble(Suggestion::getHoursToStockout));
+        return open;
+    }
+
+    /**
+     * Registra um ouvinte chamado quando um produto ganha uma sugestão de reposição.
+     * Ele roda na thread que finalizou o pedido, dentro da trava do livro de vendas,
+     * então deve só repassar o aviso (por exemplo, com Platform.runLater).
+     */
+    public void addListener(Consumer<Suggestion> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Suggestion> listener) {
+        listeners.remove(listener);
+    }
+
+    private void add(String name, long units, long timestamp) {
+        Velocity velocity = velocities.computeIfAbsent(name, n -> new Velocity(timestamp));
+        double contribution = units / timeConstantHours;
+        if (timestamp >= velocity.updated) {
+            velocity.unitsPerHour = velocity.unitsPerHour * decay(timestamp - velocity.updated) + contribution;
+            velocity.updated = timestamp;
+        } else {
+            // Uma venda mais antiga que o último cálculo já chega com o peso que perdeu até ele
+            velocity.unitsPerHour += contribution * decay(velocity.updated - timestamp);
+        }
+    }
+
+    private void check(String name, long now) {
+        double unitsPerHour = unitsPerHour(velocities.get(name), now);
+        int stock = inventory.getStock(name);
+        if (stock < 0 || unitsPerHour < MIN_UNITS_PER_HOUR) {
+            suggestions.remove(name);
+            return;
+        }
+        double hours = hoursToStockout(stock, unitsPerHour);
+        if (hours >= leadTimeHours) {
+            suggestions.remove(name);
+            return;
+        }
+        int quantity = (int) Math.ceil(unitsPerHour * (leadTimeHours + coverHours)) - stock;
+        Suggestion suggestion = new Suggestion(name, stock, unitsPerHour, hours, Math.max(1, quantity), now);
+        if (suggestions.put(name, suggestion) == null) {
+            Metrics.count("forecast.suggestions");
+            for (Consumer<Suggestion> listener : listeners) {
+                listener.accept(suggestion);
+            }
+        }
+    }
+
+    private double unitsPerHour(Velocity velocity, long now) {
+        if (velocity == null) {
+            return 0;
+        }
+        return velocity.unitsPerHour * decay(Math.max(0, now - velocity.updated));
+    }
+
+    private static double hoursToStockout(int stock, double unitsPerHour) {
+        if (stock <= 0) {
+            return 0;
+        }
+        return unitsPerHour < MIN_UNITS_PER_HOUR ? Double.POSITIVE_INFINITY : stock / unitsPerHour;
+    }
+
+    private double decay(long elapsedMs) {
+        return Math.exp(-elapsedMs / HOUR_MS / timeConstantHours);
+    }
+
+    private static final class Velocity {
+        private double unitsPerHour;
+        private long updated;
+
+        Velocity(long updated) {
+            this.updated = updated;
+        }
+    }
+
+    /**
+     * Uma sugestão de reposição: o estoque disponível, a velocidade e a projeção no momento
+     * da conferência, e quantas unidades comprar.
+     */
+    public static final class Suggestion {
+        private final String productName;
+        private final int stock;
+        private final double unitsPerHour;
+        private final double hoursToStockout;
+        private final int quantity;
+        private final long timestamp;
+
+        Suggestion(String productName, int stock, double unitsPerHour, double hoursToStockout,
+                   int quantity, long timestamp) {
+            this.productName = productName;
+            this.stock = stock;
+            this.unitsPerHour = unitsPerHour;
+            this.hoursToStockout = hoursToStockout;
+            this.quantity = quantity;
+            this.timestamp = timestamp;
+        }
+
+        public String getProductName() { return productName; }
+        public int getStock() { return stock; }
+        public double getUnitsPerHour() { return unitsPerHour; }
+        public double getHoursToStockout() { return hoursToStockout; }
+        public int getQuantity() { return quantity; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
@@ -1,30 +1,31 @@
 package javacafe.controllers;
 
 import javacafe.Models.Inventory;
+import javacafe.Models.InventoryService;
+import javacafe.Models.Product;
+import javacafe.backend_files.Metrics;
+import javacafe.backend_files.StockForecast;
 // A classe User não estava sendo usada, então o import pode ser removido se não for necessário.
 // import javacafe.Models.User;
-import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.scene.text.Text;
+import javafx.scene.control.ListView;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.ResourceBundle;
 
 public class EditStockController extends PageNavigationController {
     // Componentes da Interface Gráfica (FXML)
-    @FXML private Text numbercookie;
-    @FXML private Text numbercapuccino;
-    @FXML private Text numberlatte;
-    @FXML private Text numbermate;
-    @FXML private Text numberespressof;
-    @FXML private Text numberespresso;
-    @FXML private Text numberbrownie;
+    // A grade de produtos, montada a partir do catálogo do inventário
+    @FXML private ListView<List<Product>> productGrid;
 
     // --- MELHORIA 1: Instância Única de Inventory ---
-    // Criamos uma única instância de Inventory para a tela toda.
-    // Isso evita ler o arquivo repetidamente a cada clique de botão.
+    // Usamos o inventário compartilhado do InventoryService.
+    // Isso evita ler o arquivo a cada clique e a cada troca de tela.
     private Inventory inventory;
+    // Os blocos dos produtos; o número de cada bloco é o estoque disponível
+    private ProductTileGrid grid;
 
     /**
      * O método initialize é chamado pelo JavaFX quando a tela é carregada.
@@ -34,10 +35,21 @@ public class EditStockController extends PageNavigationController {
     public void initialize(URL location, ResourceBundle resources) {
         System.out.println("Edit Stock Page Initialized");
         try {
-            // Instanciamos o inventário UMA VEZ.
-            this.inventory = new Inventory();
-            // Atualizamos todos os textos da tela com os valores do inventário.
-            updateAllStockLabels();
+            // Obtemos o inventário compartilhado (lido do disco só na primeira vez).
+            this.inventory = InventoryService.get();
+            // Um bloco por produto do catálogo, todos com o mesmo handler
+            grid = new ProductTileGrid(productGrid, new ProductTileGrid.TileHandler() {
+                @Override
+                public int count(Product product) {
+                    return product.getStock();
+                }
+
+                @Override
+                public void change(Product product, int amount) {
+                    handleStockChange(product.getName(), amount);
+                }
+            });
+            grid.setProducts(inventory.getProducts());
         } catch (IOException e) {
             System.out.println("ERRO CRÍTICO AO CARREGAR O INVENTÁRIO INICIAL");
             // Em uma aplicação real, você mostraria um pop-up de erro para o usuário aqui.
@@ -45,23 +57,21 @@ public class EditStockController extends PageNavigationController {
         }
     }
 
-    // --- MELHORIA 2: Método único para atualizar a UI ---
     /**
-     * Atualiza todos os campos de texto da interface gráfica com os valores
-     * atuais do nosso objeto 'inventory'. Isso evita código repetido.
+     * A página vem do cache: o estoque pode ter mudado (vendas, outros caixas) desde a última vez,
+     * e outro café pode ter entrado desde então.
      */
-    private void updateAllStockLabels() {
-        // Usamos os novos métodos com nomes de produtos. Muito mais legível!
-        // Usamos "espresso f" conforme seu código antigo. Se o nome no arquivo for diferente, ajuste aqui.
-        numbercapuccino.setText(String.valueOf(inventory.getStock("capuccino")));
-        numberlatte.setText(String.valueOf(inventory.getStock("latte")));
-        numbermate.setText(String.valueOf(inventory.getStock("mate")));
-        numberespressof.setText(String.valueOf(inventory.getStock("espresso f")));
-        numberespresso.setText(String.valueOf(inventory.getStock("espresso")));
-        numbercookie.setText(String.valueOf(inventory.getStock("cookie")));
-        numberbrownie.setText(String.valueOf(inventory.getStock("brownie")));
+    @Override
+    public void onShow() {
+        try {
+            inventory = InventoryService.get();
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar o inventário do café: " + e.getMessage());
+        }
+        grid.setProducts(inventory.getProducts());
+        grid.refreshAll();
     }
-    
+
     // --- MELHORIA 3: Generalizar a lógica de atualização ---
     /**
      * Um método privado e genérico para lidar com a atualização de qualquer produto.
@@ -69,40 +79,18 @@ public class EditStockController extends PageNavigationController {
      * @param amount A quantidade a ser alterada (ex: 1 para adicionar, -1 para remover).
      */
     private void handleStockChange(String productName, int amount) {
+        long begin = Metrics.begin();
         try {
             // Usa o método refatorado de Inventory.
             inventory.updateStock(productName, amount);
-            // Após a atualização, sincroniza a tela inteira.
-            updateAllStockLabels();
+            // Uma reposição pode encerrar a sugestão de reposição do produto
+            StockForecast.get().check(productName);
+            // O bloco do produto é atualizado pela grade depois do clique
         } catch (IOException e) {
             System.err.println("Erro ao salvar o inventário para o produto: " + productName);
             // Aqui também seria bom mostrar um alerta para o usuário.
+        } finally {
+            Metrics.end("ui.handleStockChange", begin);
         }
     }
-
-    // --- Funções de evento (Handlers dos botões) ---
-    // Agora os métodos dos botões são extremamente simples. Eles apenas
-    // delegam a lógica para o nosso método genérico 'handleStockChange'.
-
-    public void takeCapuccino(ActionEvent event) { handleStockChange("capuccino", -1); }
-    public void addCapuccino(ActionEvent event) { handleStockChange("capuccino", 1); }
-
-    public void takeLatte(ActionEvent event) { handleStockChange("latte", -1); }
-    public void addLatte(ActionEvent event) { handleStockChange("latte", 1); }
-
-    public void takeMate(ActionEvent event) { handleStockChange("mate", -1); }
-    public void addMate(ActionEvent event) { handleStockChange("mate", 1); }
-    
-    // ATENÇÃO: Verifique se o nome "espresso f" corresponde exatamente ao que está no seu arquivo inventory.txt
-    public void takeEspressoF(ActionEvent event) { handleStockChange("espresso f", -1); }
-    public void addEspressoF(ActionEvent event) { handleStockChange("espresso f", 1); }
-
-    public void takeEspresso(ActionEvent event) { handleStockChange("espresso", -1); }
-    public void addEspresso(ActionEvent event) { handleStockChange("espresso", 1); }
-
-    public void takeCookie(ActionEvent event) { handleStockChange("cookie", -1); }
-    public void addCookie(ActionEvent event) { handleStockChange("cookie", 1); }
-
-    public void takeBrownie(ActionEvent event) { handleStockChange("brownie", -1); }
-    public void addBrownie(ActionEvent event) { handleStockChange("brownie", 1); }
 }
@@ -0,0 +1,59 @@
+package javacafe.controllers;
+
+import javacafe.backend_files.Metrics;
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detector de travadas da thread da interface.
+ * Uma thread de fundo coloca uma tarefa vazia na fila da thread da interface a cada
+ * {@value #PROBE_MILLIS} ms e mede quanto ela esperou para rodar. Uma espera maior que um
+ * pulso (um quadro a 60 Hz) é uma travada que o caixa vê na tela: ela entra no histograma
+ * "fx.stall" e no contador "fx.stalls". Enquanto uma sonda não roda, nenhuma outra é
+ * enviada, então uma travada longa é medida inteira por uma sonda só.
+ */
+public final class FxStallMonitor {
+
+    private static final long PROBE_MILLIS = 25;
+    private static final long PULSE_NANOS = 1_000_000_000L / 60;
+
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final AtomicBoolean PENDING = new AtomicBoolean();
+
+    private FxStallMonitor() {
+    }
+
+    /**
+     * Começa a observar a thread da interface (as chamadas seguintes não fazem nada).
+     */
+    public static void start() {
+        if (!STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledExecutorService probe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-stall-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probe.scheduleWithFixedDelay(FxStallMonitor::probe, PROBE_MILLIS, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void probe() {
+        if (!PENDING.compareAndSet(false, true)) {
+            return;
+        }
+        long sent = System.nanoTime();
+        Platform.runLater(() -> {
+            long waited = System.nanoTime() - sent;
+            if (waited > PULSE_NANOS) {
+                Metrics.record("fx.stall", waited);
+                Metrics.count("fx.stalls");
+            }
+            PENDING.set(false);
+        });
+    }
+}
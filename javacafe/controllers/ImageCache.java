@@ -0,0 +1,105 @@
+package javacafe.controllers;
+
+import javafx.fxml.JavaFXBuilderFactory;
+import javafx.scene.image.Image;
+import javafx.util.Builder;
+import javafx.util.BuilderFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache das imagens usadas nas páginas, compartilhado por todas elas.
+ * Uma Image pode ser mostrada por vários ImageView ao mesmo tempo, então cada arquivo de
+ * javacafe/assets é decodificado uma única vez, e não uma vez por ImageView por página
+ * (a moldura dos itens, por exemplo, aparece sete vezes em três páginas).
+ *
+ * As páginas usam o cache através de {@link #builderFactory()}: o FXMLLoader passa a pedir
+ * as tags &lt;Image url="..."/&gt; ao cache em vez de criar uma Image nova.
+ * As imagens podem ser carregadas fora da thread da interface (ver StartupPrewarm).
+ */
+public final class ImageCache {
+
+    private static final Map<String, Image> IMAGES = new ConcurrentHashMap<>();
+    private static final BuilderFactory BUILDER_FACTORY = new CachingBuilderFactory();
+
+    private ImageCache() {
+    }
+
+    /**
+     * @param url O endereço completo da imagem (como resolvido pelo FXMLLoader).
+     * @return A imagem decodificada, carregada na primeira chamada.
+     */
+    public static Image get(String url) {
+        return IMAGES.computeIfAbsent(url, Image::new);
+    }
+
+    /**
+     * Uma versão reduzida da imagem, decodificada em segundo plano (usada nos blocos da
+     * grade de produtos, que podem ser milhares e aparecem conforme a lista rola).
+     * Enquanto a decodificação não termina a imagem fica vazia, sem travar a interface.
+     * @param url O endereço completo da imagem.
+     * @param size A largura e altura máximas, em pixels.
+     * @return A imagem reduzida, compartilhada por todos que pedirem o mesmo tamanho.
+     */
+    public static Image get(String url, double size) {
+        return IMAGES.computeIfAbsent(url + "@" + size, key -> new Image(url, size, size, true, true, true));
+    }
+
+    /**
+     * @return Quantas imagens estão no cache.
+     */
+    public static int size() {
+        return IMAGES.size();
+    }
+
+    /**
+     * @return A fábrica de builders para o FXMLLoader que resolve imagens pelo cache.
+     */
+    public static BuilderFactory builderFactory() {
+        return BUILDER_FACTORY;
+    }
+
+    private static final class CachingBuilderFactory implements BuilderFactory {
+        private final JavaFXBuilderFactory defaults = new JavaFXBuilderFactory();
+
+        @Override
+        public Builder<?> getBuilder(Class<?> type) {
+            if (type == Image.class) {
+                return new ImageBuilder();
+            }
+            return defaults.getBuilder(type);
+        }
+    }
+
+    /**
+     * Recebe os atributos da tag &lt;Image&gt; como um mapa (o FXMLLoader entrega os valores
+     * como texto). Só a tag com apenas "url" é compartilhada; com tamanho pedido ou outras
+     * opções, uma Image própria é criada, como o FXMLLoader faria.
+     */
+    private static final class ImageBuilder extends HashMap<String, Object> implements Builder<Image> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Image build() {
+            String url = String.valueOf(get("url"));
+            if (size() == 1 && containsKey("url")) {
+                return ImageCache.get(url);
+            }
+            return new Image(url,
+                    number("requestedWidth"), number("requestedHeight"),
+                    flag("preserveRatio", false), flag("smooth", true), flag("backgroundLoading", false));
+        }
+
+        private double number(String key) {
+            Object value = get(key);
+            return value == null ? 0 : Double.parseDouble(value.toString());
+        }
+
+        private boolean flag(String key, boolean fallback) {
+            Object value = get(key);
+            return value == null ? fallback : Boolean.parseBoolean(value.toString());
+        }
+    }
+}
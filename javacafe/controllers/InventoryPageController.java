@@ -1,15 +1,11 @@
 package javacafe.controllers;
 
 import javacafe.Models.Inventory;
+import javacafe.Models.InventoryService;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.text.Text;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
@@ -26,7 +22,7 @@ public class InventoryPageController extends PageNavigationController {
     @FXML private Text brownieStock;
 
     // --- MELHORIA 1: Instância Única de Inventory ---
-    // Assim como no outro controller, usamos uma única instância para a tela toda.
+    // Assim como no outro controller, usamos o inventário compartilhado do InventoryService.
     private Inventory inventory;
 
     /**
@@ -37,8 +33,8 @@ public class InventoryPageController extends PageNavigationController {
     public void initialize(URL location, ResourceBundle resources) {
         System.out.println("Inventory Page Initialized");
         try {
-            // Instanciamos o inventário apenas uma vez.
-            this.inventory = new Inventory();
+            // Obtemos o inventário compartilhado, sem reler o arquivo.
+            this.inventory = InventoryService.get();
             // Chamamos nosso método auxiliar para popular os textos da tela.
             displayAllStockLevels();
         } catch (IOException e) {
@@ -48,6 +44,20 @@ public class InventoryPageController extends PageNavigationController {
         }
     }
     
+    /**
+     * A página vem do cache: o estoque pode ter mudado desde a última vez que foi mostrada,
+     * e outro café pode ter entrado desde então.
+     */
+    @Override
+    public void onShow() {
+        try {
+            inventory = InventoryService.get();
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar o inventário do café: " + e.getMessage());
+        }
+        displayAllStockLevels();
+    }
+
     // --- MELHORIA 2: Método único para atualizar a UI ---
     /**
      * Atualiza todos os campos de texto da interface gráfica com os valores
@@ -74,15 +84,10 @@ public class InventoryPageController extends PageNavigationController {
 
     /**
      * Direciona para a página de editar estoque.
-     * Nenhuma alteração necessária aqui, a navegação está correta.
      * @param event O evento do clique.
      * @throws IOException Se o arquivo FXML não for encontrado.
      */
     public void editStock(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("../pages/editstockpage.fxml"));
-        Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "editstockpage.fxml");
     }
 }
@@ -0,0 +1,113 @@
+package javacafe.controllers;
+
+import javacafe.backend_files.Metrics;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache das páginas da aplicação.
+ * Cada arquivo de javacafe/pages é carregado uma única vez: a raiz e o controller ficam
+ * guardados, e a navegação só troca a raiz da Scene que já está na janela, em vez de
+ * reler o FXML e criar uma Scene nova a cada clique.
+ *
+ * Como initialize() roda só no primeiro carregamento, o controller que precisa mostrar
+ * dados atualizados implementa {@link Refreshable}; onShow() é chamado toda vez que a
+ * página volta para a tela (e não na primeira vez, logo depois de initialize()).
+ * Usado apenas na thread da interface.
+ */
+public final class PageCache {
+
+    private static final String PAGES_PATH = "/javacafe/pages/";
+
+    /**
+     * Um controller que atualiza a própria tela quando a página é mostrada de novo.
+     */
+    public interface Refreshable {
+        void onShow();
+    }
+
+    private static final Map<String, Page> PAGES = new HashMap<>();
+
+    private PageCache() {
+    }
+
+    /**
+     * Mostra a página na mesma janela do componente que disparou o evento.
+     * @param event O evento do clique.
+     * @param fxmlName O nome do arquivo em javacafe/pages (ex.: "mainpage.fxml").
+     * @throws IOException Se o FXML não puder ser carregado.
+     */
+    public static void show(ActionEvent event, String fxmlName) throws IOException {
+        show((Stage) ((Node) event.getSource()).getScene().getWindow(), fxmlName);
+    }
+
+    /**
+     * Mostra a página na janela, carregando-a se ainda não estiver no cache.
+     */
+    public static void show(Stage stage, String fxmlName) throws IOException {
+        long begin = Metrics.begin();
+        Page page = PAGES.get(fxmlName);
+        boolean cached = page != null;
+        if (!cached) {
+            page = load(fxmlName);
+        }
+        Scene scene = stage.getScene();
+        if (scene == null) {
+            stage.setScene(new Scene(page.root));
+        } else if (scene.getRoot() != page.root) {
+            scene.setRoot(page.root);
+            // As páginas têm tamanhos diferentes (a tela inicial é menor que as de venda)
+            stage.sizeToScene();
+        }
+        if (cached && page.controller instanceof Refreshable) {
+            ((Refreshable) page.controller).onShow();
+        }
+        stage.show();
+        Metrics.end("ui.show." + fxmlName, begin);
+    }
+
+    /**
+     * Carrega a página e a guarda no cache, sem mostrá-la (usado no aquecimento da inicialização).
+     * @return O controller da página.
+     */
+    public static Object preload(String fxmlName) throws IOException {
+        Page page = PAGES.get(fxmlName);
+        if (page == null) {
+            page = load(fxmlName);
+        }
+        return page.controller;
+    }
+
+    private static Page load(String fxmlName) throws IOException {
+        URL location = PageCache.class.getResource(PAGES_PATH + fxmlName);
+        if (location == null) {
+            throw new IOException("Página não encontrada: " + fxmlName);
+        }
+        FXMLLoader loader = new FXMLLoader(location);
+        // As tags <Image> vêm do ImageCache, decodificadas uma vez para todas as páginas
+        loader.setBuilderFactory(ImageCache.builderFactory());
+        Parent root = loader.load();
+        Page page = new Page(root, loader.getController());
+        PAGES.put(fxmlName, page);
+        return page;
+    }
+
+    private static final class Page {
+        private final Parent root;
+        private final Object controller;
+
+        Page(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+}
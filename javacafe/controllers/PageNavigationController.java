@@ -1,56 +1,47 @@
 package javacafe.controllers;
 
+import javacafe.backend_files.CafePartition;
+import javacafe.backend_files.OrderEngine;
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 
-abstract public class PageNavigationController implements Initializable {
-    private Stage stage;
-    private Scene scene;
+/**
+ * Base dos controllers das telas de venda, com a navegação entre elas.
+ * As páginas vêm do PageCache: cada uma é carregada uma vez e depois só é trocada na janela.
+ * Quem precisa atualizar a tela ao voltar para ela sobrescreve {@link #onShow()}.
+ */
+abstract public class PageNavigationController implements Initializable, PageCache.Refreshable {
 
     public void goToOrder(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("../pages/orderpage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "orderpage.fxml");
     }
 
     public void goToItems(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("../pages/mainpage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "mainpage.fxml");
     }
 
     public void goToInventory(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("../pages/inventorypage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "inventorypage.fxml");
     }
 
     public void goToSales(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("../pages/salespage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "salespage.fxml");
     }
 
     public void exitScreen(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("../pages/firstpage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        // Sair abandona o pedido em andamento, como acontecia quando a tela era recriada
+        OrderEngine.get().cancel(OrderEngine.LOCAL_REGISTER);
+        // Os dados do café ficam na memória até a partição dele ficar ociosa
+        CafePartition.logout();
+        PageCache.show(event, "firstpage.fxml");
+    }
+
+    /**
+     * Chamado quando a página volta para a tela. O padrão não faz nada.
+     */
+    @Override
+    public void onShow() {
     }
 }
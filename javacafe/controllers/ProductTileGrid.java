@@ -0,0 +1,288 @@
+package javacafe.controllers;
+
+import com.jfoenix.controls.JFXButton;
+import javacafe.Models.Money;
+import javacafe.Models.Product;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A grade de produtos das telas de itens e de estoque, montada a partir do catálogo do
+ * Inventory em vez de um bloco fixo por produto no FXML.
+ *
+ * A grade é uma ListView em que cada linha mostra alguns produtos lado a lado (quantos
+ * couberem na largura). A ListView só cria as células das linhas visíveis e as reaproveita
+ * ao rolar, então um catálogo de milhares de produtos tem na tela os mesmos poucos blocos
+ * que o cardápio de sete itens.
+ *
+ * Os botões de todos os blocos chamam o mesmo {@link TileHandler}; o número mostrado em cada
+ * bloco é atualizado pelo nome do produto com {@link #refresh(String)}.
+ * Usada apenas na thread da interface.
+ */
+public final class ProductTileGrid {
+
+    /**
+     * O que a tela faz com os blocos: o número mostrado e o clique em - ou +.
+     */
+    public interface TileHandler {
+        int count(Product product);
+
+        void change(Product product, int amount);
+    }
+
+    static final double TILE_WIDTH = 195.0;
+    static final double TILE_HEIGHT = 200.0;
+    private static final double PRODUCT_IMAGE_SIZE = 124.0;
+    private static final String ASSETS_PATH = "/javacafe/assets/";
+    // Imagem de cada produto, quando o nome do arquivo não segue o nome do produto
+    private static final Properties PRODUCT_IMAGES = loadProductImages();
+    private static final Font TILE_FONT = Font.font("Superstar", 14.0);
+
+    private final ListView<List<Product>> view;
+    private final TileHandler handler;
+    private final ObservableList<List<Product>> rows = FXCollections.observableArrayList();
+    private List<Product> products = new ArrayList<>();
+    private int columns;
+    // Os blocos que estão em alguma célula agora, pelo nome do produto que mostram
+    private final Map<String, Tile> shown = new HashMap<>();
+
+    /**
+     * @param view A ListView declarada no FXML da página.
+     * @param handler O que fazer com os cliques e qual número mostrar.
+     */
+    public ProductTileGrid(ListView<List<Product>> view, TileHandler handler) {
+        this.view = view;
+        this.handler = handler;
+        view.setItems(rows);
+        view.setFixedCellSize(TILE_HEIGHT);
+        view.setFocusTraversable(false);
+        view.setCellFactory(list -> new TileRowCell());
+        view.widthProperty().addListener((observable, oldWidth, newWidth) -> layoutRows());
+    }
+
+    /**
+     * Troca os produtos da grade (na ordem do catálogo) e refaz as linhas.
+     * Se o catálogo não mudou desde a última vez, nada é refeito.
+     * A lista é guardada sem cópia (as linhas são sublistas dela), para que o catálogo
+     * do snapshot binário só crie os produtos que aparecem na tela; ela não deve mudar depois.
+     */
+    public void setProducts(List<Product> catalog) {
+        if (catalog == products || catalog.equals(products)) {
+            return;
+        }
+        products = catalog;
+        columns = 0;
+        layoutRows();
+        view.scrollTo(0);
+    }
+
+    /**
+     * Atualiza o número do bloco do produto, se ele estiver na tela. Os que estão fora
+     * da tela são atualizados quando a rolagem os trouxer de volta.
+     */
+    public void refresh(String productName) {
+        Tile tile = shown.get(productName);
+        if (tile != null) {
+            tile.update();
+        }
+    }
+
+    /**
+     * Atualiza o número de todos os blocos na tela.
+     */
+    public void refreshAll() {
+        for (Tile tile : shown.values()) {
+            tile.update();
+        }
+    }
+
+    /**
+     * Divide os produtos em linhas com quantos blocos couberem na largura atual.
+     * Só refaz as linhas quando esse número muda; as sublistas não copiam os produtos.
+     */
+    private void layoutRows() {
+        // Desconta a barra de rolagem
+        double width = view.getWidth() - 16.0;
+        int fit = width > 0 ? Math.max(1, (int) (width / TILE_WIDTH)) : 3;
+        if (fit == columns) {
+            return;
+        }
+        columns = fit;
+        List<List<Product>> newRows = new ArrayList<>((products.size() + fit - 1) / fit);
+        for (int start = 0; start < products.size(); start += fit) {
+            newRows.add(products.subList(start, Math.min(products.size(), start + fit)));
+        }
+        rows.setAll(newRows);
+    }
+
+    private final class TileRowCell extends ListCell<List<Product>> {
+        private final HBox box = new HBox();
+        private final List<Tile> tiles = new ArrayList<>();
+
+        TileRowCell() {
+            setText(null);
+        }
+
+        @Override
+        protected void updateItem(List<Product> row, boolean empty) {
+            super.updateItem(row, empty);
+            int used = empty || row == null ? 0 : row.size();
+            while (tiles.size() < used) {
+                Tile tile = new Tile();
+                tiles.add(tile);
+                box.getChildren().add(tile.root);
+            }
+            for (int i = 0; i < tiles.size(); i++) {
+                tiles.get(i).show(i < used ? row.get(i) : null);
+            }
+            setGraphic(used == 0 ? null : box);
+        }
+    }
+
+    /**
+     * Um bloco: moldura, imagem, nome, preço, botões de - e + e o número entre eles.
+     * As posições são as mesmas dos blocos que ficavam no FXML, 10px mais abaixo para o
+     * preço não sair da célula.
+     */
+    private final class Tile {
+        private final Pane root = new Pane();
+        private final ImageView image = new ImageView();
+        private final Text name = text(49.0, 38.0);
+        private final Text price = text(52.0, 15.0);
+        private final Text count = text(76.0, 172.0);
+        private Product product;
+
+        Tile() {
+            root.setPrefSize(TILE_WIDTH, TILE_HEIGHT);
+            ImageView frame = new ImageView(ImageCache.get(asset("frameitem.png")));
+            frame.setFitWidth(150.0);
+            frame.setFitHeight(150.0);
+            frame.setPreserveRatio(true);
+            frame.setLayoutY(10.0);
+            image.setLayoutX(13.0);
+            image.setLayoutY(28.0);
+            image.setFitWidth(PRODUCT_IMAGE_SIZE);
+            image.setFitHeight(PRODUCT_IMAGE_SIZE);
+            image.setPreserveRatio(true);
+            root.getChildren().addAll(frame, image, name, price, count,
+                    button("minus_button.png", 21.0, -1), button("add_button.png", 84.0, 1));
+        }
+
+        /**
+         * Passa a mostrar o produto (ou nada, se for null).
+         */
+        void show(Product next) {
+            if (product != null && shown.get(product.getName()) == this) {
+                shown.remove(product.getName());
+            }
+            product = next;
+            root.setVisible(next != null);
+            if (next == null) {
+                return;
+            }
+            shown.put(next.getName(), this);
+            String url = productImage(next.getName());
+            image.setImage(url == null ? null : ImageCache.get(url, PRODUCT_IMAGE_SIZE));
+            name.setText(next.getName());
+            price.setText("R$ " + Money.format(next.getPriceCents()));
+            update();
+        }
+
+        void update() {
+            if (product != null) {
+                count.setText(String.valueOf(handler.count(product)));
+            }
+        }
+
+        private JFXButton button(String asset, double x, int amount) {
+            ImageView icon = new ImageView(ImageCache.get(asset(asset)));
+            icon.setFitWidth(62.0);
+            icon.setFitHeight(62.0);
+            icon.setPreserveRatio(true);
+            JFXButton button = new JFXButton(null, icon);
+            button.getStyleClass().addAll("buttonclick", "tile-button");
+            button.setLayoutX(x);
+            button.setLayoutY(128.0);
+            button.setOnAction(event -> {
+                if (product != null) {
+                    String productName = product.getName();
+                    handler.change(product, amount);
+                    refresh(productName);
+                }
+            });
+            return button;
+        }
+    }
+
+    /**
+     * @return Os endereços das imagens que todo bloco usa (moldura e botões), para o aquecimento.
+     */
+    static List<String> commonImages() {
+        List<String> urls = new ArrayList<>();
+        for (String fileName : new String[]{"frameitem.png", "minus_button.png", "add_button.png"}) {
+            String url = asset(fileName);
+            if (url != null) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    private static Text text(double x, double y) {
+        Text text = new Text();
+        text.setFill(Color.WHITE);
+        text.setFont(TILE_FONT);
+        text.setLayoutX(x);
+        text.setLayoutY(y);
+        return text;
+    }
+
+    private static String asset(String fileName) {
+        URL url = ProductTileGrid.class.getResource(ASSETS_PATH + fileName);
+        return url == null ? null : url.toString();
+    }
+
+    /**
+     * A imagem do produto: a indicada em products.properties, ou então "nome.png" ou
+     * "nome_icon.png" (com "_" no lugar dos espaços). Sem nenhuma delas o bloco fica só
+     * com a moldura.
+     */
+    static String productImage(String productName) {
+        String mapped = PRODUCT_IMAGES.getProperty(productName);
+        if (mapped != null) {
+            return asset(mapped);
+        }
+        String base = productName.replace(' ', '_');
+        String url = asset(base + ".png");
+        return url != null ? url : asset(base + "_icon.png");
+    }
+
+    private static Properties loadProductImages() {
+        Properties images = new Properties();
+        try (InputStream in = ProductTileGrid.class.getResourceAsStream(ASSETS_PATH + "products.properties")) {
+            if (in != null) {
+                images.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler as imagens dos produtos: " + e.getMessage());
+        }
+        return images;
+    }
+}
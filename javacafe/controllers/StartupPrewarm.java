@@ -0,0 +1,172 @@
+package javacafe.controllers;
+
+import javacafe.Models.InventoryService;
+import javacafe.Models.Promotions;
+import javacafe.backend_files.CredentialStore;
+import javacafe.backend_files.OrderEngine;
+import javacafe.backend_files.ReceiptArchive;
+import javacafe.backend_files.SalesRollups;
+import javacafe.backend_files.StartupTimer;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aquecimento da aplicação enquanto a tela de login está aberta.
+ *
+ * Em paralelo, fora da thread da interface:
+ * <ul>
+ * <li>lê o texto de todas as páginas e decodifica todas as imagens citadas nelas no ImageCache;</li>
+ * <li>carrega o inventário, os cafés registrados, as promoções, o livro de vendas com as
+ * tabelas de totais e o índice de recibos, e monta o OrderEngine.</li>
+ * </ul>
+ * Quando os dois terminam, as páginas de venda são carregadas no PageCache na thread da
+ * interface, uma por vez (uma por pulso), para não travar a tela de login.
+ * O tempo de cada fase é registrado no StartupTimer.
+ */
+public final class StartupPrewarm {
+
+    // As páginas que o operador usa depois do login, na ordem em que costumam ser abertas
+    private static final String[] PAGES = {
+            "logscene.fxml", "mainpage.fxml", "orderpage.fxml", "inventorypage.fxml",
+            "editstockpage.fxml", "salespage.fxml", "registerscreen.fxml"
+    };
+    private static final Pattern IMAGE_URL = Pattern.compile("url=\"@([^\"]+)\"");
+
+    private StartupPrewarm() {
+    }
+
+    /**
+     * Começa o aquecimento em segundo plano e retorna imediatamente.
+     */
+    public static void start() {
+        long started = StartupTimer.begin();
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "startup-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<Void> images = CompletableFuture.runAsync(() -> decodeImages(pool), pool);
+        CompletableFuture<Void> stores = loadStores(pool);
+
+        CompletableFuture.allOf(images, stores).whenComplete((ignored, error) -> {
+            pool.shutdown();
+            if (error != null) {
+                System.err.println("Erro no aquecimento da inicialização: " + error.getMessage());
+            }
+            Platform.runLater(() -> preloadPages(0, started, StartupTimer.begin()));
+        });
+    }
+
+    /**
+     * Lê o texto de cada página, coleta os endereços das imagens e as decodifica em paralelo.
+     */
+    private static void decodeImages(ExecutorService pool) {
+        long begin = StartupTimer.begin();
+        Set<String> urls = new LinkedHashSet<>();
+        for (String page : PAGES) {
+            URL location = StartupPrewarm.class.getResource("/javacafe/pages/" + page);
+            if (location == null) {
+                continue;
+            }
+            try (InputStream in = location.openStream()) {
+                Matcher matcher = IMAGE_URL.matcher(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                while (matcher.find()) {
+                    // Mesma resolução do "@" do FXMLLoader, para as chaves do cache baterem
+                    urls.add(resolve(location, matcher.group(1)));
+                }
+            } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+                System.err.println("Erro ao ler a página " + page + ": " + e.getMessage());
+            }
+        }
+        // Os blocos da grade de produtos são montados em código, fora do FXML
+        urls.addAll(ProductTileGrid.commonImages());
+        StartupTimer.end("leitura das páginas", begin);
+
+        begin = StartupTimer.begin();
+        List<CompletableFuture<Void>> decoding = new ArrayList<>();
+        for (String url : urls) {
+            decoding.add(CompletableFuture.runAsync(() -> ImageCache.get(url), pool));
+        }
+        CompletableFuture.allOf(decoding.toArray(new CompletableFuture<?>[0])).join();
+        StartupTimer.end("imagens (" + urls.size() + ")", begin);
+    }
+
+    /**
+     * Resolve um caminho relativo à página. Um URI "jar:" é opaco e não resolve caminhos,
+     * então só a parte de dentro do jar (depois do "!") é resolvida.
+     */
+    private static String resolve(URL location, String path) throws URISyntaxException {
+        String base = location.toString();
+        int entry = base.indexOf("!/");
+        if (entry < 0) {
+            return location.toURI().resolve(path).toString();
+        }
+        return base.substring(0, entry + 1) + new URI(base.substring(entry + 1)).resolve(path);
+    }
+
+    /**
+     * Carrega os arquivos de dados ao mesmo tempo; o OrderEngine é montado depois deles.
+     */
+    private static CompletableFuture<Void> loadStores(ExecutorService pool) {
+        CompletableFuture<Void> inventory = timed("inventário", pool, InventoryService::get);
+        CompletableFuture<Void> users = timed("cafés registrados", pool, CredentialStore::get);
+        CompletableFuture<Void> promotions = timed("promoções", pool, Promotions::get);
+        CompletableFuture<Void> sales = timed("livro e totais de vendas", pool, SalesRollups::get);
+        CompletableFuture<Void> receipts = timed("índice de recibos", pool, ReceiptArchive::get);
+        return CompletableFuture.allOf(inventory, users, promotions, sales, receipts)
+                .thenCompose(ignored -> timed("motor de pedidos", pool, OrderEngine::get));
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        Object load() throws IOException;
+    }
+
+    private static CompletableFuture<Void> timed(String phase, ExecutorService pool, Loader loader) {
+        return CompletableFuture.runAsync(() -> {
+            long begin = StartupTimer.begin();
+            try {
+                loader.load();
+            } catch (IOException e) {
+                // A tela que usar o dado vai tentar de novo e mostrar o erro
+                System.err.println("Erro ao carregar " + phase + " na inicialização: " + e.getMessage());
+            }
+            StartupTimer.end(phase, begin);
+        }, pool);
+    }
+
+    /**
+     * Carrega uma página por vez na thread da interface e agenda a próxima.
+     */
+    private static void preloadPages(int index, long started, long begin) {
+        if (index >= PAGES.length) {
+            StartupTimer.end("páginas (" + PAGES.length + ")", begin);
+            StartupTimer.end("aquecimento completo", started);
+            StartupTimer.report("Inicialização concluída");
+            return;
+        }
+        try {
+            PageCache.preload(PAGES[index]);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao pré-carregar " + PAGES[index] + ": " + e.getMessage());
+        }
+        Platform.runLater(() -> preloadPages(index + 1, started, begin));
+    }
+}
@@ -1,47 +1,66 @@
 // Em: javacafe/controllers/mainPageController.java
 package javacafe.controllers;
 
+import javacafe.Models.Cart;
 import javacafe.Models.Inventory;
 import javacafe.Models.Product; // Import necessário
+import javacafe.backend_files.CafePartition;
+import javacafe.backend_files.Metrics;
+import javacafe.backend_files.OrderEngine;
+import javacafe.backend_files.PersistenceWriter;
+import javacafe.backend_files.ReceiptRenderer;
+import javacafe.backend_files.StockForecast;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
-import javafx.scene.text.Text;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap; // Import necessário
+import java.util.List;
 import java.util.Map;     // Import necessário
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 
 public class mainPageController extends PageNavigationController {
-    // --- Campos FXML (sem alterações) ---
-    @FXML private Text numbercookie;
-    @FXML private Text numbercapuccino;
-    @FXML private Text numberlatte;
-    @FXML private Text numbermate;
-    @FXML private Text numberespressof;
-    @FXML private Text numberespresso;
-    @FXML private Text numberbrownie;
+    // --- Campos FXML ---
+    // A grade de produtos, montada a partir do catálogo do inventário
+    @FXML private ListView<List<Product>> productGrid;
+    // Busca por nome ou apelido; vazia, a grade mostra o catálogo inteiro
+    @FXML private TextField searchField;
+    // Aviso dos produtos que devem acabar antes da reposição (não bloqueia o caixa como o alerta)
+    @FXML private Label reorderNotice;
+    // Quantos produtos a busca mostra, no máximo
+    private static final int SEARCH_LIMIT = 200;
+    // Quantos produtos o aviso de reposição cita pelo nome
+    private static final int NOTICE_LIMIT = 3;
     
     // --- MELHORIA 1: Gerenciamento de Estado ---
-    private Inventory inventory; // Acesso ao estoque geral
-    // O "carrinho de compras" atual. Mapeia o nome do produto à quantidade pedida.
-    private Map<String, Integer> currentOrder; 
-    // Mapeia o nome do produto ao seu componente de Texto na UI para fácil acesso.
-    private Map<String, Text> uiTextMap; 
+    private OrderEngine engine; // Motor de pedidos; esta tela é o caixa OrderEngine.LOCAL_REGISTER
+    private Inventory inventory; // Acesso ao estoque geral (compartilhado entre as telas)
+    // O "carrinho de compras" atual. Cada unidade nele é uma reserva feita no inventário.
+    private Cart currentOrder;
+    // Os blocos dos produtos; o número de cada bloco é a quantidade no carrinho
+    private ProductTileGrid grid;
+    // Renderizadores dos recibos do pedido em andamento (detalhado e resumido)
+    private final ReceiptRenderer detailedRenderer = new ReceiptRenderer(ReceiptRenderer.DETAILED);
+    private final ReceiptRenderer summaryRenderer = new ReceiptRenderer(ReceiptRenderer.SUMMARY);
+    // Uma sugestão nova chega na thread que finalizou o pedido
+    private final Consumer<StockForecast.Suggestion> forecastListener =
+            suggestion -> Platform.runLater(this::showReorderNotice);
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         System.out.println("Main Page Initialized");
         try {
-            this.inventory = new Inventory();
-            this.currentOrder = new HashMap<>();
+            bindEngine();
             
-            // Mapeia os nomes dos produtos aos seus respectivos TextFields da UI
-            initializeUiMap();
+            // Um bloco por produto do catálogo, todos com o mesmo handler
+            initializeGrid();
+            showReorderNotice();
             
             // Reseta a tela para um novo pedido
             resetOrder();
@@ -51,154 +70,192 @@ public class mainPageController extends PageNavigationController {
         }
     }
 
-    private void initializeUiMap() {
-        this.uiTextMap = new HashMap<>();
-        uiTextMap.put("capuccino", numbercapuccino);
-        uiTextMap.put("latte", numberlatte);
-        uiTextMap.put("mate", numbermate);
-        uiTextMap.put("espresso f", numberespressof);
-        uiTextMap.put("espresso", numberespresso);
-        uiTextMap.put("cookie", numbercookie);
-        uiTextMap.put("brownie", numberbrownie);
+    /**
+     * Passa a usar o motor do café atual (o da partição de quem entrou por último).
+     */
+    private void bindEngine() throws IOException {
+        OrderEngine current = OrderEngine.get();
+        if (current == engine) {
+            return;
+        }
+        if (engine != null) {
+            engine.getForecast().removeListener(forecastListener);
+        }
+        this.engine = current;
+        this.inventory = engine.getInventory();
+        this.currentOrder = engine.cart(OrderEngine.LOCAL_REGISTER);
+        engine.getForecast().addListener(forecastListener);
     }
-    
+
+    private void initializeGrid() {
+        this.grid = new ProductTileGrid(productGrid, new ProductTileGrid.TileHandler() {
+            @Override
+            public int count(Product product) {
+                return currentOrder.getQuantity(product.getName());
+            }
+
+            @Override
+            public void change(Product product, int amount) {
+                if (amount > 0) {
+                    handleAddItem(product.getName());
+                } else {
+                    handleRemoveItem(product.getName());
+                }
+            }
+        });
+        // A cada tecla a grade mostra os resultados da busca
+        searchField.textProperty().addListener((observable, oldText, newText) -> showProducts());
+        showProducts();
+    }
+
+    /**
+     * Mostra na grade o catálogo inteiro ou, com algo digitado na busca, os produtos encontrados.
+     */
+    private void showProducts() {
+        String query = searchField.getText();
+        if (query == null || query.trim().isEmpty()) {
+            grid.setProducts(inventory.getProducts());
+        } else {
+            long begin = Metrics.begin();
+            grid.setProducts(inventory.search(query, SEARCH_LIMIT));
+            Metrics.end("ui.search", begin);
+        }
+    }
+
+    /**
+     * Enter na busca adiciona ao pedido o primeiro produto encontrado.
+     */
+    public void addFirstResult(ActionEvent event) {
+        List<Product> found = inventory.search(searchField.getText(), 1);
+        if (!found.isEmpty()) {
+            String productName = found.get(0).getName();
+            handleAddItem(productName);
+            grid.refresh(productName);
+        }
+    }
+
+    /**
+     * A página vem do cache: o pedido pode ter sido finalizado na tela de pedidos,
+     * então a tela é sincronizada com o carrinho (que continua aberto entre as telas).
+     * O catálogo é relido porque o inventário pode ter sido recarregado, ou porque outro
+     * café entrou e a tela passa a usar os dados dele.
+     */
+    @Override
+    public void onShow() {
+        try {
+            bindEngine();
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar os dados do café: " + e.getMessage());
+        }
+        showProducts();
+        updateAndSaveReceipts();
+        showReorderNotice();
+    }
+
+    /**
+     * Mostra os produtos com sugestão de reposição, da falta mais próxima para a mais distante.
+     */
+    private void showReorderNotice() {
+        List<StockForecast.Suggestion> suggestions = engine.getForecast().getSuggestions();
+        if (suggestions.isEmpty()) {
+            reorderNotice.setText("");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Repor em breve: ");
+        for (int i = 0; i < Math.min(NOTICE_LIMIT, suggestions.size()); i++) {
+            StockForecast.Suggestion suggestion = suggestions.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(suggestion.getProductName());
+            if (suggestion.getStock() <= 0) {
+                sb.append(" (esgotado");
+            } else {
+                sb.append(" (acaba em ~").append(Math.max(1, Math.round(suggestion.getHoursToStockout()))).append(" h");
+            }
+            sb.append(", pedir ").append(suggestion.getQuantity()).append(')');
+        }
+        if (suggestions.size() > NOTICE_LIMIT) {
+            sb.append(" e mais ").append(suggestions.size() - NOTICE_LIMIT);
+        }
+        reorderNotice.setText(sb.toString());
+    }
+
     /**
      * Zera o pedido atual, limpando o carrinho e a UI.
+     * As reservas de um pedido abandonado voltam para o estoque disponível.
      */
     private void resetOrder() {
-        currentOrder.clear();
-        for (Text uiText : uiTextMap.values()) {
-            uiText.setText("0");
-        }
+        engine.cancel(OrderEngine.LOCAL_REGISTER);
         updateAndSaveReceipts(); // Gera os recibos vazios iniciais
     }
 
     // --- MELHORIA 2: Lógica de Manipulação do Pedido Generalizada ---
     
     private void handleAddItem(String productName) {
-        Product product = inventory.getProduct(productName);
-        if (product != null && product.getStock() > 0) {
-            try {
-                // Adiciona ao carrinho local
-                int currentCount = currentOrder.getOrDefault(productName, 0);
-                currentOrder.put(productName, currentCount + 1);
-
-                // Remove do estoque geral
-                inventory.updateStock(productName, -1);
-                
-                // Atualiza a tela e salva os recibos
-                updateAndSaveReceipts();
-            } catch (IOException e) {
-                showAlert("ERRO", "Não foi possível atualizar o estoque.");
-            }
+        // O tempo medido não inclui o alerta, que espera o caixa fechar a janela
+        long begin = Metrics.begin();
+        // Reserva uma unidade: a baixa definitiva no estoque só acontece ao finalizar o pedido.
+        // O motor reserva no estoque e adiciona ao carrinho deste caixa.
+        if (engine.addItem(OrderEngine.LOCAL_REGISTER, productName)) {
+            // A grade atualiza o bloco do produto; aqui só os recibos são salvos
+            saveReceipts();
+            Metrics.end("ui.handleAddItem", begin);
         } else {
+            Metrics.end("ui.handleAddItem", begin);
             showAlert("Estoque Esgotado", "Não há mais " + productName + " em estoque!");
         }
     }
 
     private void handleRemoveItem(String productName) {
-        int currentCount = currentOrder.getOrDefault(productName, 0);
-        if (currentCount > 0) {
-            try {
-                // Remove do carrinho local
-                currentOrder.put(productName, currentCount - 1);
-                
-                // Devolve ao estoque geral
-                inventory.updateStock(productName, 1);
-                
-                // Atualiza a tela e salva os recibos
-                updateAndSaveReceipts();
-            } catch (IOException e) {
-                showAlert("ERRO", "Não foi possível atualizar o estoque.");
-            }
+        long begin = Metrics.begin();
+        // Remove do carrinho deste caixa e devolve a reserva ao estoque disponível
+        if (engine.removeItem(OrderEngine.LOCAL_REGISTER, productName)) {
+            // A grade atualiza o bloco do produto; aqui só os recibos são salvos
+            saveReceipts();
         }
+        Metrics.end("ui.handleRemoveItem", begin);
     }
     
     /**
      * Método central que atualiza a UI e salva os arquivos de recibo.
+     * A gravação é entregue ao PersistenceWriter, então o clique não espera pelo disco.
      */
     private void updateAndSaveReceipts() {
-        // Atualiza a contagem na tela
-        for (Map.Entry<String, Text> entry : uiTextMap.entrySet()) {
-            entry.getValue().setText(String.valueOf(currentOrder.getOrDefault(entry.getKey(), 0)));
-        }
-        
+        // Atualiza a contagem dos blocos que estão na tela
+        grid.refreshAll();
+        saveReceipts();
+    }
+
+    private void saveReceipts() {
         // Gera e salva os recibos
-        saveReceiptToFile("files/counts.txt", false);
-        saveReceiptToFile("files/resumo.txt", true);
+        CafePartition partition = CafePartition.current();
+        saveReceiptToFile(partition.file("counts.txt").toString(), false);
+        saveReceiptToFile(partition.file("resumo.txt").toString(), true);
     }
 
     // --- MELHORIA 3: Lógica de Geração de Recibo Unificada ---
     
     private void saveReceiptToFile(String filePath, boolean isSummary) {
-        StringBuilder content = new StringBuilder();
-        double totalSum = 0;
-
-        if (isSummary) {
-            content.append("----------------------------------\n");
-        }
+        // Os layouts são compilados uma vez e o buffer de cada renderizador é reaproveitado
+        ReceiptRenderer renderer = isSummary ? summaryRenderer : detailedRenderer;
+        renderer.begin(0, System.currentTimeMillis(), OrderEngine.LOCAL_REGISTER);
 
-        for (Map.Entry<String, Integer> orderEntry : currentOrder.entrySet()) {
-            String productName = orderEntry.getKey();
+        for (Map.Entry<String, Integer> orderEntry : currentOrder.getItems().entrySet()) {
             int quantity = orderEntry.getValue();
-            
             if (quantity > 0) {
-                Product product = inventory.getProduct(productName);
+                Product product = inventory.getProduct(orderEntry.getKey());
                 if (product != null) {
-                    double subtotal = quantity * product.getPrice();
-                    totalSum += subtotal;
-
-                    if (isSummary) {
-                        content.append(product.getName().substring(0, 3)).append(": ").append(quantity).append(" | ");
-                    } else {
-                        String line = String.format("%-20s %d \t R$ %.2f\n", product.getName() + ":", quantity, subtotal);
-                        content.append(line);
-                    }
+                    renderer.line(product.getName(), quantity, product.getPriceCents());
                 }
             }
         }
 
-        if (!isSummary) {
-            content.append("------------------------------------------------------------------\n");
-        }
-
-        if (totalSum > 0) {
-            if (isSummary) {
-                content.append(String.format("\nR$ %.2f", totalSum));
-            } else {
-                content.append(String.format("Valor: \t\t\t R$ %.2f", totalSum));
-            }
-        }
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write(content.toString());
-        } catch (IOException e) {
-            System.err.println("Error saving file " + filePath + ": " + e.getMessage());
-        }
+        // Subtotal, descontos e imposto já estão atualizados no carrinho
+        CharSequence receipt = renderer.finish(currentOrder.getDiscountCents(), currentOrder.getTaxCents());
+        PersistenceWriter.get().replace(filePath, receipt.toString());
     }
 
-    // --- Handlers dos Botões (agora muito mais simples) ---
-    public void takeCapuccino(ActionEvent event) { handleRemoveItem("capuccino"); }
-    public void addCapuccino(ActionEvent event) { handleAddItem("capuccino"); }
-
-    public void takeLatte(ActionEvent event) { handleRemoveItem("latte"); }
-    public void addLatte(ActionEvent event) { handleAddItem("latte"); }
-
-    public void takeMate(ActionEvent event) { handleRemoveItem("mate"); }
-    public void addMate(ActionEvent event) { handleAddItem("mate"); }
-
-    public void takeEspressoF(ActionEvent event) { handleRemoveItem("espresso f"); }
-    public void addEspressoF(ActionEvent event) { handleAddItem("espresso f"); }
-
-    public void takeEspresso(ActionEvent event) { handleRemoveItem("espresso"); }
-    public void addEspresso(ActionEvent event) { handleAddItem("espresso"); }
-
-    public void takeCookie(ActionEvent event) { handleRemoveItem("cookie"); }
-    public void addCookie(ActionEvent event) { handleAddItem("cookie"); }
-
-    public void takeBrownie(ActionEvent event) { handleRemoveItem("brownie"); }
-    public void addBrownie(ActionEvent event) { handleAddItem("brownie"); }
-
     private void showAlert(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setHeaderText(title);
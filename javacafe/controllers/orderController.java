@@ -1,70 +1,101 @@
 package javacafe.controllers;
 
+import javacafe.Models.Cart;
+import javacafe.Models.Inventory;
+import javacafe.Models.Product;
+import javacafe.backend_files.CafePartition;
+import javacafe.backend_files.Metrics;
+import javacafe.backend_files.OrderEngine;
+import javacafe.backend_files.PersistenceWriter;
+import javacafe.backend_files.ReceiptRenderer;
+import javacafe.backend_files.StartupTimer;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.text.Text;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 public class orderController extends PageNavigationController {
 
     // --- MELHORIA 1: Centralizar nomes de arquivos como constantes ---
-    private static final String ORDER_DETAILS_FILE = "counts.txt";
-    private static final String ORDER_SUMMARY_FILE = "files/resumo.txt";
-    private static final String SALES_HISTORY_FILE = "files/sales.txt";
+    // Ficam na pasta da partição do café que está usando as telas
+    static final String ORDER_DETAILS_FILE = "counts.txt";
+    static final String ORDER_SUMMARY_FILE = "resumo.txt";
 
     @FXML
     private Text ordertxt;
 
+    // Mesmo layout do arquivo de detalhes, montado direto do carrinho, sem ler o disco
+    private final ReceiptRenderer detailedRenderer = new ReceiptRenderer(ReceiptRenderer.DETAILED);
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         System.out.println("Order Page Initialized");
+        showCurrentOrder();
+    }
+
+    /**
+     * A página vem do cache: mostra o pedido como ele está agora.
+     */
+    @Override
+    public void onShow() {
+        showCurrentOrder();
+    }
+
+    private void showCurrentOrder() {
         try {
-            // Usa a constante para ler o arquivo do pedido atual
-            String content = readFile(ORDER_DETAILS_FILE);
-            ordertxt.setText(content);
+            Cart cart = OrderEngine.get().cart(OrderEngine.LOCAL_REGISTER);
+            Inventory inventory = OrderEngine.get().getInventory();
+            detailedRenderer.begin(0, System.currentTimeMillis(), OrderEngine.LOCAL_REGISTER);
+            for (Map.Entry<String, Integer> item : cart.getItems().entrySet()) {
+                Product product = inventory.getProduct(item.getKey());
+                if (product != null && item.getValue() > 0) {
+                    detailedRenderer.line(product.getName(), item.getValue(), cart.getUnitCents(item.getKey()));
+                }
+            }
+            ordertxt.setText(detailedRenderer.finish(cart.getDiscountCents(), cart.getTaxCents()).toString());
         } catch (IOException e) {
-            System.err.println("Erro ao ler o arquivo do pedido: " + e.getMessage());
+            System.err.println("Erro ao carregar o pedido: " + e.getMessage());
             ordertxt.setText("Não foi possível carregar os detalhes do pedido.");
         }
     }
 
     /**
-     * Finaliza o pedido, gera o recibo e limpa o estado do pedido atual.
+     * Finaliza o pedido, arquiva o recibo e limpa o estado do pedido atual.
+     * As gravações são entregues ao PersistenceWriter e acontecem fora da thread da interface,
+     * na ordem em que foram pedidas.
      */
     public void finishOrder(ActionEvent event) {
+        // O tempo medido vai até a tela mostrar o resultado, sem o alerta que espera o caixa
+        long begin = Metrics.begin();
         try {
             // --- MELHORIA 2: Lógica unificada em um único bloco try-catch ---
             
-            // 1. Gera um recibo único com timestamp
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            String receiptFileName = "receipt_" + timestamp + ".txt";
-            String receiptContent = "Receipt\n\n" + ordertxt.getText();
-            
-            writeFile(receiptFileName, receiptContent, false); // false para não adicionar, mas sobrescrever
-            System.out.println("Recibo gerado com sucesso: " + receiptFileName);
-
-            // 2. Adiciona o resumo do pedido ao histórico de vendas
-            String historyContent = readFile(ORDER_SUMMARY_FILE);
-            writeFile(SALES_HISTORY_FILE, historyContent, true); // true para adicionar ao final do arquivo
+            // 0. O motor confirma as reservas do carrinho no estoque, registra a venda no histórico
+            //    e guarda o recibo, com um número de pedido único, no arquivo de recibos
+            OrderEngine.FinishedOrder order = OrderEngine.get().finish(OrderEngine.LOCAL_REGISTER);
+            if (order == null) {
+                Metrics.end("ui.finishOrder", begin);
+                showAlert(Alert.AlertType.ERROR, "Erro", "As reservas do pedido não conferem com o estoque.");
+                return;
+            }
+            if (order.getOrderId() > 0) {
+                System.out.println("Recibo arquivado para o pedido #" + order.getOrderId());
+                StartupTimer.markFirstOrder();
+            }
 
-            // 3. --- MELHORIA 3: Limpa o pedido atual para evitar "pedidos fantasma" ---
+            // 1. --- MELHORIA 3: Limpa o pedido atual para evitar "pedidos fantasma" ---
             clearCurrentOrderFiles();
-            ordertxt.setText("Pedido finalizado com sucesso!\nUm novo pedido pode ser iniciado.");
+            String orderLabel = order.getOrderId() > 0 ? "Pedido #" + order.getOrderId() : "Pedido";
+            ordertxt.setText(orderLabel + " finalizado com sucesso!\nUm novo pedido pode ser iniciado.");
+            Metrics.end("ui.finishOrder", begin);
             
-            // 4. Mostra alerta de sucesso
-            showAlert(Alert.AlertType.INFORMATION, "Pedido Concluído", "O recibo foi gerado e o pedido finalizado.");
+            // 2. Mostra alerta de sucesso
+            showAlert(Alert.AlertType.INFORMATION, "Pedido Concluído", "O recibo do " + orderLabel.toLowerCase() + " foi arquivado e o pedido finalizado.");
 
         } catch (IOException e) {
             System.err.println("Falha ao finalizar o pedido: " + e.getMessage());
@@ -79,22 +110,12 @@ public class orderController extends PageNavigationController {
      * @throws IOException
      */
     private void clearCurrentOrderFiles() throws IOException {
-        writeFile(ORDER_DETAILS_FILE, "", false);
-        writeFile(ORDER_SUMMARY_FILE, "", false);
-    }
-
-    // Métodos auxiliares para leitura e escrita de arquivos
-    
-    private String readFile(String path) throws IOException {
-        return new String(Files.readAllBytes(Paths.get(path)));
+        PersistenceWriter writer = PersistenceWriter.get();
+        CafePartition partition = CafePartition.current();
+        writer.replace(partition.file(ORDER_DETAILS_FILE), new byte[0]);
+        writer.replace(partition.file(ORDER_SUMMARY_FILE), new byte[0]);
     }
 
-    private void writeFile(String path, String content, boolean append) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path, append))) {
-            writer.write(content);
-        }
-    }
-    
     // Método auxiliar para simplificar a criação de Alertas
     private void showAlert(Alert.AlertType alertType, String title, String message) {
         Alert alert = new Alert(alertType);
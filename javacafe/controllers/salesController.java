@@ -1,75 +1,473 @@
 package javacafe.controllers;
 
+import com.jfoenix.controls.JFXButton;
+import javacafe.Models.Money;
+import javacafe.backend_files.CafePartition;
+import javacafe.backend_files.PersistenceWriter;
+import javacafe.backend_files.ReceiptArchive;
+import javacafe.backend_files.SalesAnalytics;
+import javacafe.backend_files.SalesExporter;
+import javacafe.backend_files.SalesHistoryPager;
+import javacafe.backend_files.SalesLedger;
+import javacafe.backend_files.SalesRollups;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableListBase;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.print.PrinterJob;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class salesController extends PageNavigationController {
 
-    // --- MELHORIA 1: Centralizar nome do arquivo como constante ---
-    private static final String SALES_HISTORY_FILE = "files/sales.txt";
+    // O histórico é uma lista virtualizada: só as linhas visíveis viram células,
+    // e o texto delas é lido do livro de vendas sob demanda, página por página.
+    @FXML
+    private ListView<String> salesHistoryList;
+
+    private SalesHistory history;
+    // O livro mostrado: o da partição do café que estava na tela quando a página apareceu
+    private SalesLedger ledger;
+    // Referência forte ao ouvinte: o livro de vendas guarda apenas uma referência fraca.
+    private Runnable ledgerListener;
 
-    // --- MELHORIA 2: Nomenclatura mais clara ---
-    // Lembre-se de atualizar o fx:id no seu arquivo .fxml de "ordertxt" para "salesHistoryText"
     @FXML
-    private Text salesHistoryText;
+    private ComboBox<Question> analyticsQuestion;
+    @FXML
+    private JFXButton analyticsButton;
+    @FXML
+    private JFXButton exportButton;
+    @FXML
+    private ProgressBar exportProgress;
+    @FXML
+    private JFXButton receiptButton;
+
+    // O número do pedido numa linha do histórico ("... #12  local ...")
+    private static final Pattern ORDER_NUMBER = Pattern.compile("  #(\\d+)  ");
+    // Os recibos oferecidos quando nenhum número é digitado
+    private static final long RECENT_RECEIPTS_MS = 3L * 60 * 60 * 1000;
+    private static final int MAX_LISTED_RECEIPTS = 500;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         System.out.println("Sales Page Initialized");
+        analyticsQuestion.getItems().setAll(Question.values());
+        bindLedger();
+    }
+
+    /**
+     * A página vem do cache: se outro café entrou desde a última vez, mostra o livro dele.
+     */
+    @Override
+    public void onShow() {
+        bindLedger();
+    }
+
+    private void bindLedger() {
         try {
-            // Usa a constante e exibe o conteúdo no componente com nome mais claro
-            String content = readFile(SALES_HISTORY_FILE);
-            salesHistoryText.setText(content);
+            SalesLedger current = SalesLedger.get();
+            if (current == ledger) {
+                return;
+            }
+            unbindLedger();
+            // O histórico em texto de antes do livro não vira vendas; a última linha aponta para ele
+            Path legacy = current.getLegacyHistory();
+            SalesHistory shown = new SalesHistory(new SalesHistoryPager(current), legacy == null ? null
+                    : "vendas anteriores ao livro de vendas (resumos sem data): " + legacy);
+            ledger = current;
+            history = shown;
+            salesHistoryList.setItems(shown);
+            salesHistoryList.setPlaceholder(new Label("nothing yet..."));
+            // Vendas novas aparecem no topo assim que chegam ao arquivo
+            ledgerListener = () -> Platform.runLater(shown::refresh);
+            ledger.addListener(ledgerListener);
         } catch (IOException e) {
+            // Nada do café anterior fica na tela; a próxima exibição tenta de novo
+            unbindLedger();
+            salesHistoryList.setItems(FXCollections.observableArrayList());
             // --- MELHORIA 3: Tratamento de erro mais amigável para o usuário ---
-            String errorMessage = "Não foi possível carregar o histórico de vendas.\nO arquivo pode não existir ou estar corrompido.";
-            salesHistoryText.setText(errorMessage);
+            salesHistoryList.setPlaceholder(new Label(
+                    "Não foi possível carregar o histórico de vendas.\nO arquivo pode não existir ou estar corrompido."));
             System.err.println("Erro ao ler o arquivo de vendas: " + e.getMessage());
         }
     }
 
     /**
-     * Lê o conteúdo de um arquivo e o retorna como uma String.
-     * @param filePath O caminho do arquivo a ser lido.
-     * @return O conteúdo do arquivo.
-     * @throws IOException Se ocorrer um erro de leitura.
+     * Solta o livro mostrado até agora: para de ouvir as vendas novas e fecha a leitura dele.
+     */
+    private void unbindLedger() {
+        if (ledger != null) {
+            ledger.removeListener(ledgerListener);
+            ledger = null;
+            ledgerListener = null;
+        }
+        if (history != null) {
+            history.close();
+            history = null;
+        }
+    }
+
+    /**
+     * Lista observável sobre o {@link SalesHistoryPager}: a venda mais recente fica no topo,
+     * e o ListView só pede as linhas que estão na tela. Uma linha fixa opcional fica no fim.
+     */
+    private static final class SalesHistory extends ObservableListBase<String> {
+        private final SalesHistoryPager pager;
+        private final String footer;
+        private int size;
+        private boolean closed;
+
+        SalesHistory(SalesHistoryPager pager, String footer) {
+            this.pager = pager;
+            this.footer = footer;
+            this.size = pager.size();
+        }
+
+        @Override
+        public String get(int index) {
+            if (index == size && footer != null) {
+                return footer;
+            }
+            return pager.line(index);
+        }
+
+        @Override
+        public int size() {
+            return footer == null ? size : size + 1;
+        }
+
+        /**
+         * Inclui as vendas gravadas desde a última atualização. Deve rodar na thread da interface.
+         */
+        void refresh() {
+            if (closed) {
+                // Uma atualização que ainda estava na fila quando o café mudou
+                return;
+            }
+            int added;
+            try {
+                added = pager.refresh();
+            } catch (IOException e) {
+                System.err.println("Erro ao atualizar o histórico de vendas: " + e.getMessage());
+                return;
+            }
+            if (added <= 0) {
+                return;
+            }
+            size += added;
+            beginChange();
+            nextAdd(0, added);
+            endChange();
+        }
+
+        /**
+         * Libera a leitura do livro quando a página passa a mostrar outro café.
+         * Deve rodar na thread da interface.
+         */
+        void close() {
+            closed = true;
+            try {
+                pager.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar o histórico de vendas: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * As perguntas prontas ao histórico: o período (dias para trás a partir de agora, 0 para
+     * tudo), o agrupamento e a ordem das respostas.
      */
-    private String readFile(String filePath) throws IOException {
-        // Esta implementação é mais moderna e eficiente que o loop com StringBuilder
-        return new String(Files.readAllBytes(Paths.get(filePath)));
+    private enum Question {
+        TOP_PRODUCTS("Mais vendidos nos últimos 7 dias", 7, SalesAnalytics.GroupBy.PRODUCT, SalesAnalytics.SortBy.UNITS, 10),
+        TOP_REVENUE("Maior receita nos últimos 30 dias", 30, SalesAnalytics.GroupBy.PRODUCT, SalesAnalytics.SortBy.CENTS, 10),
+        HOUR_OF_DAY("Vendas por hora do dia (30 dias)", 30, SalesAnalytics.GroupBy.HOUR_OF_DAY, SalesAnalytics.SortBy.KEY, 24),
+        DAY_OF_WEEK("Vendas por dia da semana (1 ano)", 365, SalesAnalytics.GroupBy.DAY_OF_WEEK, SalesAnalytics.SortBy.KEY, 7),
+        DAYS("Receita por dia (90 dias)", 90, SalesAnalytics.GroupBy.DAY, SalesAnalytics.SortBy.KEY, 90),
+        REGISTERS("Cesta média por caixa (30 dias)", 30, SalesAnalytics.GroupBy.REGISTER, SalesAnalytics.SortBy.ORDERS, 50),
+        TOTAL("Resumo de todo o histórico", 0, SalesAnalytics.GroupBy.TOTAL, SalesAnalytics.SortBy.KEY, 1);
+
+        private final String text;
+        private final int days;
+        private final SalesAnalytics.GroupBy groupBy;
+        private final SalesAnalytics.SortBy sortBy;
+        private final int limit;
+
+        Question(String text, int days, SalesAnalytics.GroupBy groupBy, SalesAnalytics.SortBy sortBy, int limit) {
+            this.text = text;
+            this.days = days;
+            this.groupBy = groupBy;
+            this.sortBy = sortBy;
+            this.limit = limit;
+        }
+
+        String answer(SalesAnalytics analytics) throws IOException {
+            long to = System.currentTimeMillis() + 1;
+            long from = days == 0 ? Long.MIN_VALUE : to - days * 24L * 60 * 60 * 1000;
+            SalesAnalytics.Result result = analytics.query(from, to, groupBy, null);
+            List<SalesAnalytics.Row> rows = result.sorted(sortBy, limit);
+            StringBuilder answer = new StringBuilder();
+            if (rows.isEmpty()) {
+                answer.append("Nenhuma venda no período.\n");
+            }
+            for (SalesAnalytics.Row row : rows) {
+                answer.append(String.format(Locale.ROOT, "%-20s %7d un. %6d ped. %5.1f un./ped.  R$ %s  (R$ %s/ped.)%n",
+                        row.getKey(), row.getUnits(), row.getOrders(), row.getUnitsPerOrder(),
+                        Money.format(row.getCents()), Money.format(row.getCentsPerOrder())));
+            }
+            answer.append(String.format(Locale.ROOT, "%n%d linhas do histórico em %.1f ms",
+                    result.getRowsScanned(), result.getMillis()));
+            return answer.toString();
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * Responde a pergunta escolhida fora da thread da interface: a primeira consulta carrega
+     * o livro de vendas inteiro nas colunas do SalesAnalytics.
+     */
+    public void runAnalytics(ActionEvent event) {
+        Question question = analyticsQuestion.getValue();
+        if (question == null) {
+            showAlert(Alert.AlertType.INFORMATION, "Atenção", "Escolha uma pergunta sobre o histórico de vendas.");
+            return;
+        }
+        CafePartition partition = CafePartition.current();
+        analyticsButton.setDisable(true);
+        Thread worker = new Thread(() -> {
+            String answer;
+            try {
+                answer = question.answer(partition.analytics());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Erro ao consultar o histórico de vendas: " + e.getMessage());
+                Platform.runLater(() -> {
+                    analyticsButton.setDisable(false);
+                    showAlert(Alert.AlertType.ERROR, "Erro", "Não foi possível consultar o histórico de vendas.");
+                });
+                return;
+            }
+            Platform.runLater(() -> {
+                analyticsButton.setDisable(false);
+                showAnswer(question, answer);
+            });
+        }, "sales-analytics");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void showAnswer(Question question, String answer) {
+        TextArea text = new TextArea(answer);
+        text.setEditable(false);
+        text.setStyle("-fx-font-family: monospace;");
+        text.setPrefSize(640, 360);
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setHeaderText(question.toString());
+        alert.getDialogPane().setContent(text);
+        alert.setResizable(true);
+        alert.showAndWait();
+    }
+
+    /**
+     * Reimpressão de recibos: pede o número do pedido (já preenchido com o da venda selecionada
+     * no histórico) e mostra o recibo guardado no ReceiptArchive, que pode ser impresso de novo.
+     * Sem número, lista os recibos das últimas horas para escolher. O arquivo é lido fora da
+     * thread da interface.
+     */
+    public void showReceipt(ActionEvent event) {
+        String selected = salesHistoryList.getSelectionModel().getSelectedItem();
+        Matcher matcher = ORDER_NUMBER.matcher(selected == null ? "" : selected);
+        TextInputDialog dialog = new TextInputDialog(matcher.find() ? matcher.group(1) : "");
+        dialog.setHeaderText("Recibo de qual pedido? (vazio: escolher entre os pedidos recentes)");
+        Optional<String> input = dialog.showAndWait();
+        if (input.isEmpty()) {
+            return;
+        }
+        String number = input.get().trim().replace("#", "");
+        CafePartition partition = CafePartition.current();
+        if (number.isEmpty()) {
+            long from = System.currentTimeMillis() - RECENT_RECEIPTS_MS;
+            readReceipts(partition, archive -> {
+                List<ReceiptArchive.Entry> entries = archive.list(from, Long.MAX_VALUE, MAX_LISTED_RECEIPTS);
+                Platform.runLater(() -> chooseReceipt(partition, entries));
+            });
+            return;
+        }
+        long orderId;
+        try {
+            orderId = Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            showAlert(Alert.AlertType.WARNING, "Atenção", "Digite o número do pedido, por exemplo 12.");
+            return;
+        }
+        readReceipts(partition, archive -> {
+            String text = archive.find(orderId);
+            Platform.runLater(() -> {
+                if (text == null) {
+                    showAlert(Alert.AlertType.INFORMATION, "Recibo", "Não há recibo do pedido #" + orderId + " no arquivo.");
+                } else {
+                    showReceiptText(orderId, text);
+                }
+            });
+        });
+    }
+
+    private void chooseReceipt(CafePartition partition, List<ReceiptArchive.Entry> entries) {
+        if (entries.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "Recibo", "Nenhum pedido nas últimas horas.");
+            return;
+        }
+        List<ReceiptChoice> choices = new ArrayList<>(entries.size());
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            choices.add(new ReceiptChoice(entries.get(i)));
+        }
+        ChoiceDialog<ReceiptChoice> dialog = new ChoiceDialog<>(choices.get(0), choices);
+        dialog.setHeaderText("Recibo de qual pedido?");
+        Optional<ReceiptChoice> choice = dialog.showAndWait();
+        if (choice.isEmpty()) {
+            return;
+        }
+        ReceiptArchive.Entry entry = choice.get().entry;
+        readReceipts(partition, archive -> {
+            String text = archive.read(entry);
+            Platform.runLater(() -> showReceiptText(entry.getOrderId(), text));
+        });
+    }
+
+    /**
+     * Roda uma leitura do arquivo de recibos em outra thread, com o botão desativado enquanto isso.
+     */
+    private void readReceipts(CafePartition partition, ReceiptLookup lookup) {
+        receiptButton.setDisable(true);
+        Thread worker = new Thread(() -> {
+            try {
+                lookup.run(partition.receipts());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Erro ao ler o arquivo de recibos: " + e.getMessage());
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Erro", "Não foi possível ler o arquivo de recibos."));
+            } finally {
+                Platform.runLater(() -> receiptButton.setDisable(false));
+            }
+        }, "receipt-lookup");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void showReceiptText(long orderId, String receipt) {
+        TextArea text = new TextArea(receipt);
+        text.setEditable(false);
+        text.setStyle("-fx-font-family: monospace;");
+        text.setPrefSize(640, 360);
+        ButtonType print = new ButtonType("imprimir");
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, null, print, ButtonType.CLOSE);
+        alert.setHeaderText("Recibo do pedido #" + orderId);
+        alert.getDialogPane().setContent(text);
+        alert.setResizable(true);
+        if (alert.showAndWait().orElse(ButtonType.CLOSE) == print) {
+            printReceipt(receipt);
+        }
+    }
+
+    private void printReceipt(String receipt) {
+        PrinterJob job = PrinterJob.createPrinterJob();
+        if (job == null) {
+            showAlert(Alert.AlertType.WARNING, "Atenção", "Nenhuma impressora disponível.");
+            return;
+        }
+        Text page = new Text(receipt);
+        page.setFont(Font.font("Monospaced", 9));
+        if (job.printPage(page)) {
+            job.endJob();
+        } else {
+            job.cancelJob();
+            showAlert(Alert.AlertType.ERROR, "Erro", "Não foi possível imprimir o recibo.");
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReceiptLookup {
+        void run(ReceiptArchive archive) throws IOException;
+    }
+
+    /**
+     * Um recibo na lista para escolher: número e hora do pedido.
+     */
+    private static final class ReceiptChoice {
+        private final ReceiptArchive.Entry entry;
+
+        ReceiptChoice(ReceiptArchive.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + entry.getOrderId() + "  " + new SimpleDateFormat("HH:mm:ss").format(new Date(entry.getTimestamp()));
+        }
     }
 
     // --- MELHORIA 4: Implementação da funcionalidade 'generateReport' ---
     /**
-     * Gera um relatório de vendas criando uma cópia do histórico atual
-     * com um nome de arquivo único baseado na data e hora.
+     * Gera um relatório de vendas (receita por dia e unidades por produto) com um
+     * nome de arquivo único baseado na data e hora, na pasta do café. Os números vêm das
+     * tabelas de totais do SalesRollups, então o custo depende da quantidade de dias e
+     * produtos, e não da quantidade de vendas no histórico.
      */
     public void generateReport(ActionEvent event) {
         try {
             String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
-            String reportFileName = "sales_report_" + timestamp + ".txt";
+            Path reportFile = CafePartition.current().file("sales_report_" + timestamp + ".txt");
 
-            String reportContent = "Sales Report generated on: " + new Date() + "\n\n" + salesHistoryText.getText();
+            SalesRollups rollups = SalesRollups.get();
+            SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+            StringBuilder reportContent = new StringBuilder("Sales Report generated on: " + new Date() + "\n\n");
+
+            reportContent.append("Receita por dia:\n");
+            for (Map.Entry<Long, long[]> day : rollups.totalsByBucket(
+                    SalesRollups.Granularity.DAY, Long.MIN_VALUE, Long.MAX_VALUE).entrySet()) {
+                reportContent.append(String.format(Locale.ROOT, "%s  %5d un.  R$ %s%n",
+                        dayFormat.format(new Date(day.getKey())), day.getValue()[0], Money.format(day.getValue()[1])));
+            }
 
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(reportFileName))) {
-                writer.write(reportContent);
+            reportContent.append("\nUnidades por produto:\n");
+            for (Map.Entry<String, long[]> product : rollups.totalsByProduct(
+                    SalesRollups.Granularity.MONTH, Long.MIN_VALUE, Long.MAX_VALUE).entrySet()) {
+                reportContent.append(String.format(Locale.ROOT, "%-20s %5d un.  R$ %s%n",
+                        product.getKey(), product.getValue()[0], Money.format(product.getValue()[1])));
             }
 
-            showAlert(Alert.AlertType.INFORMATION, "Relatório Gerado", "O relatório de vendas foi salvo com sucesso como:\n" + reportFileName);
+            PersistenceWriter.get().replace(reportFile.toString(), reportContent.toString());
+
+            showAlert(Alert.AlertType.INFORMATION, "Relatório Gerado", "O relatório de vendas foi salvo com sucesso como:\n" + reportFile);
 
         } catch (Exception e) {
             showAlert(Alert.AlertType.ERROR, "Erro", "Não foi possível gerar o relatório de vendas.");
@@ -77,6 +475,138 @@ public class salesController extends PageNavigationController {
         }
     }
 
+    /**
+     * Exporta as vendas de um período para a contabilidade, em CSV ou JSON (com ou sem gzip),
+     * na pasta do café, com um nome de arquivo único baseado na data e hora. O SalesExporter
+     * lê o livro de vendas registro a registro e escreve por um buffer de tamanho fixo, então
+     * a memória não cresce com o histórico; a exportação roda fora da thread da interface e o
+     * andamento aparece na barra abaixo do histórico.
+     */
+    public void exportSales(ActionEvent event) {
+        // O livro do café na tela agora, mesmo que outro café entre durante a exportação;
+        // null se ele não abriu (ver bindLedger)
+        SalesLedger exported = ledger;
+        if (exported == null) {
+            showAlert(Alert.AlertType.ERROR, "Erro", "Não foi possível exportar as vendas: o histórico de vendas não foi carregado.");
+            return;
+        }
+        ChoiceDialog<Period> periodDialog = new ChoiceDialog<>(Period.LAST_30_DAYS, Period.values());
+        periodDialog.setHeaderText("Exportar as vendas de qual período?");
+        Optional<Period> period = periodDialog.showAndWait();
+        if (period.isEmpty()) {
+            return;
+        }
+        ChoiceDialog<ExportFormat> formatDialog = new ChoiceDialog<>(ExportFormat.CSV, ExportFormat.values());
+        formatDialog.setHeaderText("Em qual formato?");
+        Optional<ExportFormat> format = formatDialog.showAndWait();
+        if (format.isEmpty()) {
+            return;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        long from = period.get().from(today, zone);
+        long to = period.get().to(today, zone);
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+        Path target = CafePartition.current().file("sales_export_" + timestamp
+                + format.get().format.extension(format.get().gzip));
+        SalesExporter exporter = new SalesExporter(target, format.get().format, format.get().gzip, zone);
+
+        Task<Long> export = new Task<>() {
+            @Override
+            protected Long call() throws IOException {
+                return exporter.export(exported, from, to, this::updateProgress);
+            }
+        };
+        exportButton.setDisable(true);
+        exportProgress.progressProperty().bind(export.progressProperty());
+        exportProgress.setVisible(true);
+        export.setOnSucceeded(done -> {
+            finishExport();
+            showAlert(Alert.AlertType.INFORMATION, "Relatório Gerado", String.format(Locale.ROOT,
+                    "%d vendas exportadas (%d KB) para:%n%s", export.getValue(),
+                    exporter.getBytesWritten() / 1024, target));
+        });
+        export.setOnFailed(failed -> {
+            finishExport();
+            System.err.println("Erro ao exportar as vendas: " + export.getException().getMessage());
+            showAlert(Alert.AlertType.ERROR, "Erro", "Não foi possível exportar as vendas.");
+        });
+        Thread worker = new Thread(export, "sales-export");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void finishExport() {
+        exportProgress.progressProperty().unbind();
+        exportProgress.setVisible(false);
+        exportButton.setDisable(false);
+    }
+
+    /**
+     * Os períodos que podem ser exportados, em dias do calendário local.
+     */
+    private enum Period {
+        TODAY("Hoje"),
+        LAST_7_DAYS("Últimos 7 dias"),
+        LAST_30_DAYS("Últimos 30 dias"),
+        THIS_MONTH("Este mês"),
+        LAST_MONTH("Mês passado"),
+        ALL("Todo o histórico");
+
+        private final String text;
+
+        Period(String text) {
+            this.text = text;
+        }
+
+        long from(LocalDate today, ZoneId zone) {
+            switch (this) {
+                case TODAY: return startOf(today, zone);
+                case LAST_7_DAYS: return startOf(today.minusDays(6), zone);
+                case LAST_30_DAYS: return startOf(today.minusDays(29), zone);
+                case THIS_MONTH: return startOf(today.withDayOfMonth(1), zone);
+                case LAST_MONTH: return startOf(today.withDayOfMonth(1).minusMonths(1), zone);
+                default: return Long.MIN_VALUE;
+            }
+        }
+
+        long to(LocalDate today, ZoneId zone) {
+            return this == LAST_MONTH ? startOf(today.withDayOfMonth(1), zone) : Long.MAX_VALUE;
+        }
+
+        private static long startOf(LocalDate day, ZoneId zone) {
+            return day.atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private enum ExportFormat {
+        CSV("CSV", SalesExporter.Format.CSV, false),
+        CSV_GZIP("CSV comprimido (.gz)", SalesExporter.Format.CSV, true),
+        JSON("JSON", SalesExporter.Format.JSON, false),
+        JSON_GZIP("JSON comprimido (.gz)", SalesExporter.Format.JSON, true);
+
+        private final String text;
+        private final SalesExporter.Format format;
+        private final boolean gzip;
+
+        ExportFormat(String text, SalesExporter.Format format, boolean gzip) {
+            this.text = text;
+            this.format = format;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
     private void showAlert(Alert.AlertType alertType, String title, String message) {
         Alert alert = new Alert(alertType);
         alert.setHeaderText(title);
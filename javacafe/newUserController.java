@@ -1,22 +1,17 @@
 package javacafe;
 
 import javacafe.Models.User;
+import javacafe.backend_files.CafePartition;
 import javacafe.backend_files.FileController;
+import javacafe.controllers.PageCache;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.TextField;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 
-public class newUserController {
-    private Stage stage;
-    private Scene scene;
-    private Parent root;
+public class newUserController implements PageCache.Refreshable {
 
     @FXML
     TextField nameTextField2;
@@ -29,23 +24,40 @@ public class newUserController {
         String cafeName = nameTextField2.getText();
         String password = passwordField2.getText();
 
-        User newUser = new User(cafeName, password);
-        fc.writeNewRegister(newUser);
-
+        // A mesma regra da partição: um nome que não vira pasta não chega ao registers.txt
+        if (!CafePartition.isValidName(cafeName)) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setHeaderText("Nome inválido");
+            alert.setContentText("O nome do café não pode ser vazio, \".\" ou \"..\", nem conter / ou \\.");
+            alert.showAndWait();
+            return;
+        }
 
-        Parent root = FXMLLoader.load(getClass().getResource("pages/mainpage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        User newUser = new User(cafeName, password);
+        if (!fc.writeNewRegister(newUser)) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setHeaderText("Nome já registrado");
+            alert.setContentText("Já existe um café chamado " + cafeName + ".");
+            alert.showAndWait();
+            return;
+        }
+
+        // O café novo já entra: as telas passam a usar a partição dele
+        CafePartition.login(cafeName);
+        PageCache.show(event, "mainpage.fxml");
     }
 
     public void titlescreenNew (ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("pages/firstpage.fxml"));
-        stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-        scene = new Scene(root);
-        stage.setScene(scene);
-        stage.show();
+        PageCache.show(event, "firstpage.fxml");
+    }
+
+    /**
+     * A página vem do cache: limpa o formulário do último cadastro.
+     */
+    @Override
+    public void onShow() {
+        nameTextField2.clear();
+        passwordField2.clear();
     }
 }
 
@@ -0,0 +1,199 @@
+package javacafe.Models;
+
+import javacafe.backend_files.PersistenceWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reservas por carrinho no Inventory: vários caixas reservando, liberando e confirmando
+ * ao mesmo tempo nunca vendem além do estoque, nem mexem nas reservas uns dos outros.
+ */
+class InventoryReservationsTest {
+
+    private static final String[] PRODUCTS = {"latte", "espresso", "croissant"};
+    private static final int INITIAL_STOCK = 500;
+    private static final int REGISTERS = 8;
+
+    @TempDir
+    Path directory;
+
+    private Inventory inventory;
+
+    @BeforeEach
+    void createInventory() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        InventoryFile.appendHeader(sb, 0);
+        for (String name : PRODUCTS) {
+            InventoryFile.appendProduct(sb, new Product(name, INITIAL_STOCK, 500));
+        }
+        Files.write(directory.resolve("inventory.txt"), sb.toString().getBytes(StandardCharsets.UTF_8));
+        inventory = new Inventory(directory);
+    }
+
+    @AfterEach
+    void closeInventory() {
+        inventory.close();
+        PersistenceWriter.get().flush();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        List<Inventory.Reservations> carts = new ArrayList<>();
+        for (int i = 0; i < REGISTERS; i++) {
+            carts.add(new Inventory.Reservations());
+        }
+        runOnRegisters(register -> {
+            Inventory.Reservations cart = carts.get(register);
+            Random random = new Random(register);
+            for (int i = 0; i < 20_000; i++) {
+                String name = PRODUCTS[random.nextInt(PRODUCTS.length)];
+                if (random.nextInt(3) == 0) {
+                    inventory.release(cart, name, 1);
+                } else {
+                    inventory.reserve(cart, name, 1);
+                }
+            }
+        });
+        for (String name : PRODUCTS) {
+            int held = 0;
+            for (Inventory.Reservations cart : carts) {
+                held += cart.get(name);
+            }
+            Product product = inventory.getProduct(name);
+            assertEquals(held, product.getReserved(), name);
+            assertEquals(INITIAL_STOCK, product.getOnHand(), name);
+            assertTrue(product.getStock() >= 0, name);
+        }
+    }
+
+    @Test
+    void concurrentCommitsAndCancelsKeepStockConsistent() throws Exception {
+        AtomicInteger[] sold = new AtomicInteger[PRODUCTS.length];
+        for (int i = 0; i < sold.length; i++) {
+            sold[i] = new AtomicInteger();
+        }
+        runOnRegisters(register -> {
+            Random random = new Random(register);
+            Inventory.Reservations cart = new Inventory.Reservations();
+            for (int order = 0; order < 2_000; order++) {
+                int items = 1 + random.nextInt(4);
+                for (int i = 0; i < items; i++) {
+                    inventory.reserve(cart, PRODUCTS[random.nextInt(PRODUCTS.length)], 1);
+                }
+                if (random.nextBoolean()) {
+                    Map<String, Integer> reserved = cart.getItems();
+                    assertTrue(inventory.commit(cart));
+                    for (int p = 0; p < PRODUCTS.length; p++) {
+                        sold[p].addAndGet(reserved.getOrDefault(PRODUCTS[p], 0));
+                    }
+                } else {
+                    inventory.releaseAll(cart);
+                }
+                assertTrue(cart.isEmpty());
+            }
+        });
+        for (int p = 0; p < PRODUCTS.length; p++) {
+            Product product = inventory.getProduct(PRODUCTS[p]);
+            assertEquals(0, product.getReserved(), PRODUCTS[p]);
+            assertEquals(INITIAL_STOCK - sold[p].get(), product.getOnHand(), PRODUCTS[p]);
+        }
+
+        // O diário e a compactação guardam exatamente as baixas confirmadas
+        inventory.close();
+        PersistenceWriter.get().flush();
+        Inventory reopened = new Inventory(directory);
+        try {
+            for (int p = 0; p < PRODUCTS.length; p++) {
+                assertEquals(INITIAL_STOCK - sold[p].get(), reopened.getProduct(PRODUCTS[p]).getOnHand(), PRODUCTS[p]);
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void registersCannotReleaseEachOthersReservations() {
+        Inventory.Reservations first = new Inventory.Reservations();
+        Inventory.Reservations second = new Inventory.Reservations();
+        assertTrue(inventory.reserve(first, "latte", 2));
+
+        assertFalse(inventory.release(second, "latte", 1));
+        assertFalse(inventory.release(first, "latte", 3));
+        assertEquals(2, inventory.getProduct("latte").getReserved());
+
+        assertTrue(inventory.commit(second));
+        assertEquals(INITIAL_STOCK, inventory.getProduct("latte").getOnHand());
+        assertEquals(2, first.get("latte"));
+    }
+
+    @Test
+    void commitIsAllOrNothing() {
+        Inventory.Reservations cart = new Inventory.Reservations();
+        assertTrue(inventory.reserve(cart, "latte", 2));
+        assertTrue(inventory.reserve(cart, "croissant", 3));
+        // A reserva do croissant some do produto (como numa recarga do inventário)
+        assertTrue(inventory.getProduct("croissant").release(3));
+
+        assertFalse(inventory.commit(cart));
+        Product latte = inventory.getProduct("latte");
+        assertEquals(INITIAL_STOCK, latte.getOnHand());
+        assertEquals(2, latte.getReserved());
+        assertEquals(INITIAL_STOCK, inventory.getProduct("croissant").getOnHand());
+        assertEquals(Map.of("latte", 2, "croissant", 3), cart.getItems());
+    }
+
+    @Test
+    void doubleReleaseIsReported() {
+        Product product = new Product("mocha", 10, 700);
+        assertTrue(product.reserve(2));
+        assertTrue(product.release(2));
+        assertFalse(product.release(1));
+        assertEquals(0, product.getReserved());
+        assertEquals(10, product.getStock());
+    }
+
+    private interface RegisterTask {
+        void run(int register) throws Exception;
+    }
+
+    private static void runOnRegisters(RegisterTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(REGISTERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> running = new ArrayList<>();
+        for (int register = 0; register < REGISTERS; register++) {
+            int id = register;
+            running.add(pool.submit(() -> {
+                start.await();
+                task.run(id);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : running) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,108 @@
+package javacafe.backend_files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * PersistenceWriter: ordem das gravações, colapso das reescritas e o flush, que sempre
+ * volta, mesmo quando uma tarefa ou um callback do mesmo lote falha.
+ */
+class PersistenceWriterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void flushWaitsForEverythingDeliveredBefore() throws IOException {
+        PersistenceWriter writer = new PersistenceWriter(PersistenceWriter.DurabilityMode.BATCHED, 20);
+        Path path = directory.resolve("log.txt");
+        for (int i = 0; i < 100; i++) {
+            writer.append(path, (i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        writer.flush();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i).append('\n');
+        }
+        assertEquals(expected.toString(), Files.readString(path));
+    }
+
+    @Test
+    void pendingReplacesCollapseToTheLatestContent() throws Exception {
+        PersistenceWriter writer = new PersistenceWriter(PersistenceWriter.DurabilityMode.ASYNC, 0);
+        Path path = directory.resolve("counts.txt");
+        AtomicInteger writes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        // Segura a thread de escrita enquanto as reescritas se acumulam na fila
+        writer.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 1; i <= 50; i++) {
+            writer.replace(path.toString(), "versão " + i);
+        }
+        writer.whenWritten(writes::incrementAndGet);
+        release.countDown();
+        writer.flush();
+        assertEquals("versão 50", Files.readString(path));
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void replaceAfterAppendKeepsTheOrder() throws IOException {
+        PersistenceWriter writer = new PersistenceWriter(PersistenceWriter.DurabilityMode.BATCHED, 20);
+        Path path = directory.resolve("resumo.txt");
+        writer.replace(path.toString(), "antigo");
+        writer.append(path.toString(), " + acrescentado");
+        writer.replace(path.toString(), "novo");
+        writer.flush();
+        assertEquals("novo", Files.readString(path));
+    }
+
+    @Test
+    void flushReturnsWhenATaskOrCallbackThrows() throws IOException {
+        PersistenceWriter writer = new PersistenceWriter(PersistenceWriter.DurabilityMode.BATCHED, 20);
+        Path path = directory.resolve("after.txt");
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            writer.execute(() -> {
+                throw new IllegalStateException("falha de propósito");
+            });
+            writer.whenWritten(() -> {
+                throw new IllegalStateException("falha de propósito");
+            });
+            writer.flush();
+            // A thread de escrita continua viva para os próximos pedidos
+            writer.append(path.toString(), "ok");
+            writer.flush();
+        });
+        assertEquals("ok", Files.readString(path));
+    }
+
+    @Test
+    void flushInSyncModeWritesInline() throws IOException {
+        PersistenceWriter writer = new PersistenceWriter(PersistenceWriter.DurabilityMode.SYNC, 0);
+        Path path = directory.resolve("sync.txt");
+        writer.append(path.toString(), "a");
+        writer.execute(() -> {
+            throw new IllegalStateException("falha de propósito");
+        });
+        writer.append(path.toString(), "b");
+        assertEquals("ab", Files.readString(path));
+    }
+}
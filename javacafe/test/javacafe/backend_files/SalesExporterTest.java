@@ -0,0 +1,87 @@
+package javacafe.backend_files;
+
+import javacafe.Models.SaleRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Formato das exportações: aspas do CSV, escapes do JSON, o período [from, to) e o gzip.
+ */
+class SalesExporterTest {
+
+    private static final long NOON = 1_700_000_000_000L; // 2023-11-14T22:13:20Z
+
+    @TempDir
+    Path directory;
+
+    private SalesLedger ledgerWithSales() throws IOException {
+        SalesLedger ledger = new SalesLedger(directory.resolve("sales.dat"));
+        ledger.append(List.of(
+                new SaleRecord(NOON, ledger.nextOrderId(), "caixa,1", "bolo \"da casa\"", 2, 1250),
+                new SaleRecord(NOON + 500, ledger.nextOrderId(), "local", "pão\tde queijo \\ grande", 1, 5)));
+        ledger.append(List.of(new SaleRecord(NOON + 60_000, ledger.nextOrderId(), "local", "latte", 3, 990)));
+        PersistenceWriter.get().flush();
+        return ledger;
+    }
+
+    @Test
+    void csvQuotesTextsThatNeedIt() throws IOException {
+        Path target = directory.resolve("vendas.csv");
+        SalesExporter exporter = new SalesExporter(target, SalesExporter.Format.CSV, false, ZoneOffset.UTC);
+        assertEquals(3, exporter.export(ledgerWithSales(), Long.MIN_VALUE, Long.MAX_VALUE, (done, total) -> { }));
+        assertEquals("momento,pedido,caixa,produto,quantidade,preco_unitario,total\n"
+                        + "2023-11-14T22:13:20Z,1,\"caixa,1\",\"bolo \"\"da casa\"\"\",2,12.50,25.00\n"
+                        + "2023-11-14T22:13:20Z,2,local,pão\tde queijo \\ grande,1,0.05,0.05\n"
+                        + "2023-11-14T22:14:20Z,3,local,latte,3,9.90,29.70\n",
+                Files.readString(target));
+        assertFalse(Files.exists(directory.resolve("vendas.csv.part")));
+    }
+
+    @Test
+    void jsonEscapesQuotesBackslashesAndControlCharacters() throws IOException {
+        Path target = directory.resolve("vendas.json");
+        SalesExporter exporter = new SalesExporter(target, SalesExporter.Format.JSON, false, ZoneOffset.UTC);
+        assertEquals(2, exporter.export(ledgerWithSales(), NOON, NOON + 60_000, (done, total) -> { }));
+        assertEquals("[\n"
+                        + "{\"momento\":\"2023-11-14T22:13:20Z\",\"pedido\":1,\"caixa\":\"caixa,1\","
+                        + "\"produto\":\"bolo \\\"da casa\\\"\",\"quantidade\":2,\"preco_unitario\":12.50,\"total\":25.00},\n"
+                        + "{\"momento\":\"2023-11-14T22:13:20Z\",\"pedido\":2,\"caixa\":\"local\","
+                        + "\"produto\":\"pão\\u0009de queijo \\\\ grande\",\"quantidade\":1,\"preco_unitario\":0.05,\"total\":0.05}\n"
+                        + "]\n",
+                Files.readString(target));
+    }
+
+    @Test
+    void emptyPeriodIsAnEmptyJsonList() throws IOException {
+        Path target = directory.resolve("vazio.json");
+        SalesExporter exporter = new SalesExporter(target, SalesExporter.Format.JSON, false, ZoneOffset.UTC);
+        assertEquals(0, exporter.export(ledgerWithSales(), 0, NOON, (done, total) -> { }));
+        assertEquals("[\n]\n", Files.readString(target));
+    }
+
+    @Test
+    void gzipHoldsTheSameText() throws IOException {
+        SalesLedger ledger = ledgerWithSales();
+        Path plain = directory.resolve("vendas.csv");
+        Path compressed = directory.resolve("vendas.csv.gz");
+        new SalesExporter(plain, SalesExporter.Format.CSV, false, ZoneOffset.UTC)
+                .export(ledger, Long.MIN_VALUE, Long.MAX_VALUE, (done, total) -> { });
+        new SalesExporter(compressed, SalesExporter.Format.CSV, true, ZoneOffset.UTC)
+                .export(ledger, Long.MIN_VALUE, Long.MAX_VALUE, (done, total) -> { });
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            assertEquals(Files.readString(plain), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package javacafe.backend_files;
+
+import javacafe.Models.SaleRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Livro de vendas: nomes inteiros na tabela de nomes, leitura em janelas e conversão
+ * de um livro da versão 1.
+ */
+class SalesLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsFullProductNames() throws IOException {
+        String longName = "espresso duplo com leite de aveia e canela extra";
+        String accented = "pão de queijo recheado com requeijão e orégano";
+        Path path = directory.resolve("sales.dat");
+        SalesLedger ledger = new SalesLedger(path);
+        List<SaleRecord> records = new ArrayList<>();
+        for (String name : new String[] {"espresso", "espresso f", longName, accented}) {
+            records.add(new SaleRecord(1000, ledger.nextOrderId(), "caixa1", name, 2, 350));
+        }
+        ledger.append(records);
+        PersistenceWriter.get().flush();
+
+        SalesLedger reopened = new SalesLedger(path);
+        assertEquals(5, reopened.nextOrderId());
+        try (SalesLedger.Reader reader = reopened.openReader()) {
+            assertEquals(4, reader.size());
+            assertEquals("espresso", reader.read(0).getProductName());
+            assertEquals("espresso f", reader.read(1).getProductName());
+            assertEquals(longName, reader.read(2).getProductName());
+            assertEquals(accented, reader.read(3).getProductName());
+            assertNotEquals(reader.productIdAt(0), reader.productIdAt(1));
+            assertEquals("caixa1", reader.read(3).getRegisterId());
+        }
+    }
+
+    @Test
+    void readsAcrossWindows() throws IOException {
+        SalesLedger ledger = new SalesLedger(directory.resolve("sales.dat"));
+        List<SaleRecord> records = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            records.add(new SaleRecord(1000L * i, i + 1, "c" + i, "produto" + (i % 3), i + 1, 100L * i));
+        }
+        ledger.append(records);
+        PersistenceWriter.get().flush();
+
+        // Janelas de 4 registros: os 11 registros ficam em três mapeamentos
+        try (SalesLedger.Reader reader = ledger.openReader(2)) {
+            assertEquals(11, reader.size());
+            for (int i = 0; i < 11; i++) {
+                SaleRecord record = reader.read(i);
+                assertEquals(1000L * i, reader.timestampAt(i));
+                assertEquals(i + 1, reader.orderIdAt(i));
+                assertEquals(i + 1, reader.quantityAt(i));
+                assertEquals(100L * i, reader.unitPriceAt(i));
+                assertEquals("produto" + (i % 3), record.getProductName());
+                assertEquals("c" + i, record.getRegisterId());
+            }
+        }
+    }
+
+    @Test
+    void convertsVersion1Ledger() throws IOException {
+        Path path = directory.resolve("sales.dat");
+        String[] names = {"latte", "espresso f", "pão de queijo"};
+        ByteBuffer file = ByteBuffer.allocate(16 + names.length * 80).order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(0x4A43534C).putInt(1).putInt(80).putInt(0);
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            byte[] register = "local".getBytes(StandardCharsets.UTF_8);
+            int start = file.position();
+            file.putLong(5000 + i).putLong(7).putLong(450).putInt(i + 1)
+                    .put((byte) name.length).put((byte) register.length).put(name);
+            file.position(start + 70);
+            file.put(register);
+            file.position(start + 80);
+        }
+        Files.write(path, file.array());
+
+        SalesLedger ledger = new SalesLedger(path);
+        assertEquals(SalesLedger.HEADER_SIZE + names.length * SalesLedger.RECORD_SIZE, Files.size(path));
+        assertEquals(8, ledger.nextOrderId());
+        try (SalesLedger.Reader reader = ledger.openReader()) {
+            assertEquals(names.length, reader.size());
+            for (int i = 0; i < names.length; i++) {
+                SaleRecord record = reader.read(i);
+                assertEquals(names[i], record.getProductName());
+                assertEquals("local", record.getRegisterId());
+                assertEquals(5000 + i, record.getTimestamp());
+                assertEquals(i + 1, record.getQuantity());
+                assertEquals(450, record.getUnitPriceCents());
+            }
+        }
+    }
+
+    @Test
+    void readerSeesNamesOfEveryRecordItCounts() throws IOException {
+        SalesLedger ledger = new SalesLedger(directory.resolve("sales.dat"));
+        for (int i = 0; i < 20; i++) {
+            ledger.append(List.of(new SaleRecord(i, ledger.nextOrderId(), "c", "novo" + i, 1, 100)));
+            PersistenceWriter.get().flush();
+            try (SalesLedger.Reader reader = ledger.openReader()) {
+                assertEquals(i + 1, reader.size());
+                assertEquals("novo" + i, reader.read(i).getProductName());
+            }
+        }
+    }
+
+    @Test
+    void blankLegacyHistoryIsIgnored() throws IOException {
+        Files.writeString(directory.resolve("sales.txt"), " \n\r\n\t");
+        assertNull(new SalesLedger(directory.resolve("sales.dat")).getLegacyHistory());
+        Files.writeString(directory.resolve("sales.txt"), "\n\n2024-06-29 latte x1\n");
+        assertEquals(directory.resolve("sales.txt"),
+                new SalesLedger(directory.resolve("sales.dat")).getLegacyHistory());
+    }
+
+    @Test
+    void extendedReaderMapsOnlyTheNewRecords() throws IOException {
+        SalesLedger ledger = new SalesLedger(directory.resolve("sales.dat"));
+        // Janelas de 4 registros: a última janela começa incompleta e depois se completa
+        try (SalesLedger.Reader reader = ledger.openReader(2)) {
+            assertEquals(0, reader.size());
+            int written = 0;
+            for (int round : new int[] {3, 1, 6, 2}) {
+                List<SaleRecord> records = new ArrayList<>();
+                for (int i = 0; i < round; i++, written++) {
+                    records.add(new SaleRecord(written, ledger.nextOrderId(), "c", "item" + written, 1, 10));
+                }
+                ledger.append(records);
+                PersistenceWriter.get().flush();
+                assertEquals(round, reader.extend());
+                assertEquals(written, reader.size());
+                for (int i = 0; i < written; i++) {
+                    assertEquals("item" + i, reader.read(i).getProductName());
+                    assertEquals(i, reader.timestampAt(i));
+                }
+            }
+            assertEquals(0, reader.extend());
+        }
+    }
+}